@@ -1,6 +1,5 @@
 package klk59.hr.model;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import domainapp.basics.exceptions.ConstraintViolationException;
@@ -14,7 +13,8 @@ import domainapp.basics.model.meta.DClass;
 import domainapp.basics.model.meta.DOpt;
 import domainapp.basics.model.meta.DAssoc.Associate;
 import domainapp.basics.model.meta.Select;
-import domainapp.basics.util.Tuple;;
+import domainapp.basics.util.Tuple;
+import klk59.hr.model.util.IndexedLinkList;
 /**
  * 
  * @author ThuHuong
@@ -24,7 +24,6 @@ import domainapp.basics.util.Tuple;;
 public class City {
 	@DAttr(name="id",id=true,auto=true,length=3,mutable=false,optional=false,type=Type.Integer)
 	private int id;
-	private static int idCounter;
 	
 	@DAttr(name="name",type=Type.String,length=20,optional=false)
 	private String name;
@@ -36,7 +35,7 @@ public class City {
 		      associate=@Associate(type=Employee.class,cardMin=1,cardMax=25))  
 	private List<Employee> employees;
 	
-	private int employeesCount;
+	// the link count of employees is kept by the list (see IndexedLinkList.getLinkCount())
 	  
 	  @DOpt(type=DOpt.Type.ObjectFormConstructor)
 	  @DOpt(type=DOpt.Type.RequiredConstructor)
@@ -50,8 +49,7 @@ public class City {
 	    this.id = nextID(id);
 	    this.name = name;
 	    
-	    employees = new ArrayList<>();
-	    employeesCount = 0;
+	    employees = new IndexedLinkList<>();
 	  }
 
 	  public void setName(String name) {
@@ -61,9 +59,7 @@ public class City {
 	  @DOpt(type=DOpt.Type.LinkAdder)
 	  //only need to do this for reflexive association: @MemberRef(name="employees")  
 	  public boolean addEmployee(Employee s) {
-	    if (!this.employees.contains(s)) {
-	      employees.add(s);
-	    }
+	    links().addLoaded(EmployeeIdentityMap.getInstance().canonical(s));
 	    
 	    // no other attributes changed
 	    return false; 
@@ -71,8 +67,7 @@ public class City {
 
 	  @DOpt(type=DOpt.Type.LinkAdderNew)
 	  public boolean addNewEmployee(Employee s) {
-	    employees.add(s);
-	    employeesCount++;
+	    employees.add(EmployeeIdentityMap.getInstance().canonical(s));
 	    
 	    // no other attributes changed
 	    return false; 
@@ -80,11 +75,7 @@ public class City {
 	  
 	  @DOpt(type=DOpt.Type.LinkAdder)
 	  public boolean addEmployee(List<Employee> employees) {
-	    for (Employee s : employees) {
-	      if (!this.employees.contains(s)) {
-	        this.employees.add(s);
-	      }
-	    }
+	    links().addAllLoaded(EmployeeIdentityMap.getInstance().canonical(employees));
 	    
 	    // no other attributes changed
 	    return false; 
@@ -92,8 +83,7 @@ public class City {
 
 	  @DOpt(type=DOpt.Type.LinkAdderNew)
 	  public boolean addNewEmployee(List<Employee> employees) {
-	    this.employees.addAll(employees);
-	    employeesCount += employees.size();
+	    this.employees.addAll(EmployeeIdentityMap.getInstance().canonical(employees));
 
 	    // no other attributes changed
 	    return false; 
@@ -102,34 +92,35 @@ public class City {
 	  @DOpt(type=DOpt.Type.LinkRemover)
 	  //only need to do this for reflexive association: @MemberRef(name="employees")
 	  public boolean removeEmployee(Employee s) {
-	    boolean removed = employees.remove(s);
-	    
-	    if (removed) {
-	      employeesCount--;
-	    }
+	    employees.remove(EmployeeIdentityMap.getInstance().canonical(s));
 	    
 	    // no other attributes changed
 	    return false; 
 	  }
 	  
 	  public void setEmployees(List<Employee> employees) {
-	    this.employees = employees;
-	    
-	    employeesCount = employees.size();
+	    this.employees = new IndexedLinkList<>(EmployeeIdentityMap.getInstance().canonical(employees));
 	  }
 	    
 	  /**
 	   * @effects 
-	   *  return <tt>employeesCount</tt>
+	   *  return the number of employees of this
 	   */
 	  @DOpt(type=DOpt.Type.LinkCountGetter)
 	  public Integer getEmployeesCount() {
-	    return employeesCount;
+	    return links().getLinkCount();
 	  }
 
 	  @DOpt(type=DOpt.Type.LinkCountSetter)
 	  public void setEmployeesCount(int count) {
-	    employeesCount = count;
+	    links().setLinkCount(count);
+	  }
+	  
+	  /**
+	   * @effects return {@link #employees} as an {@link IndexedLinkList}
+	   */
+	  private IndexedLinkList<Employee> links() {
+	    return (IndexedLinkList<Employee>) employees;
 	  }
 	  
 	  public String getName() {
@@ -174,12 +165,9 @@ public class City {
 
 	  private static int nextID(Integer currID) {
 	    if (currID == null) {
-	      idCounter++;
-	      return idCounter;
+	      return IDAllocator.nextID(City.class);
 	    } else {
-	      int num = currID.intValue();
-	      if (num > idCounter)
-	        idCounter = num;
+	      IDAllocator.update(City.class, currID.intValue());
 	      
 	      return currID;
 	    }
@@ -200,9 +188,7 @@ public class City {
 	    
 	    if (minVal != null && maxVal != null) {
 	      //TODO: update this for the correct attribute if there are more than one auto attributes of this class 
-	      int maxIdVal = (Integer) maxVal;
-	      if (maxIdVal > idCounter)  
-	        idCounter = maxIdVal;
+	      IDAllocator.synchronise(City.class, attrib, maxVal);
 	    }
 	  }
 }
@@ -11,13 +11,16 @@ import domainapp.basics.model.meta.DClass;
 import domainapp.basics.model.meta.DOpt;
 import domainapp.basics.util.Tuple;
 import domainapp.basics.model.meta.DAssoc.Associate;
+import klk59.hr.model.util.WorkDates;
 
 @DClass(schema="hr")
-public class DailyTimeKeeping implements Comparable{
+public class DailyTimeKeeping implements Comparable<DailyTimeKeeping>{
+	/** the maximum hours of work of one day (of the records that are created or changed in the application) */
+	public static final int MAX_HOUR_OF_WORK = 24;
+	
 	// attributes
 	@DAttr(name = "id", id = true, auto = true, type = Type.Integer, length = 5, optional = false, mutable = false)
 	private int id;
-	private static int idCounter = 0;
 
 	@DAttr(name = "employee", type = Type.Domain, length = 5, optional = false)
 	@DAssoc(ascName = "employee-has-dailyTimeKeepings", role = "dailyTimeKeeping", 
@@ -31,14 +34,29 @@ public class DailyTimeKeeping implements Comparable{
 	    associate = @Associate(type = TypeOfWork.class, cardMin = 1, cardMax = 1), dependsOn = true)
 	private TypeOfWork typeOfWork;
 	
+	// an ISO date is the string that WorkDates.format shares among the records of its day; 
+	// only a record read from the data source with a date in another format holds its own
 	@DAttr(name="dateOfWork",type=Type.String,length=30,optional=false)
 	private String dateOfWork;
 	
+	// derived from dateOfWork: the epoch day of the work date, WorkDates.NO_DAY if 
+	// a record read from the data source has a date that is not valid (see WorkDates)
+	private int workDay;
+	
+	// no min/max: the stored hours are loaded unchecked, those of the application are
+	// checked against MAX_HOUR_OF_WORK by the constructor and setHourOfWork
 	@DAttr(name="hourOfWork",type=Type.Integer,length=30,optional=false)
 	private int hourOfWork;
 
+	// true if this is a read-only copy of a record in a TimeSheetArchive
+	private final boolean archived;
 	
 	// constructor method
+	/**
+	 * The work date of a new record must not be in the archived period of its employee 
+	 * (see {@link TimeSheetArchive}); this is checked before an id is allocated to the record.
+	 * The date is stored in the ISO format, whatever format it is given in (see {@link WorkDates}).
+	 */
 	@DOpt(type=DOpt.Type.ObjectFormConstructor)
 	@DOpt(type=DOpt.Type.RequiredConstructor)
 	public DailyTimeKeeping(@AttrRef("employee") Employee e, 
@@ -46,32 +64,163 @@ public class DailyTimeKeeping implements Comparable{
 	      @AttrRef("dateOfWork") String d,
 	      @AttrRef("hourOfWork") int h
 	      ) throws ConstraintViolationException {
-	    this(null, e, t, d, h);
+	    this(null, e, t, WorkDates.format(checkNotArchived(e, WorkDates.parse(d))), checkHourOfWork(h));
 	}
 
+	/**
+	 * A record that is read from the data source is taken as it was stored: its date is parsed 
+	 * leniently (see {@link WorkDates#parseLenient(String)}) and kept as it is, and its hours 
+	 * are not checked against {@link #MAX_HOUR_OF_WORK}, so that records entered before these 
+	 * were validated can still be loaded. An ISO date is replaced by the equal string that 
+	 * {@link WorkDates#format(int)} shares, so that the string that was read can be collected.
+	 * The hours are an {@link Integer}, which is the type of the column value that the framework 
+	 * looks the constructor up by.
+	 */
 	@DOpt(type=DOpt.Type.DataSourceConstructor)
-	public DailyTimeKeeping(Integer id, Employee e, TypeOfWork t, String d, int h) throws ConstraintViolationException {
+	public DailyTimeKeeping(Integer id, Employee e, TypeOfWork t, String d, Integer h) throws ConstraintViolationException {
+	    this(id, e, t, d, WorkDates.parseLenient(d), h);
+	}
+
+	
+	private DailyTimeKeeping(Integer id, Employee e, TypeOfWork t, String d, int workDay, int h) {
 	    this.id = nextID(id);
 	    this.employee = e;
 	    this.typeOfWork = t;
-	    this.dateOfWork = d;
+	    this.dateOfWork = shared(d, workDay);
+	    this.workDay = workDay;
+	    this.hourOfWork = h;
+	    this.archived = false;
+	}
+	
+	/**
+	 * Re-creates a read-only copy of a record of a {@link TimeSheetArchive}, without parsing 
+	 * the date or updating the id counter.
+	 */
+	DailyTimeKeeping(int id, Employee e, TypeOfWork t, int workDay, int h) {
+	    this.id = id;
+	    this.employee = e;
+	    this.typeOfWork = t;
+	    this.dateOfWork = WorkDates.format(workDay);
+	    this.workDay = workDay;
 	    this.hourOfWork = h;
+	    this.archived = true;
 	}
 	// setter methods
-	public void setEmployee(Employee e) {
+	public void setEmployee(Employee e) throws ConstraintViolationException {
+	    checkNotArchived();
+	    if (e != employee)
+	      checkNotArchived(e, workDay);
+	    
+	    Employee old = this.employee;
 	    this.employee = e;
+	    
+	    // move this to the time-keeping log of e, so that the hours are counted for e
+	    if (old != e && old != null && old.getTimeKeepingLog().isLive(this)) {
+	      old.removeDailyTimeKeeping(this);
+	      if (e != null)
+	        e.addNewDailyTimeKeeping(this);
+	    }
 	}
 
-	public void setTypeOfWork(TypeOfWork t) {
+	public void setTypeOfWork(TypeOfWork t) throws ConstraintViolationException {
+	    checkNotArchived();
+	    if (t != typeOfWork && isCounted()) {
+	      if (typeOfWork != null)
+	        typeOfWork.addHoursOfWork(-hourOfWork);
+	      if (t != null)
+	        t.addHoursOfWork(hourOfWork);
+	    }
 	    this.typeOfWork = t;
 	}
 	
-	public void setDateOfWork(String d) {
-		this.dateOfWork = d;
+	public void setDateOfWork(String d) throws ConstraintViolationException {
+		checkNotArchived();
+		int day = checkNotArchived(employee, WorkDates.parse(d));
+		this.dateOfWork = WorkDates.format(day);
+		
+		if (day != workDay) {
+			workDay = day;
+			// keep the employee's time-keeping log sorted by date
+			if (employee != null)
+				employee.relocateDailyTimeKeeping(this);
+		}
+	}
+	
+	public void setHourOfWork(int h) throws ConstraintViolationException {
+		checkNotArchived();
+		int hours = checkHourOfWork(h);
+		
+		if (hours != hourOfWork && isCounted()) {
+			int delta = hours - hourOfWork;
+			employee.addHoursOfWork(delta);
+			if (typeOfWork != null)
+				typeOfWork.addHoursOfWork(delta);
+		}
+		this.hourOfWork = hours;
+	}
+	
+	/**
+	 * @effects 
+	 *  if <tt>d</tt> is the ISO string of <tt>day</tt>
+	 *    return the string of <tt>day</tt> that is shared by {@link WorkDates#format(int)}
+	 *  else
+	 *    return d
+	 */
+	private static String shared(String d, int day) {
+		String iso = WorkDates.format(day);
+		return (iso != null && iso.equals(d)) ? iso : d;
+	}
+	
+	/**
+	 * @effects 
+	 *  return true if the hours of this are counted in the hour totals of its employee and type of work,
+	 *  i.e. this is a (non-archived) record of its employee's time-keeping log
+	 */
+	private boolean isCounted() {
+		return employee != null && employee.getTimeKeepingLog().isLive(this);
 	}
 	
-	public void setHourOfWork(int h) {
-		this.hourOfWork = h;
+	/**
+	 * @effects 
+	 *  if this is a read-only copy of an archived record
+	 *    throws ConstraintViolationException
+	 */
+	private void checkNotArchived() throws ConstraintViolationException {
+		if (archived)
+			throw new ConstraintViolationException(
+					ConstraintViolationException.Code.OBJECT_STATE_VIOLATES_RULE, new Object[] {this});
+	}
+	
+	/**
+	 * @effects 
+	 *  if e != null and <tt>day</tt> is in the archived period of e
+	 *    throws ConstraintViolationException
+	 *  else
+	 *    return day
+	 */
+	private static int checkNotArchived(Employee e, int day) throws ConstraintViolationException {
+		if (e != null)
+			e.getTimeKeepingLog().checkNotArchived(day);
+		
+		return day;
+	}
+	
+	/**
+	 * @effects 
+	 *  if 0 <= h <= {@link #MAX_HOUR_OF_WORK}
+	 *    return h
+	 *  else
+	 *    throws ConstraintViolationException
+	 */
+	private static int checkHourOfWork(int h) throws ConstraintViolationException {
+		if (h < 0)
+			throw new ConstraintViolationException(
+					ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {h, 0});
+		if (h > MAX_HOUR_OF_WORK)
+			throw new ConstraintViolationException(
+					ConstraintViolationException.Code.INVALID_VALUE_HIGHER_THAN_MAX, new Object[] {h, MAX_HOUR_OF_WORK});
+		
+		return h;
 	}
 
 	  
@@ -92,10 +241,25 @@ public class DailyTimeKeeping implements Comparable{
 		  return dateOfWork;
 	  }
 	  
+	  /**
+	   * @effects return the epoch day of {@link #dateOfWork}, 
+	   *  {@link WorkDates#NO_DAY} if it is not a valid date
+	   */
+	  public int getWorkDay() {
+		  return workDay;
+	  }
+	  
 	  public int getHourOfWork() {
 		  return hourOfWork;
 	  }
 	  
+	  /**
+	   * @effects return true if this is a read-only copy of a record of a {@link TimeSheetArchive}
+	   */
+	  public boolean isArchived() {
+		  return archived;
+	  }
+	  
 	  
 	  // override toString
 	  @Override
@@ -134,21 +298,9 @@ public class DailyTimeKeeping implements Comparable{
 
 	  private static int nextID(Integer currID) {
 	    if (currID == null) { // generate one
-	      idCounter++;
-	      return idCounter;
+	      return IDAllocator.nextID(DailyTimeKeeping.class);
 	    } else { // update
-	      int num;
-	      num = currID.intValue();
-
-	      // if (num <= idCounter) {
-	      // throw new
-	      // ConstraintViolationException(ConstraintViolationException.Code.INVALID_VALUE,
-	      // "Lỗi giá trị thuộc tính ID: {0}", num + "<=" + idCounter);
-	      // }
-
-	      if (num > idCounter) {
-	        idCounter = num;
-	      }
+	      IDAllocator.update(DailyTimeKeeping.class, currID.intValue());
 	      return currID;
 	    }
 	  }
@@ -166,53 +318,17 @@ public class DailyTimeKeeping implements Comparable{
 	    if (minVal != null && maxVal != null) {
 	      // check the right attribute
 	      if (attrib.name().equals("id")) {
-	        int maxIdVal = (Integer) maxVal;
-	        if (maxIdVal > idCounter)
-	          idCounter = maxIdVal;
+	        IDAllocator.synchronise(DailyTimeKeeping.class, attrib, maxVal);
 	      }
 	      // TODO add support for other attributes here
 	    }
 	  }
 
-	  // private static int nextID(Integer currID) {
-	  // if (currID == null) { // generate one
-	  // idCounter++;
-	  // return idCounter;
-	  // } else { // update
-	  // // int num = currID.intValue();
-	  // //
-	  // // if (num > idCounter)
-	  // // idCounter=num;
-	  // setIdCounter(currID);
-	  //
-	  // return currID;
-	  // }
-	  // }
-	  //
-	  // /**
-	  // * This method is required for loading this class metadata from storage
-	  // *
-	  // * @requires
-	  // * id != null
-	  // * @effects
-	  // * update <tt>idCounter</tt> from the value of <tt>id</tt>
-	  // */
-	  // public static void setIdCounter(Integer id) {
-	  // if (id != null) {
-	  // int num = id.intValue();
-	  //
-	  // if (num > idCounter)
-	  // idCounter=num;
-	  // }
-	  // }
-
 	  // implements Comparable interface
-	  public int compareTo(Object o) {
-	    if (o == null || (!(o instanceof DailyTimeKeeping)))
+	  public int compareTo(DailyTimeKeeping e) {
+	    if (e == null)
 	      return -1;
 
-	    DailyTimeKeeping e = (DailyTimeKeeping) o;
-
 	    return this.employee.getId().compareTo(e.employee.getId());
 	  }
 }
@@ -0,0 +1,159 @@
+package klk59.hr.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.core.dodm.osm.OSM;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic;
+import domainapp.basics.core.dodm.qrm.QRM;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.Oid;
+import domainapp.basics.model.meta.DAssoc;
+import domainapp.basics.model.meta.DAttr;
+import domainapp.basics.model.query.Expression;
+import domainapp.basics.model.query.Expression.Op;
+import domainapp.basics.model.query.ObjectExpression;
+import domainapp.basics.util.Tuple2;
+import domainapp.basics.util.collection.MapList;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * The {@link TimeKeepingLog.Loader} of the employees that are read from the data source: reads the
+ * time-keeping records of an employee through the object manager of the {@link QRM}: the ids of the
+ * records are read with a query on the <tt>employee</tt> column, and the records that are not in the object
+ * pool are then read by their ids.
+ *
+ * <p>The ids are read through the object store rather than by
+ * {@link DOMBasic#retrieveAssociatedObjects(Object, Class, Class, String)}, which also looks up the
+ * association on the side of {@link Employee} under the name that {@link DailyTimeKeeping} declares for it,
+ * and the two classes declare it under different names.
+ *
+ * <p>A date range is read with a query on <tt>dateOfWork</tt>, which compares the stored strings and so
+ * only finds the records whose dates are stored in the ISO format. New records are stored in that format
+ * (see {@link DailyTimeKeeping}), but older ones may not be: a range is read with a query only if the data
+ * source has no records whose dates are stored in another format, which is checked once (with one
+ * <tt>COUNT</tt> query) per object manager. Otherwise all the records of the employee are read instead.
+ *
+ * <p>The records are read by one thread at a time, so that the logs of different employees can be
+ * loaded in parallel (e.g. by a fork-join task) without sharing the connection of the object manager.
+ *
+ * @author agent
+ */
+class DataSourceTimeKeepingLoader implements TimeKeepingLog.Loader {
+  /** the pattern of the ISO dates, in SQL <tt>LIKE</tt> syntax */
+  private static final String ISO_DATE_PATTERN = "'____-__-__'";
+
+  /**
+   * the name of the association of the records with their employee, as it is declared by
+   * {@link DailyTimeKeeping} (which differs from the name that {@link Employee} declares)
+   */
+  private static final String ASSOCIATION = "employee-has-dailyTimeKeepings";
+
+  private static final DataSourceTimeKeepingLoader instance = new DataSourceTimeKeepingLoader();
+
+  /** the object manager whose dates have been checked, and whether they are all ISO dates */
+  private DOMBasic checkedDom;
+  private boolean isoDates;
+
+  private DataSourceTimeKeepingLoader() {
+    //
+  }
+
+  static DataSourceTimeKeepingLoader getInstance() {
+    return instance;
+  }
+
+  @Override
+  public synchronized Collection<DailyTimeKeeping> load(Employee owner, Integer fromDay, Integer toDay)
+      throws NotPossibleException {
+    QRM qrm;
+    try {
+      qrm = QRM.getInstance();
+    } catch (NotPossibleException e) {
+      // no data source: there is nothing to read
+      return null;
+    }
+
+    DOMBasic dom = qrm.getDom();
+    Tuple2<DAttr, DAssoc> assoc = dom.getDsm().getAssociation(DailyTimeKeeping.class, ASSOCIATION, Employee.class);
+    Map<Oid, DailyTimeKeeping> records;
+    try {
+      Collection<Oid> ids;
+      if (fromDay == null || !hasIsoDates(dom)) {
+        ids = dom.getOsm().readLinkedObjectIds(DailyTimeKeeping.class, assoc, owner, new Expression[0]);
+      } else {
+        DAttr dateAttrib = qrm.getDsm().getDomainConstraint(DailyTimeKeeping.class, "dateOfWork");
+        ids = dom.getOsm().readLinkedObjectIds(DailyTimeKeeping.class, assoc, owner,
+            new ObjectExpression(DailyTimeKeeping.class, dateAttrib, Op.GTEQ, WorkDates.format(fromDay)),
+            new ObjectExpression(DailyTimeKeeping.class, dateAttrib, Op.LTEQ, WorkDates.format(toDay)));
+      }
+      records = (ids != null && !ids.isEmpty()) ? dom.retrieveObjects(DailyTimeKeeping.class, ids, null) : null;
+    } catch (NotFoundException | DataSourceException e) {
+      throw new NotPossibleException(NotPossibleException.Code.FAIL_TO_PERFORM_DB, e,
+          new Object[] {"load dailyTimeKeeping of " + owner.getId()});
+    }
+
+    return (records != null) ? records.values() : null;
+  }
+
+  @Override
+  public synchronized boolean canLoadRange() {
+    try {
+      return hasIsoDates(QRM.getInstance().getDom());
+    } catch (NotPossibleException e) {
+      // no data source: there is nothing to read
+      return true;
+    }
+  }
+
+  /**
+   * @effects
+   *  forget the result of the check of the dates, so that they are checked again when they are next used
+   */
+  synchronized void recheckDates() {
+    checkedDom = null;
+  }
+
+  /**
+   * @effects <pre>
+   *  if the dates of dom have not been checked
+   *    check them with the query:
+   *      SELECT COUNT(*) FROM DailyTimeKeeping WHERE dateOfWork NOT LIKE '____-__-__'
+   *  return true if all the dates of the records in the data source of <tt>dom</tt> are ISO dates</pre>
+   */
+  private boolean hasIsoDates(DOMBasic dom) throws NotPossibleException {
+    if (dom != checkedDom) {
+      isoDates = countNonIsoDates(dom) == 0;
+      checkedDom = dom;
+    }
+    return isoDates;
+  }
+
+  /**
+   * @effects
+   *  return the number of records in the data source of <tt>dom</tt> whose dates are not ISO dates,
+   *  or 1 if the data source is not relational (and so can not be checked)
+   */
+  private static int countNonIsoDates(DOMBasic dom) throws NotPossibleException {
+    OSM osm = dom.getOsm();
+    if (!(osm instanceof RelationalOSMBasic))
+      return 1;
+
+    RelationalOSMBasic rosm = (RelationalOSMBasic) osm;
+    try {
+      String sql = "SELECT COUNT(*) AS N FROM " + dom.getDsm().getDomainClassName(DailyTimeKeeping.class)
+          + " WHERE " + rosm.toDBColumnName(DailyTimeKeeping.class, "dateOfWork", false)
+          + " NOT LIKE " + ISO_DATE_PATTERN;
+      MapList<?, ?> rows = rosm.queryAsMap(sql);
+      Object n = (rows != null) ? rows.get("n") : null;
+      return (n != null && !((List<?>) n).isEmpty()) ? ((Number) ((List<?>) n).get(0)).intValue() : 0;
+    } catch (NotFoundException | DataSourceException e) {
+      throw new NotPossibleException(NotPossibleException.Code.FAIL_TO_PERFORM_DB, e,
+          new Object[] {"check the dates of dailyTimeKeeping"});
+    }
+  }
+}
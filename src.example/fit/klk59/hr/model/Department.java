@@ -1,26 +1,39 @@
 package klk59.hr.model;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.core.dodm.osm.OSM;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic;
+import domainapp.basics.core.dodm.qrm.QRM;
 import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
 import domainapp.basics.model.meta.AttrRef;
 import domainapp.basics.model.meta.DAssoc;
 import domainapp.basics.model.meta.DAttr;
 import domainapp.basics.model.meta.DClass;
 import domainapp.basics.model.meta.Select;
 import domainapp.basics.util.Tuple;
+import domainapp.basics.util.collection.MapList;
 import domainapp.basics.model.meta.DAssoc.AssocEndType;
 import domainapp.basics.model.meta.DAssoc.AssocType;
 import domainapp.basics.model.meta.DAssoc.Associate;
 import domainapp.basics.model.meta.DAttr.Type;
 import domainapp.basics.model.meta.DOpt;
+import klk59.hr.model.util.IndexedLinkList;
 
 @DClass(schema="hr")
 public class Department {
 	@DAttr(name="id",id=true,auto=true,length=3,mutable=false,optional=false,type=Type.Integer)
 	private int id;
-	private static int idCounter;
 	
 	@DAttr(name="name",type=Type.String,length=20,optional=false)
 	private String name;
@@ -32,7 +45,36 @@ public class Department {
 		      associate=@Associate(type=Employee.class,cardMin=1,cardMax=25))  
 	private List<Employee> employees;
 	
-	private int employeesCount;
+	// the link count of employees is kept by the list (see IndexedLinkList.getLinkCount())
+	
+	/** the total hours of work of the employees in {@link #employees} (see {@link Employee#getTotalHoursOfWork()}) */
+	@DAttr(name="totalHoursOfWork",type=Type.Integer,length=10,auto=true,mutable=false,optional=true,
+	    serialisable=false)
+	private int totalHoursOfWork;
+	
+	/** 
+	 * the ids ({@link Employee#getIdKey()}) of the employees in {@link #employees}, by which the employees 
+	 * whose hours or position change are looked up, as they may be other objects than those in the list
+	 */
+	private final Set<Long> employeeIds = new HashSet<>();
+	
+	/** 
+	 * the number of employees of this by position (<tt>null</tt> for the employees without a position); 
+	 * like {@link #totalHoursOfWork} and {@link #employeeIds}, it is read and changed with the lock of this 
+	 */
+	private final Map<JobQualification, Integer> positionCounts = new HashMap<>();
+	
+	/** 
+	 * true if {@link #positionCounts} have been read from the data source (see {@link #countPositions(Collection)}), 
+	 * so that they already count the employees whose links are loaded afterwards 
+	 */
+	private boolean positionsCounted;
+	
+	/** 
+	 * true if some links of this are not loaded and {@link #positionCounts} have not been read from the 
+	 * data source yet (see {@link #setEmployeesCount(int)}) 
+	 */
+	private boolean positionsUnread;
 	
 	@DOpt(type=DOpt.Type.ObjectFormConstructor)
 	@DOpt(type=DOpt.Type.RequiredConstructor)
@@ -46,40 +88,47 @@ public class Department {
 	    this.id = nextID(id);
 	    this.name = name;
 	    
-	    employees = new ArrayList<>();
-	    employeesCount = 0;
+	    employees = new IndexedLinkList<>();
 	  }
 
 	  public void setName(String name) {
 	    this.name = name;
 	  }
 
+	  /**
+	   * @effects 
+	   *  if <tt>e</tt> is an employee of this (by id)
+	   *    add <tt>hours</tt> (which may be negative) to {@link #totalHoursOfWork}
+	   */
+	  synchronized void addHoursOfWork(Employee e, int hours) {
+	    if (employeeIds.contains(e.getIdKey()))
+	      totalHoursOfWork += hours;
+	  }
+
 	  @DOpt(type=DOpt.Type.LinkAdder)
 	  //only need to do this for reflexive association: @MemberRef(name="employees")  
-	  public boolean addEmployee(Employee e) {
-	    if (!this.employees.contains(e)) {
-	      employees.add(e);
-	    }
+	  public synchronized boolean addEmployee(Employee e) {
+	    if (links().addLoaded(EmployeeIdentityMap.getInstance().canonical(e)))
+	      countLoadedEmployee(e);
 	    
 	    // no other attributes changed
 	    return false; 
 	  }
 
 	  @DOpt(type=DOpt.Type.LinkAdderNew)
-	  public boolean addNewEmployee(Employee e) {
-	    employees.add(e);
-	    employeesCount++;
+	  public synchronized boolean addNewEmployee(Employee e) {
+	    if (employees.add(EmployeeIdentityMap.getInstance().canonical(e)))
+	      countEmployee(e, 1);
 	    
 	    // no other attributes changed
 	    return false; 
 	  }
 	  
 	  @DOpt(type=DOpt.Type.LinkAdder)
-	  public boolean addEmployee(List<Employee> employees) {
+	  public synchronized boolean addEmployee(List<Employee> employees) {
 	    for (Employee e : employees) {
-	      if (!this.employees.contains(e)) {
-	        this.employees.add(e);
-	      }
+	      if (links().addLoaded(EmployeeIdentityMap.getInstance().canonical(e)))
+	        countLoadedEmployee(e);
 	    }
 	    
 	    // no other attributes changed
@@ -87,9 +136,11 @@ public class Department {
 	  }
 
 	  @DOpt(type=DOpt.Type.LinkAdderNew)
-	  public boolean addNewEmployee(List<Employee> employees) {
-	    this.employees.addAll(employees);
-	    employeesCount += employees.size();
+	  public synchronized boolean addNewEmployee(List<Employee> employees) {
+	    for (Employee e : employees) {
+	      if (this.employees.add(EmployeeIdentityMap.getInstance().canonical(e)))
+	        countEmployee(e, 1);
+	    }
 
 	    // no other attributes changed
 	    return false; 
@@ -97,35 +148,253 @@ public class Department {
 
 	  @DOpt(type=DOpt.Type.LinkRemover)
 	  //only need to do this for reflexive association: @MemberRef(name="employees")
-	  public boolean removeEmployee(Employee e) {
-	    boolean removed = employees.remove(e);
-	    
-	    if (removed) {
-	    	employeesCount--;
-	    }
+	  public synchronized boolean removeEmployee(Employee e) {
+	    if (employees.remove(EmployeeIdentityMap.getInstance().canonical(e)))
+	      countEmployee(e, -1);
 	    
 	    // no other attributes changed
 	    return false; 
 	  }
 	  
-	  public void setEmployees(List<Employee> employees) {
-	    this.employees = employees;
+	  public synchronized void setEmployees(List<Employee> employees) {
+	    this.employees = new IndexedLinkList<>(EmployeeIdentityMap.getInstance().canonical(employees));
 	    
-	    employeesCount = employees.size();
+	    positionCounts.clear();
+	    positionsCounted = false;
+	    positionsUnread = false;
+	    employeeIds.clear();
+	    totalHoursOfWork = 0;
+	    for (Employee e : this.employees)
+	      countEmployee(e, 1);
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  add <tt>e</tt>, which is moved to this from another department (see {@link Employee#setDepartment(Department)}), 
+	   *  to the employees of this and to its counters
+	   */
+	  void moveIn(Employee e) {
+	    // the data source does not count e in this yet
+	    countPositions(Collections.singleton(this));
+	    addNewEmployee(e);
 	  }
+	  
+	  /**
+	   * @effects 
+	   *  remove <tt>e</tt>, which is moved from this to another department (see {@link Employee#setDepartment(Department)}), 
+	   *  from the employees of this and from its counters, whether or not its link is loaded
+	   */
+	  void moveOut(Employee e) {
+	    // the data source still counts e in this
+	    countPositions(Collections.singleton(this));
+	    synchronized (this) {
+	      if (employees.remove(EmployeeIdentityMap.getInstance().canonical(e))) {
+	        countEmployee(e, -1);
+	      } else if (links().getLinkCount() > employees.size()) {
+	        // one of the links that are not loaded, whose position is counted only if the counts were read
+	        links().setLinkCount(links().getLinkCount() - 1);
+	        if (positionsCounted)
+	          countPosition(e.getPosition(), -1);
+	      }
+	    }
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  if <tt>e</tt> is an employee of this (by id)
+	   *    move it from the count of position <tt>from</tt> to that of position <tt>to</tt>
+	   */
+	  synchronized void changePosition(Employee e, JobQualification from, JobQualification to) {
+	    if (from != to && employeeIds.contains(e.getIdKey())) {
+	      countPosition(from, -1);
+	      countPosition(to, 1);
+	    }
+	  }
+	  
+	  /**
+	   * @requires the lock of this is held
+	   * @effects 
+	   *  add (<tt>sign = 1</tt>) or remove (<tt>sign = -1</tt>) <tt>e</tt> to/from the counts of the positions 
+	   *  and the hours of work of this
+	   */
+	  private void countEmployee(Employee e, int sign) {
+	    countPosition(e.getPosition(), sign);
+	    if (sign > 0)
+	      employeeIds.add(e.getIdKey());
+	    else
+	      employeeIds.remove(e.getIdKey());
+	    totalHoursOfWork += sign * e.getTotalHoursOfWork();
+	  }
+	  
+	  /**
+	   * @requires the lock of this is held
+	   * @effects 
+	   *  add <tt>e</tt>, whose link is read from the data source, to the hours of work of this and, 
+	   *  unless they have been read from the data source with it, to the counts of the positions
+	   */
+	  private void countLoadedEmployee(Employee e) {
+	    if (!positionsCounted)
+	      countPosition(e.getPosition(), 1);
+	    employeeIds.add(e.getIdKey());
+	    totalHoursOfWork += e.getTotalHoursOfWork();
 	    
+	    // all the links are loaded, and so counted
+	    if (positionsUnread && employees.size() >= links().getLinkCount())
+	      positionsUnread = false;
+	  }
+	  
 	  /**
+	   * @requires the lock of this is held
 	   * @effects 
-	   *  return <tt>employeesCount</tt>
+	   *  add <tt>delta</tt> to the number of employees of this whose position is <tt>position</tt>
+	   */
+	  private void countPosition(JobQualification position, int delta) {
+	    positionCounts.merge(position, delta, (a, b) -> (a + b != 0) ? a + b : null);
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return the number of employees of this by position (<tt>null</tt> for those without a position), 
+	   *  reading them from the data source first if some links of this are not loaded 
+	   *  (see {@link #countPositions(Collection)})
+	   */
+	  public Map<JobQualification, Integer> getPositionCounts() {
+	    countPositions(Collections.singleton(this));
+	    synchronized (this) {
+	      return Collections.unmodifiableMap(new HashMap<>(positionCounts));
+	    }
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return the total basic salary of the employees of this (see {@link JobQualification#getSalaryBasic()}), 
+	   *  reading the counts of their positions from the data source first if some links of this are not loaded
+	   */
+	  public long getSalaryCost() {
+	    countPositions(Collections.singleton(this));
+	    return salaryCost();
+	  }
+	  
+	  private synchronized long salaryCost() {
+	    long cost = 0;
+	    for (Map.Entry<JobQualification, Integer> c : positionCounts.entrySet()) {
+	      if (c.getKey() != null)
+	        cost += (long) c.getKey().getSalaryBasic() * c.getValue();
+	    }
+	    return cost;
+	  }
+	    
+	  /**
+	   * @effects 
+	   *  return the number of employees of this
 	   */
 	  @DOpt(type=DOpt.Type.LinkCountGetter)
-	  public Integer getEmployeesCount() {
-	    return employeesCount;
+	  public synchronized Integer getEmployeesCount() {
+	    return links().getLinkCount();
 	  }
 
+	  /**
+	   * @effects return the total hours of work of the employees of this 
+	   *  (the sum of their {@link Employee#getTotalHoursOfWork()})
+	   */
+	  public synchronized int getTotalHoursOfWork() {
+	    return totalHoursOfWork;
+	  }
+
+	  /**
+	   * @effects 
+	   *  set the number of employees of this to <tt>count</tt>, the number of links in the data source;
+	   *  if some of them are not loaded, the counts of the positions of all of them are read from the data 
+	   *  source when they are first used (see {@link #countPositions(Collection)}), so that they add up to 
+	   *  {@link #getEmployeesCount()}
+	   */
 	  @DOpt(type=DOpt.Type.LinkCountSetter)
-	  public void setEmployeesCount(int count) {
-		  employeesCount = count;
+	  public synchronized void setEmployeesCount(int count) {
+	    links().setLinkCount(count);
+	    
+	    if (count > employees.size() && !positionsCounted)
+	      positionsUnread = true;
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  read the counts of the positions of those of <tt>departments</tt> whose links are not all loaded and whose 
+	   *  counts have not been read, with one query for all of them (see {@link #countPositionsInDataSource()});
+	   *  if they can not be read, leave the counts of the loaded links 
+	   */
+	  public static void countPositions(Collection<Department> departments) {
+	    Map<Integer, Department> unread = new HashMap<>();
+	    for (Department d : departments) {
+	      synchronized (d) {
+	        if (d.positionsUnread)
+	          unread.put(d.getId(), d);
+	      }
+	    }
+	    if (unread.isEmpty())
+	      return;
+	    
+	    Map<Integer, Map<JobQualification, Integer>> counts = countPositionsInDataSource();
+	    for (Department d : unread.values()) {
+	      synchronized (d) {
+	        if (!d.positionsUnread)
+	          continue;
+	        
+	        d.positionsUnread = false;
+	        if (counts != null) {
+	          Map<JobQualification, Integer> c = counts.get(d.getId());
+	          d.positionCounts.clear();
+	          if (c != null)
+	            d.positionCounts.putAll(c);
+	          d.positionsCounted = true;
+	        }
+	      }
+	    }
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  read the number of employees of each department by position in the data source with the query:
+	   *    SELECT department, position, COUNT(*) FROM Employee GROUP BY department, position
+	   *  and return it (department id -&gt; position -&gt; count, <tt>null</tt> for the employees without a position), 
+	   *  or <tt>null</tt> if it can not be read (e.g. the data source is not relational)</pre>
+	   */
+	  private static Map<Integer, Map<JobQualification, Integer>> countPositionsInDataSource() {
+	    try {
+	      DOMBasic dom = QRM.getInstance().getDom();
+	      OSM osm = (dom != null) ? dom.getOsm() : null;
+	      if (!(osm instanceof RelationalOSMBasic))
+	        return null;
+	      
+	      RelationalOSMBasic rosm = (RelationalOSMBasic) osm;
+	      String dep = rosm.toDBColumnName(Employee.class, "department", false);
+	      String col = rosm.toDBColumnName(Employee.class, "position", false);
+	      String sql = "SELECT " + dep + " AS DEP, " + col + " AS POS, COUNT(*) AS N FROM " 
+	          + dom.getDsm().getDomainClassName(Employee.class)
+	          + " WHERE " + dep + " IS NOT NULL GROUP BY " + dep + ", " + col;
+	      MapList<?, ?> rows = rosm.queryAsMap(sql);
+	      Map<Integer, Map<JobQualification, Integer>> counts = new HashMap<>();
+	      if (rows != null && rows.get("n") != null) {
+	        List<?> departments = (List<?>) rows.get("dep"), positions = (List<?>) rows.get("pos"), 
+	            n = (List<?>) rows.get("n");
+	        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+	        for (int i = 0; i < n.size(); i++) {
+	          Object pos = (positions != null) ? positions.get(i) : null;
+	          JobQualification position = (pos != null) ? cache.get(JobQualification.class, ((Number) pos).intValue(), dom) : null;
+	          counts.computeIfAbsent(((Number) departments.get(i)).intValue(), k -> new HashMap<>())
+	              .merge(position, ((Number) n.get(i)).intValue(), Integer::sum);
+	        }
+	      }
+	      return counts;
+	    } catch (NotPossibleException | NotFoundException | DataSourceException e) {
+	      return null;
+	    }
+	  }
+	  
+	  /**
+	   * @effects return {@link #employees} as an {@link IndexedLinkList}
+	   */
+	  private IndexedLinkList<Employee> links() {
+	    return (IndexedLinkList<Employee>) employees;
 	  }
 	  
 	  public String getName() {
@@ -170,12 +439,9 @@ public class Department {
 
 	  private static int nextID(Integer currID) {
 	    if (currID == null) {
-	      idCounter++;
-	      return idCounter;
+	      return IDAllocator.nextID(Department.class);
 	    } else {
-	      int num = currID.intValue();
-	      if (num > idCounter)
-	        idCounter = num;
+	      IDAllocator.update(Department.class, currID.intValue());
 	      
 	      return currID;
 	    }
@@ -196,9 +462,7 @@ public class Department {
 	    
 	    if (minVal != null && maxVal != null) {
 	      if (attrib.name().equals("id")) {
-	        int maxIdVal = (Integer) maxVal;
-	        if (maxIdVal > idCounter)  
-	          idCounter = maxIdVal;
+	        IDAllocator.synchronise(Department.class, attrib, maxVal);
 	      }
 	    }
 	  }
@@ -2,7 +2,14 @@ package klk59.hr.model;
 
 import java.util.List;
 
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.core.dodm.osm.OSM;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic;
+import domainapp.basics.core.dodm.qrm.QRM;
 import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
 import domainapp.basics.model.meta.AttrRef;
 import domainapp.basics.model.meta.DAssoc;
 import domainapp.basics.model.meta.DAssoc.AssocEndType;
@@ -14,6 +21,9 @@ import domainapp.basics.model.meta.DClass;
 import domainapp.basics.model.meta.DOpt;
 import domainapp.basics.model.meta.Select;
 import domainapp.basics.util.Tuple;
+import domainapp.basics.util.collection.MapList;
+import klk59.hr.model.util.EmployeeIds;
+import klk59.hr.model.util.WorkDates;
 import klk59.hr.model.reports.EmployeesByNameReport;
 
 
@@ -34,11 +44,11 @@ public class Employee {
 	public static final String A_rptEmployeesByName = "rptEmployeesByName";
 	
 	//attributes of a employee
-	@DAttr(name=A_id, id=true, type=Type.String, auto=true, length=6, mutable=false, optional=false )
+	@DAttr(name=A_id, id=true, type=Type.String, auto=true, length=EmployeeIds.MAX_LENGTH, mutable=false, optional=false )
 	private String id;
 	
-	//static variable to keep track of employee id
-	private static int idCounter = 0;
+	/** the number of {@link #id} (see {@link EmployeeIds}) */
+	private long idKey;
 	
 	@DAttr(name=A_name, type=Type.String, length = 30, optional = false)
 	private String name;
@@ -76,6 +86,7 @@ public class Employee {
 			associate=@Associate(type=JobQualification.class, cardMin=1, cardMax=1))
 	private JobQualification position;
 	
+	// implemented by a TimeKeepingLog, which indexes the records by work date
 	@DAttr(name="dailyTimeKeeping",type=Type.Collection,optional = false,
 			serialisable=false,filter=@Select(clazz=DailyTimeKeeping.class))
 	@DAssoc(ascName="employee-has-dailyTimeKeeping",role="employee",
@@ -85,6 +96,11 @@ public class Employee {
 	
 	private int dailyTimeKeepingCount;
 	
+	// maintained by the time-keeping log (including archived records) and by DailyTimeKeeping's setters
+	@DAttr(name="totalHoursOfWork",type=Type.Integer,length=10,auto=true,mutable=false,optional=true,
+	    serialisable=false)
+	private int totalHoursOfWork;
+	
 	@DAttr(name=A_rptEmployeesByName,type=Type.Domain, serialisable=false, 
 		      // IMPORTANT: set virtual=true to exclude this attribute from the object state
 		      // (avoiding the view having to load this attribute's value from data source)
@@ -135,11 +151,17 @@ public class Employee {
 	    this.city = city; 
 	    this.department = department; 
 	    this.position = position; 
+	    
+	    // the records of an employee that is read from the data source are read when they are first used
+	    dailyTimeKeeping = (id == null) ? new TimeKeepingLog(this) 
+	        : new TimeKeepingLog(this, DataSourceTimeKeepingLoader.getInstance());
+	    dailyTimeKeepingCount = 0;
 	}
 	
 	//setter methods
 	public void setName(String name) {
 	    this.name = name;
+	    EmployeeNameIndex.getInstance().update(this);
 	}
 	
 	public void setDob(String dob) {
@@ -166,27 +188,40 @@ public class Employee {
 	    this.city = city;
 	}
 	
+	/**
+	 * @effects 
+	 *  set department = <tt>department</tt>; if it changes, move this from the employees (and the counters 
+	 *  of the hours and the positions) of the previous department to those of <tt>department</tt>
+	 */
 	public void setDepartment(Department department) {
+	    Department previous = this.department;
 	    this.department = department;
+	    if (previous != department) {
+	      if (previous != null)
+	        previous.moveOut(this);
+	      if (department != null)
+	        department.moveIn(this);
+	    }
 	}
 	
 	public void setPosition(JobQualification position) {
+	    if (position != this.position && department != null)
+	      department.changePosition(this, this.position, position);
 	    this.position = position;
 	}
 	
 	@DOpt(type=DOpt.Type.LinkAdder)
 	  //only need to do this for reflexive association: @MemberRef(name="dailyTimeKeeping")
 	public boolean addDailyTimeKeeping(DailyTimeKeeping d) {
-	    if (!dailyTimeKeeping.contains(d))
-	      dailyTimeKeeping.add(d);
+	    dailyTimeKeeping.add(d);
 	    return false;
 	}
 	
 	@DOpt(type=DOpt.Type.LinkAdderNew)
 	public boolean addNewDailyTimeKeeping(DailyTimeKeeping d) {
-	    dailyTimeKeeping.add(d);
-	    
-	    dailyTimeKeepingCount++;
+	    if (dailyTimeKeeping.add(d)) {
+	      dailyTimeKeepingCount++;
+	    }
  	    
 	    // no other attributes changed (average mark is not serialisable!!!)
 	    return false; 
@@ -195,20 +230,16 @@ public class Employee {
 	@DOpt(type=DOpt.Type.LinkAdder)
 	  //@MemberRef(name="dailyTimeKeeping")
 	public boolean addDailyTimeKeeping(List<DailyTimeKeeping> dailyTK) {
-	    boolean added = false;
-	    for (DailyTimeKeeping d : dailyTK) {
-	      if (!dailyTimeKeeping.contains(d)) {
-	        if (!added) added = true;
-	        dailyTimeKeeping.add(d);
-	      }
-	    }
+	    dailyTimeKeeping.addAll(dailyTK);
 	    return false;
 	}
 	
 	@DOpt(type=DOpt.Type.LinkAdderNew)
 	public boolean addNewDailyTimeKeeping(List<DailyTimeKeeping> dailyTK) {
-	    dailyTimeKeeping.addAll(dailyTK);
-	    dailyTimeKeepingCount+=dailyTK.size();
+	    for (DailyTimeKeeping d : dailyTK) {
+	      if (dailyTimeKeeping.add(d))
+	        dailyTimeKeepingCount++;
+	    }
 
 	    // no other attributes changed (average mark is not serialisable!!!)
 	    return false; 
@@ -228,11 +259,55 @@ public class Employee {
 	
 	
 	public void setDailyTimeKeeping(List<DailyTimeKeeping> dltk) {
-	    this.dailyTimeKeeping = dltk;
-	    dailyTimeKeepingCount = dltk.size();
+	    TimeKeepingLog old = getTimeKeepingLog();
+	    TimeSheetArchive archive = old.getArchive();
+	    old.release();
+	    
+	    TimeKeepingLog log = new TimeKeepingLog(this, dltk);
+	    if (archive != null)
+	      log.attachArchive(archive);
+	    
+	    this.dailyTimeKeeping = log;
+	    dailyTimeKeepingCount = log.size();
+	}
+	
+	/**
+	 * @effects
+	 *  re-file <tt>d</tt> in {@link #dailyTimeKeeping} after its work date has been changed
+	 */
+	void relocateDailyTimeKeeping(DailyTimeKeeping d) {
+	    getTimeKeepingLog().relocate(d);
+	}
+	
+	/**
+	 * @effects
+	 *  add <tt>hours</tt> (which may be negative) to {@link #totalHoursOfWork} and to that of {@link #department}
+	 */
+	void addHoursOfWork(int hours) {
+	    Department department = this.department;
+	    if (department != null) {
+	      // under the lock of the department, which reads the hours of this when it adds or removes this
+	      synchronized (department) {
+	        addOwnHoursOfWork(hours);
+	        department.addHoursOfWork(this, hours);
+	      }
+	    } else {
+	      addOwnHoursOfWork(hours);
+	    }
+	}
+	
+	private synchronized void addOwnHoursOfWork(int hours) {
+	    totalHoursOfWork += hours;
 	}
 	
 	// getter methods
+	  /**
+	   * @effects return the key of {@link #id}, i.e. its number
+	   */
+	  public long getIdKey() {
+	    return idKey;
+	  }
+	  
 	  public String getId() {
 	    return id;
 	  }
@@ -277,6 +352,39 @@ public class Employee {
 		    return dailyTimeKeeping;
 	  }
 	  
+	  /**
+	   * @effects return {@link #dailyTimeKeeping} as a {@link TimeKeepingLog}
+	   */
+	  public TimeKeepingLog getTimeKeepingLog() {
+		    return (TimeKeepingLog) dailyTimeKeeping;
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return a read-only view of the time-keeping records of the work date <tt>date</tt>;
+	   *  throws ConstraintViolationException if <tt>date</tt> is not a valid date
+	   */
+	  public List<DailyTimeKeeping> getDailyTimeKeepingOn(String date) throws ConstraintViolationException {
+		    return getTimeKeepingLog().getDay(WorkDates.parse(date));
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return the total hours of work from <tt>fromDate</tt> to <tt>toDate</tt> (inclusive);
+	   *  throws ConstraintViolationException if a date is not valid
+	   */
+	  public int getHoursOfWork(String fromDate, String toDate) throws ConstraintViolationException {
+		    return getTimeKeepingLog().getHoursOfWork(WorkDates.parse(fromDate), WorkDates.parse(toDate));
+	  }
+	  
+	  /**
+	   * @effects return the total hours of work of the time-keeping records of this that have been read 
+	   *  or added, which are all the records of this if {@link TimeKeepingLog#isLoaded()}
+	   */
+	  public synchronized int getTotalHoursOfWork() {
+		    return totalHoursOfWork;
+	  }
+	  
 	  @DOpt(type=DOpt.Type.LinkCountGetter)
 	  public Integer getDailyTimeKeepingCount() {
 	    return dailyTimeKeepingCount;
@@ -300,27 +408,21 @@ public class Employee {
 	  public int hashCode() {
 	    final int prime = 31;
 	    int result = 1;
-	    result = prime * result + ((id == null) ? 0 : id.hashCode());
+	    result = prime * result + Long.hashCode(idKey);
 	    return result;
 	  }
 
 	  private String nextID(String id) throws ConstraintViolationException {
 		    if (id == null) { // generate a new id
-		      idCounter++;
-		      return "TSDV" + idCounter;
+		      int num = IDAllocator.nextID(Employee.class);
+		      idKey = num;
+		      return EmployeeIds.format(num);
 		    } else {
 		      // update id
-		      int num;
-		      try {
-		        num = Integer.parseInt(id.substring(1));
-		      } catch (RuntimeException e) {
-		        throw new ConstraintViolationException(
-		            ConstraintViolationException.Code.INVALID_VALUE, e, new Object[] { id });
-		      }
+		      int num = EmployeeIds.parse(id);
+		      idKey = num;
 		      
-		      if (num > idCounter) {
-		        idCounter = num;
-		      }
+		      IDAllocator.update(Employee.class, num);
 		      
 		      return id;
 		    }
@@ -343,16 +445,35 @@ public class Employee {
 
 	      String maxId = (String) maxVal;
 	      
-	      try {
-	        int maxIdNum = Integer.parseInt(maxId.substring(1));
-	        
-	        if (maxIdNum > idCounter) // extra check
-	          idCounter = maxIdNum;
-	        
-	      } catch (RuntimeException e) {
-	        throw new ConstraintViolationException(
-	            ConstraintViolationException.Code.INVALID_VALUE, e, new Object[] {maxId});
-	      }
+	      // maxVal is the greatest id as a string (e.g. "TSDV9" > "TSDV10"), so read the greatest number
+	      int max = maxIdNumber();
+	      IDAllocator.update(Employee.class, (max > 0) ? max : EmployeeIds.parse(maxId));
+	    }
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  read the greatest number of the ids of the employees in the data source with the query:
+	   *    SELECT id FROM Employee ORDER BY LENGTH(id) DESC, id DESC FETCH FIRST ROW ONLY
+	   *  (the ids of the same length are ordered by their numbers) and return it, or <tt>-1</tt> if it 
+	   *  can not be read (e.g. the data source is not relational)</pre>
+	   */
+	  private static int maxIdNumber() {
+	    try {
+	      DOMBasic dom = QRM.getInstance().getDom();
+	      OSM osm = (dom != null) ? dom.getOsm() : null;
+	      if (!(osm instanceof RelationalOSMBasic))
+	        return -1;
+	      
+	      RelationalOSMBasic rosm = (RelationalOSMBasic) osm;
+	      String col = rosm.toDBColumnName(Employee.class, A_id, false);
+	      String sql = "SELECT " + col + " AS MAX_ID FROM " + dom.getDsm().getDomainClassName(Employee.class)
+	          + " ORDER BY LENGTH(" + col + ") DESC, " + col + " DESC FETCH FIRST ROW ONLY";
+	      MapList<?, ?> rows = rosm.queryAsMap(sql);
+	      Object ids = (rows != null) ? rows.get("max_id") : null;
+	      return (ids != null && !((List<?>) ids).isEmpty()) ? EmployeeIds.parse((String) ((List<?>) ids).get(0)) : -1;
+	    } catch (NotPossibleException | NotFoundException | DataSourceException e) {
+	      return -1;
 	    }
 	  }
 }
@@ -0,0 +1,204 @@
+package klk59.hr.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.util.events.ChangeEvent;
+import domainapp.basics.util.events.ChangeEventSource;
+import domainapp.basics.util.events.ChangeListener;
+
+/**
+ * The identity map of {@link Employee}: maps an employee id to the canonical object of that employee.
+ *
+ * <p>When this is registered with the object manager (see {@link #listenTo(DOMBasic)}), the object pool
+ * is the source of truth: an employee that is added to or loaded into the pool becomes the canonical
+ * object of its id, in place of any object that was canonical before, and the entry of an employee
+ * that is deleted from the pool is removed. Otherwise, the canonical object of an id is the first
+ * object with that id that was passed to {@link #canonical(Employee)} and is still in use.
+ *
+ * <p>The objects are held through weak references, so the map does not keep an employee in memory;
+ * the entries of the objects that have been garbage collected are removed when the map is next changed.
+ *
+ * <p>The associations of employees ({@link Department}, {@link City}, {@link JobQualification}) and
+ * {@link klk59.hr.model.reports.EmployeesByNameReport} store the {@link #canonical(Employee)} object of
+ * each employee, so that an employee that is read more than once is not held twice. The object manager
+ * itself already returns the pooled object of an employee that it loads again (e.g. through the links of
+ * the departments, cities and positions), so the map only folds employees that are created outside the
+ * pool; for the employees that are loaded, its entries cost heap and save none (see
+ * <tt>IdentityMapHeap</tt>).
+ *
+ * @author agent
+ */
+public class EmployeeIdentityMap implements ChangeListener {
+  private static final EmployeeIdentityMap instance = new EmployeeIdentityMap();
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /** the references of the collected employees */
+  private final ReferenceQueue<Employee> collected = new ReferenceQueue<>();
+
+  /** the object manager this is registered with (see {@link #listenTo(DOMBasic)}) */
+  private DOMBasic dom;
+
+  private EmployeeIdentityMap() {
+    //
+  }
+
+  /**
+   * @effects return the shared identity map
+   */
+  public static EmployeeIdentityMap getInstance() {
+    return instance;
+  }
+
+  /**
+   * @effects <pre>
+   *  if there is a canonical employee whose id is e.id
+   *    return it
+   *  else
+   *    make e the canonical employee of its id and return e</pre>
+   */
+  public Employee canonical(Employee e) {
+    if (e == null || e.getId() == null)
+      return e;
+
+    Entry entry = entries.get(e.getId());
+    Employee c = (entry != null) ? entry.get() : null;
+    if (c != null)
+      return c;
+
+    expunge();
+
+    Entry newEntry = new Entry(e, collected);
+    while (true) {
+      entry = entries.putIfAbsent(e.getId(), newEntry);
+      if (entry == null)
+        return e;
+
+      c = entry.get();
+      if (c != null)
+        return c;
+
+      // the previous canonical object has been collected
+      if (entries.replace(e.getId(), entry, newEntry))
+        return e;
+    }
+  }
+
+  /**
+   * @effects
+   *  return a list of the {@link #canonical(Employee)} objects of <tt>employees</tt>, in the same order
+   */
+  public List<Employee> canonical(Collection<Employee> employees) {
+    List<Employee> result = new ArrayList<>(employees.size());
+    for (Employee e : employees)
+      result.add(canonical(e));
+    return result;
+  }
+
+  /**
+   * @effects
+   *  make <tt>e</tt> the canonical employee of its id, in place of the employee (if any) that was
+   *  canonical before
+   */
+  public void put(Employee e) {
+    if (e == null || e.getId() == null)
+      return;
+
+    expunge();
+    entries.put(e.getId(), new Entry(e, collected));
+  }
+
+  /**
+   * @effects
+   *  return the canonical employee whose id is <tt>id</tt>, or <tt>null</tt> if there is none
+   */
+  public Employee get(String id) {
+    Entry entry = entries.get(id);
+    return (entry != null) ? entry.get() : null;
+  }
+
+  /**
+   * @effects
+   *  if e is the canonical employee of its id
+   *    remove it from this
+   */
+  public void remove(Employee e) {
+    Entry entry = entries.get(e.getId());
+    if (entry != null && entry.get() == e)
+      entries.remove(e.getId(), entry);
+  }
+
+  /**
+   * @effects
+   *  register this with <tt>dom</tt> to be notified of the employees that are added to, loaded into
+   *  and deleted from it (if this has not been registered with <tt>dom</tt> before)
+   */
+  public synchronized void listenTo(DOMBasic dom) {
+    if (this.dom != dom) {
+      dom.addChangeListener(Employee.class, this);
+      this.dom = dom;
+    }
+  }
+
+  /**
+   * @effects
+   *  make the new (or loaded) employees of the event <tt>e</tt> canonical and remove the entries of
+   *  the deleted employees
+   */
+  @Override
+  public void stateChanged(ChangeEvent e) {
+    if (!(e.getSource() instanceof ChangeEventSource))
+      return;
+
+    ChangeEventSource src = (ChangeEventSource) e.getSource();
+    if (src.isDelete()) {
+      for (Object o : src.getObjects()) {
+        if (o instanceof Employee)
+          remove((Employee) o);
+      }
+    } else if (src.isAddNew()) {
+      for (Object o : src.getObjects()) {
+        if (o instanceof Employee)
+          put((Employee) o);
+      }
+    }
+  }
+
+  /**
+   * @effects return the number of entries of this (including those of collected employees that
+   *  have not been removed yet)
+   */
+  public int size() {
+    expunge();
+    return entries.size();
+  }
+
+  /**
+   * @effects
+   *  remove the entries of the employees that have been collected
+   */
+  private void expunge() {
+    Entry ref;
+    while ((ref = (Entry) collected.poll()) != null)
+      entries.remove(ref.id, ref);
+  }
+
+  /**
+   * A weak reference to an employee, which remembers the id of the employee.
+   */
+  private static class Entry extends WeakReference<Employee> {
+    private final String id;
+
+    Entry(Employee e, ReferenceQueue<Employee> queue) {
+      super(e, queue);
+      this.id = e.getId();
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package klk59.hr.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.util.events.ChangeEvent;
+import domainapp.basics.util.events.ChangeEventSource;
+import domainapp.basics.util.events.ChangeListener;
+
+/**
+ * An in-memory trigram index of {@link Employee#getName()}, which finds the employees whose names
+ * contain a given string without querying the data source.
+ *
+ * <p>Each name is split into its (overlapping) 3-character substrings, and each trigram maps to the
+ * employees whose names contain it. A search intersects the employee sets of the trigrams of the
+ * search string and then checks the remaining candidates. Matching is case-sensitive, as the
+ * <tt>LIKE '%name%'</tt> query that it replaces.
+ *
+ * <p>The employees are indexed by id (see {@link Employee#getIdKey()}): an object that is read again
+ * from the data source replaces the one that was indexed for its id. Employees are added when the object
+ * manager reports that they have been added to it or loaded from the data source, re-indexed by
+ * {@link Employee#setName(String)} and removed when the object manager reports that they have been
+ * deleted (see {@link #listenTo(DOMBasic)}); employees that are only created in memory are not indexed,
+ * so that the index does not keep them reachable.
+ *
+ * <p>The index is <i>cold</i> until every employee has been read into it by {@link #load(DOMBasic)} (see
+ * {@link #isWarm(DOMBasic)}). Nothing loads it at start-up: {@link #search(DOMBasic, String)} loads it
+ * when it is first used.
+ *
+ * @author agent
+ */
+public class EmployeeNameIndex implements ChangeListener {
+  private static final EmployeeNameIndex instance = new EmployeeNameIndex();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** trigram -> the indexed employees whose names contain it */
+  private final Map<Long, Set<Employee>> postings = new HashMap<>();
+
+  /** id key -> the employee that is indexed for it and the name under which it is indexed */
+  private final Map<Long, Indexed> entries = new HashMap<>();
+
+  private volatile boolean warm;
+
+  /** the object manager this is registered with (see {@link #listenTo(DOMBasic)}) */
+  private DOMBasic dom;
+
+  private EmployeeNameIndex() {
+    //
+  }
+
+  /**
+   * @effects return the shared index
+   */
+  public static EmployeeNameIndex getInstance() {
+    return instance;
+  }
+
+  /**
+   * The employee that is indexed for an id and the name under which it is indexed.
+   */
+  private static final class Indexed {
+    final Employee employee;
+    final String name;
+
+    Indexed(Employee employee, String name) {
+      this.employee = employee;
+      this.name = name;
+    }
+  }
+
+  /**
+   * @effects
+   *  index <tt>e</tt> under its current name, in place of the employee (if any) that is indexed for its id
+   */
+  public void add(Employee e) {
+    lock.writeLock().lock();
+    try {
+      Indexed old = entries.put(e.getIdKey(), new Indexed(e, e.getName()));
+      if (old != null)
+        unindex(old.employee, old.name);
+      index(e, e.getName());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @effects
+   *  if e is the employee that is indexed for its id
+   *    re-index e under its current name
+   */
+  public void update(Employee e) {
+    lock.writeLock().lock();
+    try {
+      Indexed old = entries.get(e.getIdKey());
+      if (old != null && old.employee == e) {
+        entries.put(e.getIdKey(), new Indexed(e, e.getName()));
+        unindex(e, old.name);
+        index(e, e.getName());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @effects
+   *  remove the employee that is indexed for the id of <tt>e</tt> (if any) from this
+   */
+  public void remove(Employee e) {
+    lock.writeLock().lock();
+    try {
+      Indexed old = entries.remove(e.getIdKey());
+      if (old != null)
+        unindex(old.employee, old.name);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @effects
+   *  if this is not warm for <tt>dom</tt>
+   *    {@link #load(DOMBasic)} <tt>dom</tt>
+   *  return the employees of <tt>dom</tt> whose names contain <tt>s</tt>
+   *
+   *  <p>throws NotPossibleException, DataSourceException if fails to read the employees
+   */
+  public List<Employee> search(DOMBasic dom, String s) throws NotPossibleException, DataSourceException {
+    if (!isWarm(dom)) {
+      synchronized (this) {
+        if (!isWarm(dom))
+          load(dom);
+      }
+    }
+    return search(s);
+  }
+
+  /**
+   * @effects
+   *  return the indexed employees whose names contain <tt>s</tt>
+   */
+  public List<Employee> search(String s) {
+    List<Employee> result = new ArrayList<>();
+
+    lock.readLock().lock();
+    try {
+      if (s.length() < 3) {
+        // too short for a trigram: check every name
+        for (Indexed entry : entries.values()) {
+          if (entry.name != null && entry.name.contains(s))
+            result.add(entry.employee);
+        }
+        return result;
+      }
+
+      // the smallest posting set of the trigrams of s
+      Set<Employee> smallest = null;
+      List<Set<Employee>> others = new ArrayList<>();
+      for (int i = 0; i + 3 <= s.length(); i++) {
+        Set<Employee> p = postings.get(trigram(s, i));
+        if (p == null)
+          return result;
+
+        if (smallest == null || p.size() < smallest.size()) {
+          if (smallest != null)
+            others.add(smallest);
+          smallest = p;
+        } else {
+          others.add(p);
+        }
+      }
+
+      candidates:
+      for (Employee e : smallest) {
+        for (Set<Employee> p : others) {
+          if (!p.contains(e))
+            continue candidates;
+        }
+        // check the order of the trigrams
+        if (entries.get(e.getIdKey()).name.contains(s))
+          result.add(e);
+      }
+
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @effects return the number of employees in this
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @effects
+   *  return true if every employee of the data source of <tt>dom</tt> has been read into this by
+   *  {@link #load(DOMBasic)} (and this has since been kept up-to-date by <tt>dom</tt>), false otherwise
+   */
+  public synchronized boolean isWarm(DOMBasic dom) {
+    return warm && this.dom == dom;
+  }
+
+  /**
+   * @effects
+   *  {@link #listenTo(DOMBasic)} <tt>dom</tt>, replace the contents of this by all the employees of its
+   *  data source and mark this as warm.
+   *
+   *  <p>throws NotPossibleException, DataSourceException if fails to read the employees
+   */
+  public synchronized void load(DOMBasic dom) throws NotPossibleException, DataSourceException {
+    listenTo(dom);
+
+    Map<?, Employee> all = dom.retrieveObjects(Employee.class);
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      entries.clear();
+      if (all != null) {
+        for (Employee e : all.values()) {
+          entries.put(e.getIdKey(), new Indexed(e, e.getName()));
+          index(e, e.getName());
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    warm = true;
+  }
+
+  /**
+   * @effects
+   *  remove every employee from this and mark this as cold
+   */
+  synchronized void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      entries.clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    warm = false;
+  }
+
+  /**
+   * @effects
+   *  register this with <tt>dom</tt> to be notified of the employees that are added to, loaded into 
+   *  and deleted from it (if this has not been registered with <tt>dom</tt> before)
+   */
+  public synchronized void listenTo(DOMBasic dom) {
+    if (this.dom != dom) {
+      dom.addChangeListener(Employee.class, this);
+      this.dom = dom;
+      warm = false;
+    }
+  }
+
+  /**
+   * @effects
+   *  add the new (or loaded) employees and remove the deleted employees of the event <tt>e</tt>
+   */
+  @Override
+  public void stateChanged(ChangeEvent e) {
+    if (!(e.getSource() instanceof ChangeEventSource))
+      return;
+
+    ChangeEventSource src = (ChangeEventSource) e.getSource();
+    if (src.isDelete()) {
+      for (Object o : src.getObjects()) {
+        if (o instanceof Employee)
+          remove((Employee) o);
+      }
+    } else if (src.isAddNew()) {
+      for (Object o : src.getObjects()) {
+        if (o instanceof Employee)
+          add((Employee) o);
+      }
+    }
+  }
+
+  /**
+   * @effects
+   *  add every employee of <tt>employees</tt> to this
+   */
+  public void addAll(Collection<Employee> employees) {
+    for (Employee e : employees)
+      add(e);
+  }
+
+  private void index(Employee e, String name) {
+    if (name == null)
+      return;
+
+    for (int i = 0; i + 3 <= name.length(); i++) {
+      Long t = trigram(name, i);
+      Set<Employee> p = postings.get(t);
+      if (p == null) {
+        p = new HashSet<>(4);
+        postings.put(t, p);
+      }
+      p.add(e);
+    }
+  }
+
+  private void unindex(Employee e, String name) {
+    if (name == null)
+      return;
+
+    for (int i = 0; i + 3 <= name.length(); i++) {
+      Long t = trigram(name, i);
+      Set<Employee> p = postings.get(t);
+      if (p != null) {
+        p.remove(e);
+        if (p.isEmpty())
+          postings.remove(t);
+      }
+    }
+  }
+
+  /**
+   * @effects return the trigram of <tt>s</tt> that starts at <tt>i</tt>, packed into a long
+   */
+  private static long trigram(String s, int i) {
+    return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+  }
+}
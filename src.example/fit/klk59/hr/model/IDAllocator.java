@@ -0,0 +1,151 @@
+package klk59.hr.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import domainapp.basics.model.meta.DAttr;
+
+/**
+ * A shared, thread-safe allocator of the auto-generated id values of the domain classes.
+ *
+ * <p>Each domain class has its own atomic counter, which is advanced without locking.
+ * Bulk creation code should {@link #reserve(Class, int)} a {@link Block} of ids
+ * and then take ids from the block, so that it does not contend on the shared counter.
+ *
+ * <p>The counter of a class is kept at least as large as the highest id known for that class:
+ * ids of objects loaded from the data source are recorded through {@link #update(Class, int)}
+ * and the highest id stored in the data source through {@link #synchronise(Class, DAttr, Object)}.
+ *
+ * @author agent
+ */
+public class IDAllocator {
+  private static final ConcurrentMap<Class<?>, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+  private IDAllocator() {
+    // no instances
+  }
+
+  /**
+   * @effects
+   *  return the counter of <tt>c</tt>, creating it if it does not exist
+   */
+  private static AtomicInteger counter(Class<?> c) {
+    AtomicInteger counter = counters.get(c);
+    if (counter == null) {
+      counter = counters.computeIfAbsent(c, k -> new AtomicInteger());
+    }
+    return counter;
+  }
+
+  /**
+   * @effects
+   *  allocate and return the next id of <tt>c</tt>
+   */
+  public static int nextID(Class<?> c) {
+    return counter(c).incrementAndGet();
+  }
+
+  /**
+   * @requires
+   *  size > 0
+   * @effects
+   *  allocate <tt>size</tt> consecutive ids of <tt>c</tt> and return them as a {@link Block}
+   */
+  public static Block reserve(Class<?> c, int size) {
+    if (size <= 0)
+      throw new IllegalArgumentException("IDAllocator.reserve: invalid block size " + size);
+
+    int first = counter(c).getAndAdd(size) + 1;
+    return new Block(first, first + size - 1);
+  }
+
+  /**
+   * @effects
+   *  if <tt>id</tt> is greater than the current id of <tt>c</tt>
+   *    advance the counter of <tt>c</tt> to <tt>id</tt>
+   *  return the current id of <tt>c</tt>
+   */
+  public static int update(Class<?> c, int id) {
+    AtomicInteger counter = counter(c);
+    int curr = counter.get();
+    while (id > curr) {
+      if (counter.compareAndSet(curr, id))
+        return id;
+      curr = counter.get();
+    }
+    return curr;
+  }
+
+  /**
+   * This method is invoked by the <tt>AutoAttributeValueSynchroniser</tt> of the domain classes
+   * whose id values are integers.
+   *
+   * @requires
+   *  maxVal is an Integer
+   * @effects
+   *  if <tt>attrib</tt> is the id attribute and maxVal != null
+   *    {@link #update(Class, int)} the counter of <tt>c</tt> with <tt>maxVal</tt>
+   */
+  public static void synchronise(Class<?> c, DAttr attrib, Object maxVal) {
+    if (maxVal != null && (attrib == null || attrib.id())) {
+      update(c, (Integer) maxVal);
+    }
+  }
+
+  /**
+   * @effects
+   *  return the current (i.e. last allocated) id of <tt>c</tt>
+   */
+  public static int current(Class<?> c) {
+    return counter(c).get();
+  }
+
+  /**
+   * A range of ids that has been reserved by one caller.
+   * A block is not shared between threads and so needs no synchronisation.
+   */
+  public static class Block {
+    private final int last;
+    private int next;
+
+    private Block(int first, int last) {
+      this.next = first;
+      this.last = last;
+    }
+
+    /**
+     * @effects
+     *  return true if this has ids that have not been taken
+     */
+    public boolean hasNext() {
+      return next <= last;
+    }
+
+    /**
+     * @effects
+     *  if hasNext()
+     *    return the next id of this
+     *  else
+     *    throw IllegalStateException
+     */
+    public int next() {
+      if (next > last)
+        throw new IllegalStateException("IDAllocator.Block: no more ids (last=" + last + ")");
+      return next++;
+    }
+
+    /**
+     * @effects
+     *  return the number of ids that have not been taken
+     */
+    public int remaining() {
+      return last - next + 1;
+    }
+
+    @Override
+    public String toString() {
+      return "IDAllocator.Block(" + next + ".." + last + ")";
+    }
+  }
+}
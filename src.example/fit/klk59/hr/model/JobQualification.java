@@ -1,6 +1,5 @@
 package klk59.hr.model;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import domainapp.basics.exceptions.ConstraintViolationException;
@@ -16,6 +15,7 @@ import domainapp.basics.model.meta.DAssoc.AssocType;
 import domainapp.basics.model.meta.DAssoc.Associate;
 import domainapp.basics.model.meta.DAttr.Type;
 import domainapp.basics.model.meta.DOpt;
+import klk59.hr.model.util.IndexedLinkList;
 
 @DClass(schema="hr")
 public class JobQualification {
@@ -25,7 +25,6 @@ public class JobQualification {
 	//attributes
 	@DAttr(name="id",id=true,auto=true,length=6,mutable=false,type=Type.Integer)
 	private int id;
-	private static int idCounter;
 	  
 	@DAttr(name=AttributeName_JobLevelName,length=20,type=Type.String,optional=true)
 	private String jobLevelName;
@@ -35,6 +34,9 @@ public class JobQualification {
 			derivedFrom={AttributeName_JobLevelName})
 	private int salaryBasic;
 	
+	/** the version of {@link SalaryGrades} from which {@link #salaryBasic} was computed */
+	private int salaryGradesVersion;
+	
 	private StateHistory<String, Object> stateHist;
 	
 	@DAttr(name="employees",type=Type.Collection,
@@ -46,8 +48,7 @@ public class JobQualification {
 	    cardMin=1,cardMax=100))  
 	private List<Employee> employees;
 	  
-	// derived attributes
-	private int employeesCount;
+	// derived attributes: the link count of employees is kept by the list (see IndexedLinkList.getLinkCount())
 	  
 	
 	//constructor method
@@ -63,8 +64,7 @@ public class JobQualification {
 	  this.id = nextID(id);
 	  this.jobLevelName = jobLevelName;
 	    
-	  employees = new ArrayList<>();
-	  employeesCount = 0;
+	  employees = new IndexedLinkList<>();
 	  
 //	  stateHist = new StateHistory<>();
 	  
@@ -81,31 +81,16 @@ public class JobQualification {
 	@AttrRef(value=AttributeName_SalaryBasic)
 	public void updateSalaryBasic() {
 //		stateHist.put(AttributeName_JobLevelName, jobLevelName);
-		String se1 = "SE1";
-		String se2 = "SE2";
-		String se3 = "SE3";
-		String se4 = "SE4";
-		String se5 = "SE5";
-		if(jobLevelName.equals(se1))
-			salaryBasic = 20000000;
-		else if(jobLevelName.equals(se2))
-			salaryBasic = 25000000;
-		else if(jobLevelName.equals(se3))
-			salaryBasic = 30000000;
-		else if(jobLevelName.equals(se4))
-			salaryBasic = 35000000;
-		else if(jobLevelName.equals(se5))
-			salaryBasic = 40000000;
-		else
-			salaryBasic = 0;
+		// read the version first: if the grades change meanwhile, the salary is recomputed on the next read
+		int version = SalaryGrades.getVersion();
+		salaryBasic = SalaryGrades.salaryOf(jobLevelName);
+		salaryGradesVersion = version;
 	}
 
 	@DOpt(type=DOpt.Type.LinkAdder)
 	//only need to do this for reflexive association: @MemberRef(name="employees")  
 	public boolean addEmployee(Employee s) {
-	  if (!this.employees.contains(s)) {
-	    employees.add(s);
-	  }
+	  links().addLoaded(EmployeeIdentityMap.getInstance().canonical(s));
 	    
 	  // no other attributes changed
 	  return false; 
@@ -113,8 +98,7 @@ public class JobQualification {
 
 	@DOpt(type=DOpt.Type.LinkAdderNew)
 	public boolean addNewEmployee(Employee s) {
-	  employees.add(s);
-	  employeesCount++;
+	  employees.add(EmployeeIdentityMap.getInstance().canonical(s));
 	    
 	  // no other attributes changed
 	  return false; 
@@ -122,11 +106,7 @@ public class JobQualification {
 	  
 	@DOpt(type=DOpt.Type.LinkAdder)
 	public boolean addEmployee(List<Employee> employees) {
-	  for (Employee s : employees) {
-	    if (!this.employees.contains(s)) {
-	      this.employees.add(s);
-	    }
-	  }
+	  links().addAllLoaded(EmployeeIdentityMap.getInstance().canonical(employees));
 	    
 	  // no other attributes changed
 	  return false; 
@@ -134,8 +114,7 @@ public class JobQualification {
 
 	@DOpt(type=DOpt.Type.LinkAdderNew)
 	public boolean addNewEmployee(List<Employee> employees) {
-	  this.employees.addAll(employees);
-	  employeesCount += employees.size();
+	  this.employees.addAll(EmployeeIdentityMap.getInstance().canonical(employees));
 
 	  // no other attributes changed
 	  return false; 
@@ -144,34 +123,35 @@ public class JobQualification {
 	@DOpt(type=DOpt.Type.LinkRemover)
 	//only need to do this for reflexive association: @MemberRef(name="employees")
 	public boolean removeEmployee(Employee s) {
-	  boolean removed = employees.remove(s);
-	    
-	  if (removed) {
-	    employeesCount--;
-	  }
+	  employees.remove(EmployeeIdentityMap.getInstance().canonical(s));
 	    
 	  // no other attributes changed
 	  return false; 
 	}
 	  
 	public void setEmployees(List<Employee> employees) {
-	  this.employees = employees;
-	    
-	  employeesCount = employees.size();
+	  this.employees = new IndexedLinkList<>(EmployeeIdentityMap.getInstance().canonical(employees));
 	}
 	    
 	/**
 	 * @effects 
-	 *  return <tt>employeesCount</tt>
+	 *  return the number of employees of this
 	 */
 	@DOpt(type=DOpt.Type.LinkCountGetter)
 	public Integer getEmployeesCount() {
-	  return employeesCount;
+	  return links().getLinkCount();
 	}
 
 	@DOpt(type=DOpt.Type.LinkCountSetter)
 	public void setEmployeesCount(int count) {
-	  employeesCount = count;
+	  links().setLinkCount(count);
+	}
+	
+	/**
+	 * @effects return {@link #employees} as an {@link IndexedLinkList}
+	 */
+	private IndexedLinkList<Employee> links() {
+	  return (IndexedLinkList<Employee>) employees;
 	}
 	
 	//getter methods
@@ -189,7 +169,13 @@ public class JobQualification {
 	}
 	
 	
+	/**
+	 * @effects 
+	 *  return <tt>salaryBasic</tt>, recomputing it first if {@link SalaryGrades} has changed since it was computed
+	 */
 	public int getSalaryBasic() {
+		if (salaryGradesVersion != SalaryGrades.getVersion())
+			updateSalaryBasic();
 		return salaryBasic;
 	}
 	
@@ -223,12 +209,9 @@ public class JobQualification {
 
 	private static int nextID(Integer currID) {
 	  if (currID == null) {
-	    idCounter++;
-	    return idCounter;
+	    return IDAllocator.nextID(JobQualification.class);
 	  } else {
-	    int num = currID.intValue();
-	    if (num > idCounter)
-	      idCounter = num;
+	    IDAllocator.update(JobQualification.class, currID.intValue());
 	      
 	    return currID;
 	  }
@@ -249,9 +232,7 @@ public class JobQualification {
 	    
 	    if (minVal != null && maxVal != null) {
 	      //TODO: update this for the correct attribute if there are more than one auto attributes of this class 
-	      int maxIdVal = (Integer) maxVal;
-	      if (maxIdVal > idCounter)  
-	        idCounter = maxIdVal;
+	      IDAllocator.synchronise(JobQualification.class, attrib, maxVal);
 	    }
 	  }
 }
@@ -0,0 +1,273 @@
+package klk59.hr.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.model.query.Expression.Op;
+import domainapp.basics.util.events.ChangeEvent;
+import domainapp.basics.util.events.ChangeEventSource;
+import domainapp.basics.util.events.ChangeListener;
+
+/**
+ * A bounded cache of the objects of the reference classes of the HR model ({@link City},
+ * {@link Department}, {@link JobQualification} and {@link TypeOfWork}), keyed by class and id.
+ *
+ * <p>Each class has its own segment of at most {@link #getCapacity()} objects, from which the least
+ * recently used object is evicted. A segment is locked only while it is read or changed, so lookups of
+ * different classes do not contend. A miss is resolved through the object manager: first in its
+ * object pool and then in the data source.
+ *
+ * <p>The cache holds the objects themselves, so a change of an object is seen by its next lookup. Once
+ * it is registered with the object manager (see {@link #listenTo(DOMBasic)}), the objects that the
+ * object manager creates or reads from the data source (e.g. when it loads the reference data) are
+ * added to the cache, and the objects that it deletes are removed from the cache.
+ *
+ * <p>The cache serves the lookups by id that the application code makes: of the types of work of the
+ * rows of {@link klk59.hr.model.io.TimesheetImporter} and {@link klk59.hr.model.reports.MonthlyTimesheetReport},
+ * and of the positions that {@link Department} counts. It is not on the path by which the object manager
+ * loads {@link Employee} and {@link DailyTimeKeeping} objects: the framework resolves their links to the
+ * reference objects through its own object pool.
+ *
+ * @author agent
+ */
+public class ReferenceDataCache implements ChangeListener {
+  /** the default maximum number of objects of one class */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /** the classes of the objects of this */
+  private static final Class<?>[] REFERENCE_CLASSES = {
+      City.class, Department.class, JobQualification.class, TypeOfWork.class
+  };
+
+  private static final ReferenceDataCache instance = new ReferenceDataCache(DEFAULT_CAPACITY);
+
+  private final int capacity;
+
+  private final Map<Class<?>, Segment> segments = new ConcurrentHashMap<>();
+
+  /** the object manager this is registered with (see {@link #listenTo(DOMBasic)}) */
+  private volatile DOMBasic dom;
+
+  // statistics
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @effects initialise this to hold at most <tt>capacity</tt> objects of each class
+   */
+  ReferenceDataCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @effects return the shared cache
+   */
+  public static ReferenceDataCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * @effects <pre>
+   *  if the object of <tt>c</tt> whose id is <tt>id</tt> is in this
+   *    return it
+   *  else
+   *    look it up in the object pool and then in the data source of <tt>dom</tt>, add it to this and
+   *    return it (return null if it is not found)
+   *  throws DataSourceException if fails to read the data source</pre>
+   */
+  public <T> T get(Class<T> c, int id, DOMBasic dom) throws DataSourceException {
+    T o = getIfPresent(c, id);
+    if (o != null)
+      return o;
+
+    o = c.cast(dom.lookUpObjectByID(c, id));
+    if (o == null) {
+      try {
+        o = dom.retrieveObject(c, "id", Op.EQ, id);
+      } catch (NotFoundException e) {
+        // not in the data source
+        return null;
+      }
+    }
+
+    if (o != null)
+      segment(c).put(id, o);
+
+    return o;
+  }
+
+  /**
+   * @effects
+   *  return the object of <tt>c</tt> whose id is <tt>id</tt> if it is in this, or <tt>null</tt>
+   */
+  public <T> T getIfPresent(Class<T> c, int id) {
+    Object o = segment(c).get(id);
+    if (o != null) {
+      hits.increment();
+      return c.cast(o);
+    } else {
+      misses.increment();
+      return null;
+    }
+  }
+
+  /**
+   * @effects
+   *  add <tt>o</tt>, whose id is <tt>id</tt>, to this
+   */
+  public void put(Class<?> c, int id, Object o) {
+    segment(c).put(id, o);
+  }
+
+  /**
+   * @effects
+   *  remove the object of <tt>c</tt> whose id is <tt>id</tt> from this
+   */
+  public void invalidate(Class<?> c, int id) {
+    Segment s = segments.get(c);
+    if (s != null)
+      s.remove(id);
+  }
+
+  /**
+   * @effects
+   *  remove the objects of <tt>c</tt> from this
+   */
+  public void invalidateAll(Class<?> c) {
+    segments.remove(c);
+  }
+
+  /**
+   * @effects
+   *  remove all objects from this
+   */
+  public void clear() {
+    segments.clear();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * @effects return the fraction of the lookups that were hits
+   */
+  public double getHitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return (total > 0) ? (double) h / total : 0;
+  }
+
+  /**
+   * @effects
+   *  if this has not been registered with <tt>dom</tt>
+   *    remove all objects from this and register this with <tt>dom</tt> to be notified of the
+   *    reference objects that are added to, loaded into and deleted from it
+   */
+  public synchronized void listenTo(DOMBasic dom) {
+    if (this.dom != dom) {
+      for (Class<?> c : REFERENCE_CLASSES)
+        dom.addChangeListener(c, this);
+      this.dom = dom;
+      clear();
+    }
+  }
+
+  /**
+   * @effects
+   *  add the new (or loaded) reference objects of the event <tt>e</tt> to this and remove its deleted
+   *  reference objects from this
+   */
+  @Override
+  public void stateChanged(ChangeEvent e) {
+    if (!(e.getSource() instanceof ChangeEventSource))
+      return;
+
+    ChangeEventSource src = (ChangeEventSource) e.getSource();
+    if (!src.isDelete() && !src.isAddNew())
+      return;
+
+    for (Object o : src.getObjects()) {
+      if (o == null || !isReferenceClass(o.getClass()))
+        continue;
+
+      Object id = dom.getDsm().getIDAttributeValue(o);
+      if (!(id instanceof Integer))
+        continue;
+
+      if (src.isDelete())
+        invalidate(o.getClass(), (Integer) id);
+      else
+        put(o.getClass(), (Integer) id, o);
+    }
+  }
+
+  private static boolean isReferenceClass(Class<?> c) {
+    for (Class<?> r : REFERENCE_CLASSES) {
+      if (r == c)
+        return true;
+    }
+    return false;
+  }
+
+  private Segment segment(Class<?> c) {
+    Segment s = segments.get(c);
+    if (s == null)
+      s = segments.computeIfAbsent(c, k -> new Segment());
+    return s;
+  }
+
+  @Override
+  public String toString() {
+    return "ReferenceDataCache(hits=" + getHits() + ",misses=" + getMisses() + ",evictions="
+        + getEvictions() + ")";
+  }
+
+  /**
+   * The objects of one class, in least-recently-used order.
+   */
+  private class Segment {
+    private final LinkedHashMap<Integer, Object> objects = new LinkedHashMap<Integer, Object>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Object> eldest) {
+        if (size() > capacity) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+
+    synchronized Object get(int id) {
+      return objects.get(id);
+    }
+
+    synchronized void put(int id, Object o) {
+      objects.put(id, o);
+    }
+
+    synchronized void remove(int id) {
+      objects.remove(id);
+    }
+  }
+}
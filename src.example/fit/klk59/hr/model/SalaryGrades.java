@@ -0,0 +1,182 @@
+package klk59.hr.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+
+/**
+ * The registry of salary grades, which maps a job level name (e.g. <tt>"SE1"</tt>) to the
+ * basic salary of the level (see {@link JobQualification#getSalaryBasic()}).
+ *
+ * <p>The grades are held in an immutable hash table, which is replaced as a whole when the grades
+ * change. Each table has a version number; a {@link JobQualification} records the version of the
+ * table from which its salary was computed and recomputes the salary when it is next read after the
+ * table has been replaced. Changing the grades therefore invalidates every derived salary at once,
+ * without visiting the qualifications.
+ *
+ * <p>The grades can be loaded from a properties file (<tt>level=salary</tt>), from an SQL query
+ * whose first two columns are the level and the salary, or from a map.
+ *
+ * @author agent
+ */
+public class SalaryGrades {
+  /** the salary of a level that has no grade */
+  public static final int NO_SALARY = 0;
+
+  private static volatile Table table = new Table(defaultGrades(), 1);
+
+  private SalaryGrades() {
+    // no instances
+  }
+
+  /**
+   * @effects
+   *  return the basic salary of the level <tt>jobLevelName</tt>, or {@link #NO_SALARY} if it has no grade
+   */
+  public static int salaryOf(String jobLevelName) {
+    return table.salaryOf(jobLevelName);
+  }
+
+  /**
+   * @effects
+   *  return the version of the current grades, which changes whenever the grades change
+   */
+  public static int getVersion() {
+    return table.version;
+  }
+
+  /**
+   * @effects
+   *  return a read-only view of the current grades
+   */
+  public static Map<String, Integer> getGrades() {
+    return Collections.unmodifiableMap(table.grades);
+  }
+
+  /**
+   * @effects <pre>
+   *  if every salary of <tt>grades</tt> is &gt;= 0
+   *    replace the current grades by <tt>grades</tt>
+   *  else
+   *    throws ConstraintViolationException</pre>
+   */
+  public static synchronized void load(Map<String, Integer> grades) throws ConstraintViolationException {
+    Map<String, Integer> copy = new HashMap<>(grades.size() * 2);
+    for (Map.Entry<String, Integer> g : grades.entrySet()) {
+      copy.put(g.getKey(), checkSalary(g.getKey(), g.getValue()));
+    }
+
+    table = new Table(copy, table.version + 1);
+  }
+
+  /**
+   * @effects <pre>
+   *  set the salary of the level <tt>jobLevelName</tt> to <tt>salary</tt>;
+   *  throws ConstraintViolationException if salary &lt; 0</pre>
+   */
+  public static synchronized void put(String jobLevelName, int salary) throws ConstraintViolationException {
+    Map<String, Integer> copy = new HashMap<>(table.grades);
+    copy.put(jobLevelName, checkSalary(jobLevelName, salary));
+
+    table = new Table(copy, table.version + 1);
+  }
+
+  /**
+   * @effects <pre>
+   *  replace the current grades by those of the properties file <tt>file</tt> (<tt>level=salary</tt>);
+   *  throws IOException if fails to read the file,
+   *    ConstraintViolationException if a salary is not a valid number</pre>
+   */
+  public static void load(Path file) throws IOException, ConstraintViolationException {
+    Properties props = new Properties();
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      props.load(in);
+    }
+
+    Map<String, Integer> grades = new HashMap<>();
+    for (String level : props.stringPropertyNames()) {
+      String salary = props.getProperty(level).trim();
+      try {
+        grades.put(level, Integer.parseInt(salary));
+      } catch (NumberFormatException e) {
+        throw new ConstraintViolationException(
+            ConstraintViolationException.Code.INVALID_VALUE, e, new Object[] {level, salary});
+      }
+    }
+
+    load(grades);
+  }
+
+  /**
+   * @effects <pre>
+   *  replace the current grades by the rows of the query <tt>sql</tt> on <tt>conn</tt>, whose first
+   *  column is the job level name and whose second column is the salary;
+   *  throws SQLException if fails to run the query,
+   *    ConstraintViolationException if a level or a salary is NULL or a salary is not valid</pre>
+   */
+  public static void load(Connection conn, String sql) throws SQLException, ConstraintViolationException {
+    Map<String, Integer> grades = new HashMap<>();
+    try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+      while (rs.next()) {
+        String level = rs.getString(1);
+        // getInt returns 0 for NULL, which would be taken as a valid salary
+        int salary = rs.getInt(2);
+        if (level == null || rs.wasNull())
+          throw new ConstraintViolationException(
+              ConstraintViolationException.Code.INVALID_VALUE_NOT_SPECIFIED_WHEN_REQUIRED, new Object[] {level, null});
+
+        grades.put(level, salary);
+      }
+    }
+
+    load(grades);
+  }
+
+  private static int checkSalary(String jobLevelName, Integer salary) throws ConstraintViolationException {
+    if (salary == null || salary < 0)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE, new Object[] {jobLevelName, salary});
+
+    return salary;
+  }
+
+  private static Map<String, Integer> defaultGrades() {
+    Map<String, Integer> grades = new HashMap<>();
+    grades.put("SE1", 20000000);
+    grades.put("SE2", 25000000);
+    grades.put("SE3", 30000000);
+    grades.put("SE4", 35000000);
+    grades.put("SE5", 40000000);
+    return grades;
+  }
+
+  /**
+   * A version of the grades.
+   */
+  private static final class Table {
+    private final Map<String, Integer> grades;
+    private final int version;
+
+    Table(Map<String, Integer> grades, int version) {
+      this.grades = grades;
+      this.version = version;
+    }
+
+    int salaryOf(String jobLevelName) {
+      Integer salary = (jobLevelName != null) ? grades.get(jobLevelName) : null;
+      return (salary != null) ? salary : NO_SALARY;
+    }
+  }
+}
@@ -0,0 +1,711 @@
+package klk59.hr.model;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * The time-keeping records of one {@link Employee}, indexed and sorted by work date.
+ *
+ * <p>This is the {@link List} that implements <tt>Employee.dailyTimeKeeping</tt>. The records
+ * are grouped into one entry per work day, which are kept in a sorted map, so that
+ * the records of a day and the records between two dates are found in O(log n) time.
+ * {@link #contains(Object)}, {@link #add(DailyTimeKeeping)} and {@link #remove(Object)} use a
+ * hash index of the records and do not scan the list.
+ *
+ * <p>The list iterates the records in date order. The records whose dates are not valid dates
+ * ({@link WorkDates#NO_DAY}, see {@link DailyTimeKeeping#getWorkDay()}) come first; they are counted in
+ * the hour totals but are not in any range of days, and they are never archived.
+ * A record whose work date is changed must be
+ * {@link #relocate(DailyTimeKeeping)}d, which {@link DailyTimeKeeping#setDateOfWork(String)} does
+ * through its employee.
+ *
+ * <p>The log keeps the hour totals of its owner, of the owner's department and of the types of work
+ * up-to-date (see {@link Employee#getTotalHoursOfWork()}): the hours of a record are counted when it is
+ * added and discounted when it is removed.
+ *
+ * <p>A log may be created <i>unloaded</i>, with a {@link Loader} that reads the records of the owner
+ * from the data source. The records are then read on first access to the contents of the list
+ * (except that {@link #getDay(int)}, {@link #getDays(int, int)} and {@link #getHoursOfWork(int, int)} only
+ * read the records of the requested days, and remember the ranges of days that they have read). New
+ * records can be added to an unloaded log without loading it. The hour totals only include the records
+ * that have been read.
+ *
+ * <p>A log is not thread-safe, but the logs of different employees may be used (and loaded) by
+ * different threads: the hour totals that they share are updated under the locks of their objects.
+ *
+ * <p>The records of closed pay periods may be moved into a {@link TimeSheetArchive}, which is then
+ * attached to this log. Archived records come first in the list and are read from the archive
+ * on access; they are not removed by the removal methods of this log (which leave them in the archive),
+ * and a record dated in the archived period cannot be added to it.
+ *
+ * @author agent
+ */
+public class TimeKeepingLog extends AbstractList<DailyTimeKeeping> {
+  /** the employee whose records are in this */
+  private final Employee owner;
+
+  /** work day -> records of that day */
+  private final NavigableMap<Integer, List<DailyTimeKeeping>> days;
+
+  /** record -> the work day under which it is filed in {@link #days} */
+  private final Map<DailyTimeKeeping, Integer> index;
+
+  /** cached records in date order for {@link #get(int)}, <tt>null</tt> if out-of-date */
+  private Object[] snapshot;
+
+  /** the archive of the older records of {@link #owner}, <tt>null</tt> if there is none */
+  private TimeSheetArchive archive;
+
+  /** the number of records of {@link #owner} in {@link #archive} */
+  private int archivedSize;
+
+  /** reads the records of {@link #owner}, <tt>null</tt> if this is loaded */
+  private Loader loader;
+
+  /** the ranges of days whose records have been read while this is not loaded: first day -> last day */
+  private final NavigableMap<Integer, Integer> loadedRanges = new TreeMap<>();
+
+  /**
+   * Reads the time-keeping records of an employee from the data source.
+   */
+  public static interface Loader {
+    /**
+     * @effects
+     *  return the records of <tt>owner</tt> whose work days are in <tt>[fromDay, toDay]</tt>
+     *  (if <tt>fromDay = null</tt>, all the records of <tt>owner</tt>);
+     *  throws NotPossibleException if fails to read the records
+     */
+    Collection<DailyTimeKeeping> load(Employee owner, Integer fromDay, Integer toDay);
+
+    /**
+     * @effects
+     *  return true if {@link #load(Employee, Integer, Integer)} can read the records of a range of days,
+     *  false if all the records must be read instead
+     */
+    boolean canLoadRange();
+  }
+
+  /**
+   * @effects
+   *  return true if the records that are read from the data source can be selected there by a range of
+   *  days, i.e. their dates are all stored in the ISO format (see {@link DataSourceTimeKeepingLoader}),
+   *  false otherwise
+   */
+  public static boolean canSelectDaysInDataSource() {
+    return DataSourceTimeKeepingLoader.getInstance().canLoadRange();
+  }
+
+  /**
+   * @effects
+   *  initialise this as an empty log of <tt>owner</tt>
+   */
+  public TimeKeepingLog(Employee owner) {
+    this.owner = owner;
+    days = new TreeMap<>();
+    index = new HashMap<>();
+  }
+
+  /**
+   * @effects
+   *  initialise this as an unloaded log of <tt>owner</tt>, whose records are read by <tt>loader</tt>
+   */
+  public TimeKeepingLog(Employee owner, Loader loader) {
+    this(owner);
+    this.loader = loader;
+  }
+
+  /**
+   * @effects
+   *  initialise this as a log of <tt>owner</tt> with the distinct records of <tt>c</tt>
+   */
+  public TimeKeepingLog(Employee owner, Collection<? extends DailyTimeKeeping> c) {
+    this(owner);
+    addAll(c);
+  }
+
+  /**
+   * @effects
+   *  if the work day of d is in the archived period of this
+   *    throws ConstraintViolationException
+   *  else if d is not in this
+   *    file d under its work day, return true
+   *  else
+   *    return false
+   */
+  @Override
+  public boolean add(DailyTimeKeeping d) throws ConstraintViolationException {
+    if (has(d))
+      return false;
+    checkNotArchived(d.getWorkDay());
+
+    file(d, d.getWorkDay());
+    count(d, 1);
+    changed();
+    return true;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends DailyTimeKeeping> c) throws ConstraintViolationException {
+    boolean added = false;
+    for (DailyTimeKeeping d : c) {
+      if (!has(d)) {
+        checkNotArchived(d.getWorkDay());
+        file(d, d.getWorkDay());
+        count(d, 1);
+        added = true;
+      }
+    }
+
+    if (added)
+      changed();
+
+    return added;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    load();
+    return has(o);
+  }
+
+  /**
+   * @effects
+   *  if o is in this and is not archived
+   *    remove o, return true
+   *  else
+   *    return false (an archived record stays in the archive, as it does on {@link #clear()})
+   */
+  @Override
+  public boolean remove(Object o) {
+    load();
+    Integer day = index.remove(o);
+    if (day == null)
+      return false;
+
+    unfile(o, day);
+    count((DailyTimeKeeping) o, -1);
+    changed();
+    return true;
+  }
+
+  /**
+   * @effects
+   *  remove the record at <tt>i</tt> unless it is archived (see {@link #remove(Object)}) and return it
+   */
+  @Override
+  public DailyTimeKeeping remove(int i) {
+    DailyTimeKeeping d = get(i);
+    remove(d);
+    return d;
+  }
+
+  /**
+   * @effects
+   *  remove all records of this that are not archived
+   */
+  @Override
+  public void clear() {
+    loader = null;
+    loadedRanges.clear();
+    if (!index.isEmpty()) {
+      for (DailyTimeKeeping d : index.keySet())
+        count(d, -1);
+      days.clear();
+      index.clear();
+      changed();
+    }
+  }
+
+  /**
+   * @effects
+   *  if d is in this and is filed under a day other than its current work day
+   *    move d to its current work day
+   */
+  public void relocate(DailyTimeKeeping d) {
+    Integer day = index.get(d);
+    if (day != null && day != d.getWorkDay()) {
+      unfile(d, day);
+      file(d, d.getWorkDay());
+      changed();
+    }
+  }
+
+  /**
+   * @requires
+   *  archive contains the records of {@link #owner} that are older than <tt>archive.getCutoffDay()</tt>
+   * @effects
+   *  remove from this the records that are older than <tt>archive.getCutoffDay()</tt> and
+   *  read them from <tt>archive</tt> instead
+   */
+  void attachArchive(TimeSheetArchive archive) {
+    load();
+    Integer first = getFirstDay();
+    if (first != null && first < archive.getCutoffDay()) {
+      Map<Integer, List<DailyTimeKeeping>> archived = days.subMap(WorkDates.NO_DAY, false, 
+          archive.getCutoffDay(), false);
+      for (List<DailyTimeKeeping> records : archived.values()) {
+        for (DailyTimeKeeping d : records) {
+          index.remove(d);
+          count(d, -1);
+        }
+      }
+      archived.clear();
+    }
+
+    // the archived records are counted instead
+    countArchived(-1);
+    this.archive = archive;
+    this.archivedSize = archive.size(owner);
+    countArchived(1);
+    changed();
+  }
+
+  /**
+   * @effects
+   *  return true if <tt>d</tt> is in this and is not archived
+   */
+  boolean isLive(DailyTimeKeeping d) {
+    return index.containsKey(d);
+  }
+
+  /**
+   * @requires
+   *  this is no longer used as the log of {@link #owner}
+   * @effects
+   *  remove the hours of the records of this (including the archived ones) from the hour totals
+   */
+  void release() {
+    for (DailyTimeKeeping d : index.keySet())
+      count(d, -1);
+    countArchived(-1);
+  }
+
+  /**
+   * @effects return the archive attached to this, or <tt>null</tt> if there is none
+   */
+  public TimeSheetArchive getArchive() {
+    return archive;
+  }
+
+  /**
+   * @effects
+   *  return a read-only view of the records whose work day is <tt>day</tt>
+   *  (an empty list if there are none)
+   */
+  public List<DailyTimeKeeping> getDay(int day) {
+    load(day, day);
+    List<DailyTimeKeeping> records = days.get(day);
+    if (archive != null && day < archive.getCutoffDay()) {
+      List<DailyTimeKeeping> archived = archive.getDay(owner, day);
+      if (records != null)
+        archived.addAll(records);
+      return Collections.unmodifiableList(archived);
+    }
+
+    return (records != null) ? Collections.unmodifiableList(records) : Collections.emptyList();
+  }
+
+  /**
+   * @effects
+   *  return a read-only view, in date order, of the records whose work days
+   *  are in <tt>[fromDay, toDay]</tt>
+   */
+  public Collection<DailyTimeKeeping> getDays(int fromDay, int toDay) {
+    if (fromDay > toDay)
+      return Collections.emptyList();
+    load(fromDay, toDay);
+
+    if (archive != null && fromDay < archive.getCutoffDay()) {
+      // archived records are read into a list
+      List<DailyTimeKeeping> records = new ArrayList<>();
+      for (Iterator<DailyTimeKeeping> it = archive.iterator(owner); it.hasNext(); ) {
+        DailyTimeKeeping d = it.next();
+        if (d.getWorkDay() > toDay)
+          break;
+        if (d.getWorkDay() >= fromDay)
+          records.add(d);
+      }
+      for (List<DailyTimeKeeping> dayRecords : days.subMap(fromDay, true, toDay, true).values())
+        records.addAll(dayRecords);
+      return Collections.unmodifiableList(records);
+    }
+
+    final Collection<List<DailyTimeKeeping>> range = days.subMap(fromDay, true, toDay, true).values();
+    return new AbstractCollection<DailyTimeKeeping>() {
+      @Override
+      public Iterator<DailyTimeKeeping> iterator() {
+        return flatten(range).iterator();
+      }
+
+      @Override
+      public int size() {
+        int size = 0;
+        for (List<DailyTimeKeeping> records : range)
+          size += records.size();
+        return size;
+      }
+    };
+  }
+
+  /**
+   * @effects
+   *  return the total hours of work of the records whose work days are in <tt>[fromDay, toDay]</tt>
+   */
+  public int getHoursOfWork(int fromDay, int toDay) {
+    if (fromDay > toDay)
+      return 0;
+    load(fromDay, toDay);
+
+    int hours = (archive != null) ? archive.getHoursOfWork(owner, fromDay, toDay) : 0;
+    for (List<DailyTimeKeeping> records : days.subMap(fromDay, true, toDay, true).values()) {
+      for (DailyTimeKeeping d : records)
+        hours += d.getHourOfWork();
+    }
+    return hours;
+  }
+
+  /**
+   * @effects
+   *  if this has no records with valid work days
+   *    return null
+   *  else
+   *    return the earliest work day of this
+   */
+  public Integer getFirstDay() {
+    load();
+    if (archivedSize > 0)
+      return archive.get(owner, 0).getWorkDay();
+
+    return days.higherKey(WorkDates.NO_DAY);
+  }
+
+  /**
+   * @effects
+   *  if this has no records with valid work days
+   *    return null
+   *  else
+   *    return the latest work day of this
+   */
+  public Integer getLastDay() {
+    load();
+    if (days.isEmpty() || days.lastKey() == WorkDates.NO_DAY)
+      return (archivedSize > 0) ? archive.get(owner, archivedSize - 1).getWorkDay() : null;
+
+    return days.lastKey();
+  }
+
+  @Override
+  public DailyTimeKeeping get(int i) {
+    if (i < 0 || i >= size())
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+
+    if (i < archivedSize)
+      return archive.get(owner, i);
+    else
+      return (DailyTimeKeeping) snapshot()[i - archivedSize];
+  }
+
+  @Override
+  public int size() {
+    load();
+    return archivedSize + index.size();
+  }
+
+  /**
+   * @effects return true if the records of this have been read (or this was created loaded)
+   */
+  public boolean isLoaded() {
+    return loader == null;
+  }
+
+  /**
+   * The iterator runs over the archived records (if any) and then over a snapshot of the other 
+   * records, so that {@link Iterator#remove()} can update the day map and the index through 
+   * {@link #remove(Object)}; like that, it leaves an archived record in the archive.
+   */
+  @Override
+  public Iterator<DailyTimeKeeping> iterator() {
+    load();
+    final Iterator<DailyTimeKeeping> archived = (archive != null) ? archive.iterator(owner) 
+        : Collections.<DailyTimeKeeping>emptyIterator();
+    final Object[] records = snapshot();
+    return new Iterator<DailyTimeKeeping>() {
+      private static final int ARCHIVED = -2;
+      private int next;
+      private int last = -1;
+      private int expectedModCount = modCount;
+
+      @Override
+      public boolean hasNext() {
+        return archived.hasNext() || next < records.length;
+      }
+
+      @Override
+      public DailyTimeKeeping next() {
+        if (modCount != expectedModCount)
+          throw new ConcurrentModificationException();
+        if (archived.hasNext()) {
+          last = ARCHIVED;
+          return archived.next();
+        }
+        if (next >= records.length)
+          throw new NoSuchElementException();
+
+        last = next++;
+        return (DailyTimeKeeping) records[last];
+      }
+
+      @Override
+      public void remove() {
+        if (last == -1)
+          throw new IllegalStateException();
+        if (modCount != expectedModCount)
+          throw new ConcurrentModificationException();
+        if (last == ARCHIVED) {
+          last = -1;
+          return;
+        }
+
+        TimeKeepingLog.this.remove(records[last]);
+        last = -1;
+        expectedModCount = modCount;
+      }
+    };
+  }
+
+  /**
+   * @effects
+   *  return the records of this in date order, rebuilding {@link #snapshot} if it is out-of-date
+   */
+  private Object[] snapshot() {
+    if (snapshot == null) {
+      Object[] records = new Object[index.size()];
+      int j = 0;
+      for (List<DailyTimeKeeping> dayRecords : days.values()) {
+        for (DailyTimeKeeping d : dayRecords)
+          records[j++] = d;
+      }
+      snapshot = records;
+    }
+    return snapshot;
+  }
+
+  /**
+   * @effects
+   *  if this is not loaded
+   *    read the records of this, add those that are not in this and mark this as loaded
+   */
+  private void load() {
+    if (loader != null) {
+      Loader l = loader;
+      loader = null;
+      loadedRanges.clear();
+      merge(l.load(owner, null, null));
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  if this is not loaded and the records of the days <tt>[fromDay, toDay]</tt> have not all been read
+   *    if the loader can read a range of days
+   *      read the records of the days <tt>[fromDay, toDay]</tt>, add those that are not in this and
+   *      remember that they have been read
+   *    else
+   *      load this</pre>
+   */
+  private void load(int fromDay, int toDay) {
+    if (loader == null || isLoaded(fromDay, toDay))
+      return;
+
+    if (loader.canLoadRange()) {
+      merge(loader.load(owner, fromDay, toDay));
+      addLoadedRange(fromDay, toDay);
+    } else {
+      load();
+    }
+  }
+
+  /**
+   * @effects return true if the records of the days <tt>[fromDay, toDay]</tt> have been read
+   */
+  private boolean isLoaded(int fromDay, int toDay) {
+    Map.Entry<Integer, Integer> range = loadedRanges.floorEntry(fromDay);
+    return range != null && range.getValue() >= toDay;
+  }
+
+  /**
+   * @effects
+   *  add <tt>[fromDay, toDay]</tt> to {@link #loadedRanges}, merging it with the ranges that overlap
+   *  or are next to it
+   */
+  private void addLoadedRange(int fromDay, int toDay) {
+    Map.Entry<Integer, Integer> before = loadedRanges.floorEntry(fromDay);
+    if (before != null && before.getValue() >= fromDay - 1) {
+      fromDay = before.getKey();
+      toDay = Math.max(toDay, before.getValue());
+    }
+
+    Map<Integer, Integer> after = loadedRanges.subMap(fromDay, true, toDay + 1, true);
+    for (int last : after.values())
+      toDay = Math.max(toDay, last);
+    after.clear();
+
+    loadedRanges.put(fromDay, toDay);
+  }
+
+  private void merge(Collection<DailyTimeKeeping> records) {
+    if (records == null)
+      return;
+
+    boolean added = false;
+    for (DailyTimeKeeping d : records) {
+      if (!has(d) && !isInArchivedPeriod(d.getWorkDay())) {
+        file(d, d.getWorkDay());
+        count(d, 1);
+        added = true;
+      }
+    }
+    if (added)
+      changed();
+  }
+
+  /**
+   * @effects
+   *  return true if <tt>o</tt> is a record of this that has been read or added
+   */
+  private boolean has(Object o) {
+    return index.containsKey(o) || isArchived(o);
+  }
+
+  /**
+   * @effects
+   *  return true if <tt>o</tt> is a record of this in {@link #archive}
+   */
+  private boolean isArchived(Object o) {
+    return archivedSize > 0 && (o instanceof DailyTimeKeeping)
+        && archive.contains(owner, (DailyTimeKeeping) o);
+  }
+
+  /**
+   * @effects
+   *  if <tt>day</tt> is in the archived period of this
+   *    throws ConstraintViolationException
+   */
+  public void checkNotArchived(int day) throws ConstraintViolationException {
+    if (isInArchivedPeriod(day))
+      throw new ConstraintViolationException(ConstraintViolationException.Code.INVALID_DATE_VALUE_NOT_IN_RANGE,
+          new Object[] {WorkDates.format(day), WorkDates.format(archive.getCutoffDay())});
+  }
+
+  /**
+   * @effects
+   *  return true if <tt>day</tt> is a valid day before the cut-off day of {@link #archive}
+   */
+  private boolean isInArchivedPeriod(int day) {
+    return archive != null && day != WorkDates.NO_DAY && day < archive.getCutoffDay();
+  }
+
+  /**
+   * @effects
+   *  add d to the records of <tt>day</tt> and to {@link #index}
+   */
+  private void file(DailyTimeKeeping d, int day) {
+    List<DailyTimeKeeping> records = days.get(day);
+    if (records == null) {
+      records = new ArrayList<>(2);
+      days.put(day, records);
+    }
+    records.add(d);
+    index.put(d, day);
+  }
+
+  /**
+   * @effects
+   *  remove o from the records of <tt>day</tt>, removing the day if it becomes empty
+   */
+  private void unfile(Object o, int day) {
+    List<DailyTimeKeeping> records = days.get(day);
+    if (records != null) {
+      records.remove(o);
+      if (records.isEmpty())
+        days.remove(day);
+    }
+  }
+
+  /**
+   * @effects
+   *  add (<tt>sign = 1</tt>) or remove (<tt>sign = -1</tt>) the hours of <tt>d</tt> to/from the hour totals
+   *  of {@link #owner} (and so of its department) and of the type of work of <tt>d</tt>, which are shared
+   *  with the logs of other employees and so are updated under their locks
+   */
+  private void count(DailyTimeKeeping d, int sign) {
+    int hours = sign * d.getHourOfWork();
+    if (hours == 0)
+      return;
+
+    owner.addHoursOfWork(hours);
+    if (d.getTypeOfWork() != null)
+      d.getTypeOfWork().addHoursOfWork(hours);
+  }
+
+  /**
+   * @effects
+   *  {@link #count(DailyTimeKeeping, int)} the records of {@link #owner} in {@link #archive} (if any)
+   */
+  private void countArchived(int sign) {
+    if (archive != null) {
+      for (Iterator<DailyTimeKeeping> it = archive.iterator(owner); it.hasNext(); )
+        count(it.next(), sign);
+    }
+  }
+
+  /**
+   * @effects
+   *  invalidate {@link #snapshot} and record a structural change of this
+   */
+  private void changed() {
+    snapshot = null;
+    modCount++;
+  }
+
+  /**
+   * @effects
+   *  return a read-only {@link Iterable} over the records of the day lists in <tt>dayLists</tt>, in order
+   */
+  private static Iterable<DailyTimeKeeping> flatten(final Collection<List<DailyTimeKeeping>> dayLists) {
+    return () -> new Iterator<DailyTimeKeeping>() {
+      private final Iterator<List<DailyTimeKeeping>> dayIt = dayLists.iterator();
+      private Iterator<DailyTimeKeeping> recIt = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext() {
+        while (!recIt.hasNext() && dayIt.hasNext()) {
+          recIt = dayIt.next().iterator();
+        }
+        return recIt.hasNext();
+      }
+
+      @Override
+      public DailyTimeKeeping next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+
+        return recIt.next();
+      }
+    };
+  }
+}
@@ -0,0 +1,427 @@
+package klk59.hr.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.Oid;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * A read-only archive of the {@link DailyTimeKeeping} records of closed pay periods.
+ *
+ * <p>The records are kept outside the Java heap, in one direct {@link ByteBuffer} per column: record id,
+ * type of work, work day (epoch day) and hours of work (a <tt>short</tt>). The type of work column
+ * holds ordinals into a small dictionary of the {@link TypeOfWork} objects. The rows are sorted by employee
+ * and then by work day, so that the rows of an employee are a contiguous slice and the rows of a
+ * date range within the slice are found by binary search. The slices are looked up by employee id,
+ * so that the archive does not keep the {@link Employee} objects reachable.
+ *
+ * <p>An archive is created by {@link #archive(Collection, String)}, which moves the records that are older
+ * than a cut-off date out of the {@link TimeKeepingLog}s of the employees. The logs keep a reference to the
+ * archive, so that {@link Employee#getDailyTimeKeeping()} still iterates the full history: archived
+ * records are re-created as (short-lived) {@link DailyTimeKeeping} objects when they are read. These
+ * are equal to each other but not identical, and they are read-only (their setters throw
+ * ConstraintViolationException), so that a change to an archived record cannot be silently lost.
+ *
+ * <p>{@link #archive(DOMBasic, Collection, String)} also removes the archived records from the object pool,
+ * so that nothing on the heap refers to them any more; they stay in the data source.
+ *
+ * @author agent
+ */
+public class TimeSheetArchive {
+  private static final int INT_BYTES = 4;
+  private static final int SHORT_BYTES = 2;
+
+  /** the first work day that is not archived */
+  private final int cutoffDay;
+
+  private final int size;
+
+  /** employee id -> ordinal of the employee in the employee column */
+  private final Map<String, Integer> employeeOrdinals;
+
+  /** the rows of employee <tt>i</tt> are <tt>[employeeStart[i], employeeStart[i+1])</tt> */
+  private final int[] employeeStart;
+
+  private final TypeOfWork[] typesOfWork;
+
+  // the columns (off-heap)
+  private final IntBuffer ids;
+  private final IntBuffer types;
+  private final IntBuffer days;
+  private final ShortBuffer hours;
+
+  private TimeSheetArchive(int cutoffDay, List<DailyTimeKeeping> rows) {
+    this.cutoffDay = cutoffDay;
+    this.size = rows.size();
+
+    // dictionaries
+    employeeOrdinals = new HashMap<>();
+    Map<TypeOfWork, Integer> typeOrdinals = new IdentityHashMap<>();
+    List<TypeOfWork> typeList = new ArrayList<>();
+    for (DailyTimeKeeping d : rows) {
+      String empId = d.getEmployee().getId();
+      if (!employeeOrdinals.containsKey(empId))
+        employeeOrdinals.put(empId, employeeOrdinals.size());
+      if (!typeOrdinals.containsKey(d.getTypeOfWork())) {
+        typeOrdinals.put(d.getTypeOfWork(), typeList.size());
+        typeList.add(d.getTypeOfWork());
+      }
+    }
+    int numEmployees = employeeOrdinals.size();
+    typesOfWork = typeList.toArray(new TypeOfWork[typeList.size()]);
+
+    // sort the rows by employee ordinal, then by work day
+    DailyTimeKeeping[] sorted = rows.toArray(new DailyTimeKeeping[size]);
+    Arrays.sort(sorted, Comparator
+        .comparingInt((DailyTimeKeeping d) -> employeeOrdinals.get(d.getEmployee().getId()))
+        .thenComparingInt(DailyTimeKeeping::getWorkDay));
+
+    // columns
+    ids = column(INT_BYTES).asIntBuffer();
+    types = column(INT_BYTES).asIntBuffer();
+    days = column(INT_BYTES).asIntBuffer();
+    hours = column(SHORT_BYTES).asShortBuffer();
+
+    employeeStart = new int[numEmployees + 1];
+    int prevEmp = -1;
+    for (int i = 0; i < size; i++) {
+      DailyTimeKeeping d = sorted[i];
+      int emp = employeeOrdinals.get(d.getEmployee().getId());
+      while (prevEmp < emp) {
+        employeeStart[++prevEmp] = i;
+      }
+
+      ids.put(i, d.getId());
+      types.put(i, typeOrdinals.get(d.getTypeOfWork()));
+      days.put(i, d.getWorkDay());
+      // checked by archive
+      hours.put(i, (short) d.getHourOfWork());
+    }
+    employeeStart[numEmployees] = size;
+  }
+
+  /**
+   * @effects
+   *  return a new direct buffer of <tt>size</tt> values of <tt>valueBytes</tt> bytes each;
+   *  throws NotPossibleException if it would be larger than a buffer can be
+   */
+  private ByteBuffer column(int valueBytes) throws NotPossibleException {
+    long bytes = (long) size * valueBytes;
+    if (bytes > Integer.MAX_VALUE)
+      throw new NotPossibleException(NotPossibleException.Code.FAIL_TO_PERFORM,
+          new Object[] {"archive " + size + " dailyTimeKeeping records in one TimeSheetArchive"});
+
+    return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @effects
+   *  move the time-keeping records of <tt>employees</tt> whose work dates are before <tt>cutoffDate</tt>
+   *  into a new archive and attach the archive to the {@link TimeKeepingLog} of each employee;
+   *  return the archive.
+   *
+   *  <p>The records of an employee that is already archived are moved from its current archive into the
+   *  new one, so that the cut-off date of the employees can be rolled forward, period by period.
+   *
+   *  <p>The archived records stay in the object pool (if they are there); use
+   *  {@link #archive(DOMBasic, Collection, String)} to remove them from it.
+   *
+   *  <p>throws ConstraintViolationException if <tt>cutoffDate</tt> is not a valid date or is before the
+   *  cut-off date of the current archive of an employee, or if the hours of work of a record are not a
+   *  <tt>short</tt> (only those that are read from the data source are not checked when they are created);
+   *  nothing is archived.
+   *  throws NotPossibleException if there are too many records for one archive
+   */
+  public static TimeSheetArchive archive(Collection<Employee> employees, String cutoffDate)
+      throws ConstraintViolationException, NotPossibleException {
+    int cutoffDay = WorkDates.parse(cutoffDate);
+
+    for (Employee e : employees) {
+      TimeSheetArchive current = e.getTimeKeepingLog().getArchive();
+      if (current != null && current.getCutoffDay() > cutoffDay)
+        throw new ConstraintViolationException(ConstraintViolationException.Code.INVALID_DATE_VALUE_NOT_IN_RANGE,
+            new Object[] {cutoffDate, WorkDates.format(current.getCutoffDay())});
+    }
+
+    List<DailyTimeKeeping> rows = new ArrayList<>();
+    for (Employee e : employees) {
+      // the records in the current archive of e (if any) are read from it
+      TimeKeepingLog log = e.getTimeKeepingLog();
+      Integer first = log.getFirstDay();
+      if (first != null && first < cutoffDay)
+        rows.addAll(log.getDays(first, cutoffDay - 1));
+    }
+
+    for (DailyTimeKeeping d : rows) {
+      int h = d.getHourOfWork();
+      if (h < Short.MIN_VALUE)
+        throw new ConstraintViolationException(ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN,
+            new Object[] {h, Short.MIN_VALUE});
+      if (h > Short.MAX_VALUE)
+        throw new ConstraintViolationException(ConstraintViolationException.Code.INVALID_VALUE_HIGHER_THAN_MAX,
+            new Object[] {h, Short.MAX_VALUE});
+    }
+
+    TimeSheetArchive archive = new TimeSheetArchive(cutoffDay, rows);
+    for (Employee e : employees) {
+      e.getTimeKeepingLog().attachArchive(archive);
+    }
+
+    return archive;
+  }
+
+  /**
+   * @effects
+   *  {@link #archive(Collection, String)} and remove the archived records from the object pool of
+   *  <tt>dom</tt> (not from its data source); return the archive
+   */
+  public static TimeSheetArchive archive(DOMBasic dom, Collection<Employee> employees, String cutoffDate)
+      throws ConstraintViolationException, NotPossibleException {
+    TimeSheetArchive archive = archive(employees, cutoffDate);
+
+    Set<Integer> archivedIds = new HashSet<>();
+    for (Employee e : employees) {
+      Integer emp = archive.employeeOrdinals.get(e.getId());
+      if (emp == null)
+        continue;
+      for (int i = archive.employeeStart[emp]; i < archive.employeeStart[emp + 1]; i++)
+        archivedIds.add(archive.ids.get(i));
+    }
+
+    // the pool's id range is that of the data source, which still has the records: so they are 
+    // removed through the iterator, which does not reset it as IdObjectMap.remove does
+    Iterator<Map.Entry<Oid, Object>> pool = dom.getObjectIterator(DailyTimeKeeping.class);
+    if (pool != null) {
+      while (pool.hasNext()) {
+        if (archivedIds.contains(((DailyTimeKeeping) pool.next().getValue()).getId()))
+          pool.remove();
+      }
+    }
+
+    return archive;
+  }
+
+  /**
+   * @effects return the first work day that is not in this
+   */
+  public int getCutoffDay() {
+    return cutoffDay;
+  }
+
+  /**
+   * @effects return the number of records in this
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @effects return the number of records of <tt>e</tt> in this
+   */
+  public int size(Employee e) {
+    Integer emp = employeeOrdinals.get(e.getId());
+    return (emp == null) ? 0 : employeeStart[emp + 1] - employeeStart[emp];
+  }
+
+  /**
+   * @effects return the total hours of work in this of the records whose work days are in <tt>[fromDay, toDay]</tt>
+   */
+  public int getHoursOfWork(int fromDay, int toDay) {
+    int hours = 0;
+    for (int i = 0; i < size; i++) {
+      int day = day(i);
+      if (day >= fromDay && day <= toDay)
+        hours += hours(i);
+    }
+    return hours;
+  }
+
+  /**
+   * @effects return the total hours of work in this of the records of <tt>e</tt> whose work days are in
+   *  <tt>[fromDay, toDay]</tt>
+   */
+  public int getHoursOfWork(Employee e, int fromDay, int toDay) {
+    Integer emp = employeeOrdinals.get(e.getId());
+    if (emp == null || fromDay > toDay)
+      return 0;
+
+    int end = employeeStart[emp + 1];
+    int hours = 0;
+    for (int i = lowerBound(employeeStart[emp], end, fromDay); i < end && day(i) <= toDay; i++) {
+      hours += hours(i);
+    }
+    return hours;
+  }
+
+  /**
+   * @effects return the total hours of work in this of the records of <tt>t</tt> whose work days are in
+   *  <tt>[fromDay, toDay]</tt>
+   */
+  public int getHoursOfWork(TypeOfWork t, int fromDay, int toDay) {
+    int type = -1;
+    for (int j = 0; j < typesOfWork.length; j++) {
+      if (typesOfWork[j] == t) {
+        type = j;
+        break;
+      }
+    }
+    if (type < 0)
+      return 0;
+
+    int hours = 0;
+    for (int i = 0; i < size; i++) {
+      int day = day(i);
+      if (types.get(i) == type && day >= fromDay && day <= toDay)
+        hours += hours(i);
+    }
+    return hours;
+  }
+
+  /**
+   * @effects
+   *  return the hours of work of each {@link TypeOfWork} in this, over the records whose work days are
+   *  in <tt>[fromDay, toDay]</tt>
+   */
+  public Map<TypeOfWork, Integer> getHoursOfWorkByType(int fromDay, int toDay) {
+    int[] totals = new int[typesOfWork.length];
+    for (int i = 0; i < size; i++) {
+      int day = day(i);
+      if (day >= fromDay && day <= toDay)
+        totals[types.get(i)] += hours(i);
+    }
+
+    Map<TypeOfWork, Integer> result = new HashMap<>();
+    for (int j = 0; j < totals.length; j++) {
+      if (totals[j] > 0)
+        result.put(typesOfWork[j], totals[j]);
+    }
+    return result;
+  }
+
+  /**
+   * @effects return the records of <tt>e</tt> in this whose work day is <tt>day</tt>
+   */
+  public List<DailyTimeKeeping> getDay(Employee e, int day) {
+    Integer emp = employeeOrdinals.get(e.getId());
+    if (emp == null)
+      return new ArrayList<>(0);
+
+    int end = employeeStart[emp + 1];
+    List<DailyTimeKeeping> records = new ArrayList<>(2);
+    for (int i = lowerBound(employeeStart[emp], end, day); i < end && day(i) == day; i++) {
+      records.add(row(e, i));
+    }
+    return records;
+  }
+
+  /**
+   * @effects return true if the record <tt>d</tt> of <tt>e</tt> is in this
+   */
+  public boolean contains(Employee e, DailyTimeKeeping d) {
+    Integer emp = employeeOrdinals.get(e.getId());
+    if (emp == null || d.getWorkDay() >= cutoffDay)
+      return false;
+
+    int end = employeeStart[emp + 1];
+    for (int i = lowerBound(employeeStart[emp], end, d.getWorkDay()); i < end && day(i) == d.getWorkDay(); i++) {
+      if (ids.get(i) == d.getId())
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @effects return the <tt>k</tt>'th record (in date order) of <tt>e</tt> in this
+   */
+  public DailyTimeKeeping get(Employee e, int k) {
+    Integer emp = employeeOrdinals.get(e.getId());
+    if (emp == null || k < 0 || k >= employeeStart[emp + 1] - employeeStart[emp])
+      throw new IndexOutOfBoundsException("TimeSheetArchive.get: " + k);
+
+    return row(e, employeeStart[emp] + k);
+  }
+
+  /**
+   * @effects return an iterator, in date order, over the records of <tt>e</tt> in this
+   */
+  public Iterator<DailyTimeKeeping> iterator(final Employee e) {
+    Integer emp = employeeOrdinals.get(e.getId());
+    final int start = (emp == null) ? 0 : employeeStart[emp];
+    final int end = (emp == null) ? 0 : employeeStart[emp + 1];
+    return new Iterator<DailyTimeKeeping>() {
+      private int next = start;
+
+      @Override
+      public boolean hasNext() {
+        return next < end;
+      }
+
+      @Override
+      public DailyTimeKeeping next() {
+        if (next >= end)
+          throw new NoSuchElementException();
+        return row(e, next++);
+      }
+    };
+  }
+
+  /**
+   * @requires row <tt>i</tt> is a record of <tt>e</tt>
+   * @effects return the (read-only) record in row <tt>i</tt>
+   */
+  private DailyTimeKeeping row(Employee e, int i) {
+    return new DailyTimeKeeping(
+        ids.get(i),
+        e,
+        typesOfWork[types.get(i)],
+        day(i),
+        hours.get(i));
+  }
+
+  private int day(int i) {
+    return days.get(i);
+  }
+
+  private int hours(int i) {
+    return hours.get(i);
+  }
+
+  /**
+   * @effects return the first row in <tt>[from, to)</tt> whose work day is <tt>&gt;= day</tt>
+   *  (<tt>to</tt> if there is none)
+   */
+  private int lowerBound(int from, int to, int day) {
+    int lo = from, hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (day(mid) < day)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  @Override
+  public String toString() {
+    return "TimeSheetArchive(" + size + " records before " + WorkDates.format(cutoffDay) + ")";
+  }
+}
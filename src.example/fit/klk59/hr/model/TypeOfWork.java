@@ -13,11 +13,15 @@ public class TypeOfWork {
 	// attributes
 	@DAttr(name="id",id=true,auto=true,type=Type.Integer,length=3,mutable=false,optional=false)
 	private int id;
-	private static int idCounter;
 	
 	@DAttr(name="name",type=Type.String,length=30,optional=false)
 	private String name;
 	
+	/** the total hours of work of the time-keeping records of this type */
+	@DAttr(name="totalHoursOfWork",type=Type.Integer,length=10,auto=true,mutable=false,optional=true,
+	    serialisable=false)
+	private int totalHoursOfWork;
+	
 	// constructor method: create objects from data source
 	@DOpt(type=DOpt.Type.ObjectFormConstructor)
 	@DOpt(type=DOpt.Type.RequiredConstructor)
@@ -35,12 +39,9 @@ public class TypeOfWork {
 	
 	private static int nextID(Integer currID) {
 	    if (currID == null) {
-	      idCounter++;
-	      return idCounter;
+	      return IDAllocator.nextID(TypeOfWork.class);
 	    } else {
-	      int num = currID.intValue();
-	      if (num > idCounter)
-	        idCounter = num;
+	      IDAllocator.update(TypeOfWork.class, currID.intValue());
 	      
 	      return currID;
 	    }
@@ -55,11 +56,27 @@ public class TypeOfWork {
 	    this.name = name;
 	}
 	
+	/**
+	 * @effects 
+	 *  add <tt>hours</tt> (which may be negative) to {@link #totalHoursOfWork}
+	 */
+	synchronized void addHoursOfWork(int hours) {
+	    totalHoursOfWork += hours;
+	}
+	
 	// getter methods
 	public String getName() {
 	    return name;
 	}
 	
+	/**
+	 * @effects return the total hours of work of the time-keeping records of this type that have been 
+	 *  read or added (see {@link Employee#getTotalHoursOfWork()})
+	 */
+	public synchronized int getTotalHoursOfWork() {
+	    return totalHoursOfWork;
+	}
+	
 	// override toString
 	  @Override
 	  public String toString() {
@@ -68,12 +85,25 @@ public class TypeOfWork {
 	  }
 
 	 
+	  @Override
+	  public int hashCode() {
+	    final int prime = 31;
+	    int result = 1;
+	    result = prime * result + id;
+	    return result;
+	  }
+
 	  @Override
 	  public boolean equals(Object obj) {
 	    if (this == obj)
 	      return true;
 	    if (obj == null)
 	      return false;
+	    if (getClass() != obj.getClass())
+	      return false;
+	    TypeOfWork other = (TypeOfWork) obj;
+	    if (id != other.id)
+	      return false;
 	    return true;
 	  }
 	  
@@ -92,9 +122,7 @@ public class TypeOfWork {
 	    
 	    if (minVal != null && maxVal != null) {
 	      //TODO: update this for the correct attribute if there are more than one auto attributes of this class 
-	      int maxIdVal = (Integer) maxVal;
-	      if (maxIdVal > idCounter)  
-	        idCounter = maxIdVal;
+	      IDAllocator.synchronise(TypeOfWork.class, attrib, maxVal);
 	    }
 	  }
 }
@@ -0,0 +1,370 @@
+package klk59.hr.model.io;
+
+import java.sql.Connection;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.DataSourceException;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.SalaryGrades;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * A generator of synthetic HR data for scale testing: cities, departments, job qualifications
+ * (one per {@link SalaryGrades salary grade}), types of work, employees and a time-keeping record
+ * for every working day (Monday to Friday) of a period for each employee.
+ *
+ * <p>The data is a function of the seed and the settings only: each employee is generated from its own
+ * {@link SplittableRandom}, which is seeded from the seed and the employee's number, so the same
+ * employees and records are generated whatever the number of threads. The ids of the generated objects
+ * are allocated from {@link IDAllocator} and so depend on the objects that already exist.
+ *
+ * <p>Employees are generated in chunks of {@link #setChunkSize(int)}. The employees of a chunk are
+ * created and passed to the {@link Sink}, then their records are created in parallel (in a
+ * {@link ForkJoinPool}) and passed to the sink one employee at a time, in employee order. Only one chunk
+ * of records is held by the generator at a time.
+ *
+ * @author agent
+ */
+public class SyntheticDataGenerator {
+  /**
+   * Receives the generated objects, in the order in which they may be stored: reference objects first, then
+   * each chunk of employees followed by their time-keeping records, then {@link #end()}. The methods are
+   * called by one thread.
+   */
+  public static interface Sink {
+    void referenceData(List<City> cities, List<Department> departments,
+        List<JobQualification> positions, List<TypeOfWork> typesOfWork) throws DataSourceException;
+
+    void employees(List<Employee> employees) throws DataSourceException;
+
+    void dailyTimeKeeping(Employee e, List<DailyTimeKeeping> records) throws DataSourceException;
+
+    /**
+     * @effects store the objects that have been passed to this and have not been stored
+     */
+    void end() throws DataSourceException;
+  }
+
+  /** the names of the generated types of work, and the percentage of records of each type */
+  private static final String[] TYPES_OF_WORK = {"normal", "overtime", "night", "holiday"};
+  private static final int[] TYPE_PERCENTAGES = {80, 10, 5, 5};
+
+  private static final String[] FIRST_NAMES = {"An", "Binh", "Chau", "Dung", "Giang", "Ha", "Hai", "Hoa",
+      "Hung", "Lan", "Linh", "Long", "Mai", "Minh", "Nam", "Ngoc", "Phong", "Quang", "Son", "Thao", "Trang",
+      "Tuan", "Viet", "Yen"};
+  private static final String[] LAST_NAMES = {"Nguyen", "Tran", "Le", "Pham", "Hoang", "Phan", "Vu", "Vo",
+      "Dang", "Bui", "Do", "Ho", "Ngo", "Duong", "Ly"};
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+
+  private int numEmployees = 1000;
+  private int numDepartments = 20;
+  private int numCities = 10;
+  private String fromDate = "2018-01-01";
+  private int numDays = 31;
+  private int chunkSize = 1024;
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+  /**
+   * @effects initialise this to generate the data of <tt>seed</tt>
+   */
+  public SyntheticDataGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  public SyntheticDataGenerator setNumEmployees(int n) throws ConstraintViolationException {
+    numEmployees = checkMin(n, 0);
+    return this;
+  }
+
+  public SyntheticDataGenerator setNumDepartments(int n) throws ConstraintViolationException {
+    numDepartments = checkMin(n, 1);
+    return this;
+  }
+
+  public SyntheticDataGenerator setNumCities(int n) throws ConstraintViolationException {
+    numCities = checkMin(n, 1);
+    return this;
+  }
+
+  /**
+   * @effects <pre>
+   *  set the period of the generated records to the <tt>numDays</tt> days from <tt>fromDate</tt>;
+   *  throws ConstraintViolationException if fromDate is not valid or numDays &lt; 0</pre>
+   */
+  public SyntheticDataGenerator setPeriod(String fromDate, int numDays) throws ConstraintViolationException {
+    WorkDates.parse(fromDate);
+    this.numDays = checkMin(numDays, 0);
+    this.fromDate = fromDate;
+    return this;
+  }
+
+  public SyntheticDataGenerator setChunkSize(int n) throws ConstraintViolationException {
+    chunkSize = checkMin(n, 1);
+    return this;
+  }
+
+  public SyntheticDataGenerator setPool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  /**
+   * @effects <pre>
+   *  generate the data of this into <tt>sink</tt>
+   *  throws DataSourceException if the sink fails to store the data</pre>
+   */
+  public void generate(Sink sink) throws DataSourceException {
+    // reference data
+    List<City> cities = new ArrayList<>(numCities);
+    for (int i = 1; i <= numCities; i++)
+      cities.add(new City("City " + i));
+
+    List<Department> departments = new ArrayList<>(numDepartments);
+    for (int i = 1; i <= numDepartments; i++)
+      departments.add(new Department("Department " + i));
+
+    List<JobQualification> positions = new ArrayList<>();
+    for (String level : new TreeSet<>(SalaryGrades.getGrades().keySet()))
+      positions.add(new JobQualification(level));
+
+    List<TypeOfWork> types = new ArrayList<>(TYPES_OF_WORK.length);
+    for (String name : TYPES_OF_WORK)
+      types.add(new TypeOfWork(name));
+
+    sink.referenceData(cities, departments, positions, types);
+
+    // the working days of the period, as epoch days and as date strings
+    LocalDate first = LocalDate.ofEpochDay(WorkDates.parse(fromDate));
+    List<String> days = new ArrayList<>();
+    for (int d = 0; d < numDays; d++) {
+      LocalDate date = first.plusDays(d);
+      if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY)
+        days.add(WorkDates.format((int) date.toEpochDay()));
+    }
+    String[] workDays = days.toArray(new String[days.size()]);
+
+    TypeOfWork[] typeArray = types.toArray(new TypeOfWork[types.size()]);
+
+    // employees, by chunk
+    for (int from = 0; from < numEmployees; from += chunkSize) {
+      int to = Math.min(from + chunkSize, numEmployees);
+
+      Employee[] chunk = new Employee[to - from];
+      for (int i = from; i < to; i++)
+        chunk[i - from] = employee(i, cities, departments, positions);
+      sink.employees(Arrays.asList(chunk));
+
+      if (workDays.length > 0) {
+        int firstId = IDAllocator.reserve(DailyTimeKeeping.class, chunk.length * workDays.length).next();
+        DailyTimeKeeping[][] records = new DailyTimeKeeping[chunk.length][];
+        pool.invoke(new RecordTask(chunk, from, records, 0, chunk.length, workDays, typeArray, firstId));
+
+        for (int k = 0; k < chunk.length; k++)
+          sink.dailyTimeKeeping(chunk[k], Arrays.asList(records[k]));
+      }
+    }
+
+    sink.end();
+  }
+
+  /**
+   * @effects return a sink that links the generated objects in memory
+   */
+  public static Sink toModel() {
+    return new ModelSink(null);
+  }
+
+  /**
+   * @effects return a sink that adds the generated objects to <tt>dom</tt>, writes them to its data source
+   *  through a {@link WriteBehindStore} and links them in memory
+   */
+  public static Sink toDataSource(DOMBasic dom) {
+    return toDataSource(dom, null);
+  }
+
+  /**
+   * @effects return a sink that adds the generated objects to <tt>dom</tt>, writes them to its data source
+   *  in JDBC batches through <tt>conn</tt> (see {@link WriteBehindStore#setBatchConnection(Connection)})
+   *  and links them in memory
+   */
+  public static Sink toDataSource(DOMBasic dom, Connection conn) {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT);
+    store.setBatchConnection(conn);
+    return new ModelSink(store);
+  }
+
+  /**
+   * @effects return the employee number <tt>i</tt>
+   */
+  private Employee employee(int i, List<City> cities, List<Department> departments,
+      List<JobQualification> positions) {
+    SplittableRandom rnd = random(i, 0);
+
+    String first = FIRST_NAMES[rnd.nextInt(FIRST_NAMES.length)];
+    String last = LAST_NAMES[rnd.nextInt(LAST_NAMES.length)];
+    String dob = WorkDates.format((int) LocalDate.of(1960, 1, 1).toEpochDay() + rnd.nextInt(40 * 365));
+
+    return new Employee(last + " " + first, dob,
+        (first + "." + last + i + "@example.com").toLowerCase(),
+        "09" + digits(rnd, 8),
+        digits(rnd, 12),
+        digits(rnd, 10),
+        cities.get(rnd.nextInt(cities.size())),
+        departments.get(rnd.nextInt(departments.size())),
+        positions.isEmpty() ? null : positions.get(rnd.nextInt(positions.size())));
+  }
+
+  /**
+   * @effects return the generator of the values of the employee number <tt>i</tt> for <tt>stream</tt>
+   */
+  private SplittableRandom random(int i, int stream) {
+    return new SplittableRandom(seed + (2L * i + stream + 1) * GOLDEN_GAMMA);
+  }
+
+  private static String digits(SplittableRandom rnd, int n) {
+    char[] c = new char[n];
+    for (int i = 0; i < n; i++)
+      c[i] = (char) ('0' + rnd.nextInt(10));
+    return new String(c);
+  }
+
+  private static int checkMin(int n, int min) throws ConstraintViolationException {
+    if (n < min)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {n, min});
+    return n;
+  }
+
+  /**
+   * Creates the records of <tt>employees[from, to)</tt> into <tt>records[from, to)</tt>.
+   */
+  private class RecordTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private final Employee[] employees;
+    /** the number of employees[0] */
+    private final int base;
+    private final DailyTimeKeeping[][] records;
+    private final int from, to;
+    private final String[] workDays;
+    private final TypeOfWork[] types;
+    private final int firstId;
+
+    RecordTask(Employee[] employees, int base, DailyTimeKeeping[][] records, int from, int to,
+        String[] workDays, TypeOfWork[] types, int firstId) {
+      this.employees = employees;
+      this.base = base;
+      this.records = records;
+      this.from = from;
+      this.to = to;
+      this.workDays = workDays;
+      this.types = types;
+      this.firstId = firstId;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SPLIT_THRESHOLD) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new RecordTask(employees, base, records, from, mid, workDays, types, firstId),
+            new RecordTask(employees, base, records, mid, to, workDays, types, firstId));
+        return;
+      }
+
+      for (int k = from; k < to; k++) {
+        SplittableRandom rnd = random(base + k, 1);
+        DailyTimeKeeping[] recs = new DailyTimeKeeping[workDays.length];
+        int id = firstId + k * workDays.length;
+        for (int d = 0; d < workDays.length; d++) {
+          recs[d] = new DailyTimeKeeping(id + d, employees[k], type(rnd.nextInt(100)),
+              workDays[d], 4 + rnd.nextInt(7));
+        }
+        records[k] = recs;
+      }
+    }
+
+    private TypeOfWork type(int percentile) {
+      for (int t = 0; t < TYPE_PERCENTAGES.length; t++) {
+        percentile -= TYPE_PERCENTAGES[t];
+        if (percentile < 0)
+          return types[t];
+      }
+      return types[0];
+    }
+  }
+
+  /**
+   * Links the generated objects in memory and, if it has an object manager, adds them to it.
+   */
+  private static class ModelSink implements Sink {
+    /** the store of the objects, or <tt>null</tt> if they are only linked in memory */
+    private final WriteBehindStore store;
+
+    ModelSink(WriteBehindStore store) {
+      this.store = store;
+    }
+
+    @Override
+    public void referenceData(List<City> cities, List<Department> departments,
+        List<JobQualification> positions, List<TypeOfWork> typesOfWork) throws DataSourceException {
+      add(cities);
+      add(departments);
+      add(positions);
+      add(typesOfWork);
+    }
+
+    @Override
+    public void employees(List<Employee> employees) throws DataSourceException {
+      add(employees);
+
+      for (Employee e : employees) {
+        if (e.getCity() != null)
+          e.getCity().addNewEmployee(e);
+        if (e.getDepartment() != null)
+          e.getDepartment().addNewEmployee(e);
+        if (e.getPosition() != null)
+          e.getPosition().addNewEmployee(e);
+      }
+    }
+
+    @Override
+    public void dailyTimeKeeping(Employee e, List<DailyTimeKeeping> records) throws DataSourceException {
+      add(records);
+      e.addNewDailyTimeKeeping(records);
+    }
+
+    @Override
+    public void end() throws DataSourceException {
+      if (store != null)
+        store.close();
+    }
+
+    private void add(Collection<?> objects) throws DataSourceException {
+      if (store != null) {
+        for (Object o : objects)
+          store.create(o);
+      }
+    }
+  }
+}
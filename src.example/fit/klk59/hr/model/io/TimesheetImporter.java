@@ -0,0 +1,569 @@
+package klk59.hr.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.Oid;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.ReferenceDataCache;
+import klk59.hr.model.TimeSheetArchive;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * A streaming importer of time-clock exports into {@link DailyTimeKeeping} records.
+ *
+ * <p>The input is a CSV file with one record per line:
+ * <pre>
+ *  employeeId,typeOfWork,dateOfWork,hourOfWork</pre>
+ * where <tt>typeOfWork</tt> is the id or the name of a {@link TypeOfWork} and <tt>dateOfWork</tt> is in one
+ * of the formats of {@link WorkDates#parse(String)}. A first line whose last field is not a number
+ * is taken to be a header and is skipped.
+ *
+ * <p>The file is read through a {@link FileChannel} into one direct buffer, and the fields of a line
+ * are parsed in the buffer: only the date (and the employee id, when it differs from that of
+ * the previous line) are copied into strings. Employees and types of work are resolved through
+ * in-memory maps that are filled by {@link #addEmployees(Collection)}, {@link #addTypesOfWork(Collection)}
+ * or {@link #loadReferences()}; a type of work id that is not in the map is resolved through the
+ * {@link ReferenceDataCache}.
+ *
+ * <p>A line is validated before a record is created for it: its date must be valid and after the
+ * archive cut-off of the employee (see {@link TimeSheetArchive}) and its hours must be at most
+ * {@link DailyTimeKeeping#MAX_HOUR_OF_WORK}. The records are then created through the
+ * <tt>DataSourceConstructor</tt> of {@link DailyTimeKeeping}, with ids that are reserved in blocks from
+ * {@link IDAllocator}, and are written in batches: each batch is written to the data source (if any)
+ * through a {@link WriteBehindStore}, which inserts it with one JDBC batch if a connection is given by
+ * {@link #setBatchConnection(Connection)}, and only then attached to the employees with one
+ * {@link Employee#addNewDailyTimeKeeping(List)} call per employee, so that the records and the hours
+ * of work in memory are those that have been written.
+ *
+ * <p>An importer is not thread-safe.
+ *
+ * @author agent
+ */
+public class TimesheetImporter {
+  /** the default number of records per batch */
+  public static final int DEFAULT_BATCH_SIZE = 5000;
+
+  /** the size of the read buffer, which is also the maximum length of a line */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /** the maximum number of error messages that are kept in {@link Stats} */
+  private static final int MAX_ERRORS = 100;
+
+  /** the object manager to which the records are added, or <tt>null</tt> to only update the model */
+  private final DOMBasic dom;
+
+  private final Map<String, Employee> employees = new HashMap<>();
+  private final Map<Integer, TypeOfWork> typesById = new HashMap<>();
+  private final Map<String, TypeOfWork> typesByName = new HashMap<>();
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  /** the connection through which the records are inserted in batches, or <tt>null</tt> */
+  private Connection batchConnection;
+
+  // the state of the current import
+  private Stats stats;
+  private List<DailyTimeKeeping> batch;
+  private WriteBehindStore store;
+  private IDAllocator.Block ids;
+  private boolean firstLine;
+
+  /** the employee of the previous line and its id (as bytes) */
+  private Employee lastEmployee;
+  private byte[] lastEmployeeId = new byte[0];
+
+  /**
+   * @effects
+   *  initialise this to import records into the model and, if <tt>dom != null</tt>, into the
+   *  data source of <tt>dom</tt>
+   */
+  public TimesheetImporter(DOMBasic dom) {
+    this.dom = dom;
+  }
+
+  /**
+   * @effects <pre>
+   *  if size &gt; 0
+   *    set the number of records that are written together to <tt>size</tt>
+   *  else
+   *    throws ConstraintViolationException</pre>
+   */
+  public void setBatchSize(int size) throws ConstraintViolationException {
+    if (size <= 0)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {size, 1});
+
+    batchSize = size;
+  }
+
+  /**
+   * @effects
+   *  insert the records into the data source in JDBC batches through <tt>conn</tt>
+   *  (see {@link WriteBehindStore#setBatchConnection(Connection)})
+   */
+  public void setBatchConnection(Connection conn) {
+    batchConnection = conn;
+  }
+
+  /**
+   * @effects
+   *  add <tt>employees</tt> to the employees that can be referred to by the input
+   */
+  public void addEmployees(Collection<Employee> employees) {
+    for (Employee e : employees)
+      this.employees.put(e.getId(), e);
+  }
+
+  /**
+   * @effects
+   *  add <tt>types</tt> to the types of work that can be referred to by the input
+   */
+  public void addTypesOfWork(Collection<TypeOfWork> types) {
+    for (TypeOfWork t : types) {
+      typesById.put(t.getId(), t);
+      if (t.getName() != null)
+        typesByName.put(t.getName(), t);
+    }
+  }
+
+  /**
+   * @requires
+   *  the objects of Employee and TypeOfWork have been loaded into the object manager of this
+   * @effects <pre>
+   *  add the employees and types of work of the object manager of this to the references of the input
+   *  throws NotFoundException, NotPossibleException if fails to read the objects</pre>
+   */
+  @SuppressWarnings("unchecked")
+  public void loadReferences() throws NotFoundException, NotPossibleException {
+    if (dom == null)
+      return;
+
+    Collection<Employee> emps = dom.getObjects(Employee.class);
+    if (emps != null)
+      addEmployees(emps);
+
+    Collection<TypeOfWork> types = dom.getObjects(TypeOfWork.class);
+    if (types != null)
+      addTypesOfWork(types);
+  }
+
+  /**
+   * @effects <pre>
+   *  import the records of the CSV file <tt>file</tt> and return the statistics of the import;
+   *  lines that are not valid are skipped and reported in the statistics.
+   *
+   *  throws IOException if fails to read the file,
+   *    DataSourceException if fails to write a batch to the data source</pre>
+   */
+  public Stats importFile(Path file) throws IOException, DataSourceException {
+    stats = new Stats();
+    batch = new ArrayList<>(batchSize);
+    ids = null;
+    firstLine = true;
+    lastEmployee = null;
+    lastEmployeeId = new byte[0];
+    if (dom != null) {
+      // written by flush(), before the store would write them on its own
+      store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT, batchSize + 1,
+          WriteBehindStore.DEFAULT_MAX_DELAY_MILLIS);
+      store.setBatchConnection(batchConnection);
+    }
+
+    long start = System.nanoTime();
+    Throwable failure = null;
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      boolean eof = false;
+      while (!eof) {
+        eof = ch.read(buf) < 0;
+        buf.flip();
+
+        // process the complete lines in the buffer
+        int lineStart = buf.position();
+        int limit = buf.limit();
+        for (int i = lineStart; i < limit; i++) {
+          if (buf.get(i) == '\n') {
+            parseLine(buf, lineStart, i);
+            lineStart = i + 1;
+          }
+        }
+
+        if (eof) {
+          if (lineStart < limit)
+            parseLine(buf, lineStart, limit);
+        } else {
+          // keep the incomplete last line
+          buf.position(lineStart);
+          buf.compact();
+          if (!buf.hasRemaining())
+            throw new IOException("TimesheetImporter: line " + (stats.lines + 1) + " is longer than " + BUFFER_SIZE + " bytes");
+        }
+      }
+
+      flush();
+    } catch (Throwable ex) {
+      failure = ex;
+      throw ex;
+    } finally {
+      try {
+        if (store != null)
+          closeStore(failure);
+      } finally {
+        stats.elapsedNanos = System.nanoTime() - start;
+        batch = null;
+        ids = null;
+        store = null;
+      }
+    }
+
+    return stats;
+  }
+
+  /**
+   * @effects <pre>
+   *  close {@link #store}, writing what it has recorded;
+   *  if it fails and <tt>failure != null</tt>
+   *    add its error to the suppressed errors of <tt>failure</tt>, which is being thrown
+   *  else if it fails
+   *    throws DataSourceException</pre>
+   */
+  private void closeStore(Throwable failure) throws DataSourceException {
+    try {
+      store.close();
+    } catch (DataSourceException | RuntimeException ex) {
+      if (failure == null)
+        throw ex;
+      failure.addSuppressed(ex);
+    }
+  }
+
+  /**
+   * @effects
+   *  parse the line <tt>buf[from, to)</tt> and add its record to {@link #batch}, writing the batch
+   *  if it is full; if the line is not valid, count it as rejected
+   */
+  private void parseLine(ByteBuffer buf, int from, int to) throws DataSourceException {
+    stats.lines++;
+    boolean header = firstLine;
+    firstLine = false;
+
+    if (to > from && buf.get(to - 1) == '\r')
+      to--;
+    if (isBlank(buf, from, to))
+      return;
+
+    // the positions of the 3 separators
+    int c1 = indexOf(buf, ',', from, to);
+    int c2 = (c1 < 0) ? -1 : indexOf(buf, ',', c1 + 1, to);
+    int c3 = (c2 < 0) ? -1 : indexOf(buf, ',', c2 + 1, to);
+    if (c3 < 0) {
+      reject("expected 4 fields", from, to, buf);
+      return;
+    }
+
+    // hours: a header does not have a number here
+    int hours = parseInt(buf, c3 + 1, to);
+    if (hours == Integer.MIN_VALUE) {
+      if (!header)
+        reject("invalid hourOfWork", from, to, buf);
+      return;
+    }
+
+    Employee e = employee(buf, from, c1);
+    if (e == null) {
+      reject("unknown employee", from, to, buf);
+      return;
+    }
+
+    TypeOfWork t = typeOfWork(buf, c1 + 1, c2);
+    if (t == null) {
+      reject("unknown typeOfWork", from, to, buf);
+      return;
+    }
+
+    if (hours > DailyTimeKeeping.MAX_HOUR_OF_WORK) {
+      reject("invalid hourOfWork", from, to, buf);
+      return;
+    }
+
+    String date = string(buf, c2 + 1, c3);
+    try {
+      // the data source constructor accepts any date (see WorkDates.parseLenient): store it as an ISO date
+      int day = WorkDates.parse(date);
+      e.getTimeKeepingLog().checkNotArchived(day);
+      date = WorkDates.format(day);
+    } catch (ConstraintViolationException ex) {
+      reject(ex.getMessage(), from, to, buf);
+      return;
+    }
+
+    // the line is valid: only now take an id for it
+    if (ids == null || !ids.hasNext())
+      ids = IDAllocator.reserve(DailyTimeKeeping.class, batchSize);
+    batch.add(new DailyTimeKeeping(ids.next(), e, t, date, hours));
+
+    if (batch.size() >= batchSize)
+      flush();
+  }
+
+  /**
+   * @effects <pre>
+   *  write the records of {@link #batch} to the data source (if any), add those that are written to
+   *  their employees, then clear the batch;
+   *  throws DataSourceException if fails to write a record: the records that are not written are
+   *  removed from the object pool and are not added to the employees</pre>
+   */
+  private void flush() throws DataSourceException {
+    if (batch.isEmpty())
+      return;
+
+    DataSourceException error = null;
+    if (store != null) {
+      int created = 0;
+      try {
+        for (DailyTimeKeeping d : batch) {
+          store.create(d);
+          created++;
+        }
+        store.flush();
+      } catch (DataSourceException ex) {
+        error = ex;
+        Set<Object> unwritten = unpool(store.discard());
+        batch.subList(created, batch.size()).clear();
+        batch.removeAll(unwritten);
+      }
+    }
+
+    // one link update per employee
+    Map<Employee, List<DailyTimeKeeping>> byEmployee = new IdentityHashMap<>();
+    for (DailyTimeKeeping d : batch) {
+      List<DailyTimeKeeping> records = byEmployee.get(d.getEmployee());
+      if (records == null) {
+        records = new ArrayList<>();
+        byEmployee.put(d.getEmployee(), records);
+      }
+      records.add(d);
+    }
+    for (Map.Entry<Employee, List<DailyTimeKeeping>> entry : byEmployee.entrySet())
+      entry.getKey().addNewDailyTimeKeeping(entry.getValue());
+
+    stats.rows += batch.size();
+    stats.batches++;
+    batch.clear();
+
+    if (error != null)
+      throw error;
+  }
+
+  /**
+   * @effects
+   *  remove the records <tt>records</tt>, which have not been written, from the object pool and return them
+   */
+  private Set<Object> unpool(Collection<Object> records) {
+    Set<Object> unwritten = Collections.newSetFromMap(new IdentityHashMap<>());
+    unwritten.addAll(records);
+    if (unwritten.isEmpty())
+      return unwritten;
+
+    // removed through the iterator, which does not reset the pool's id range (see TimeSheetArchive)
+    Iterator<Map.Entry<Oid, Object>> pool = dom.getObjectIterator(DailyTimeKeeping.class);
+    if (pool != null) {
+      while (pool.hasNext()) {
+        if (unwritten.contains(pool.next().getValue()))
+          pool.remove();
+      }
+    }
+    return unwritten;
+  }
+
+  /**
+   * @effects
+   *  return the employee whose id is <tt>buf[from, to)</tt> (trimmed), or <tt>null</tt> if there is none
+   */
+  private Employee employee(ByteBuffer buf, int from, int to) {
+    while (from < to && buf.get(from) == ' ') from++;
+    while (to > from && buf.get(to - 1) == ' ') to--;
+
+    // consecutive lines are usually for the same employee
+    if (lastEmployee != null && equals(buf, from, to, lastEmployeeId))
+      return lastEmployee;
+
+    byte[] id = new byte[to - from];
+    for (int i = 0; i < id.length; i++)
+      id[i] = buf.get(from + i);
+
+    Employee e = employees.get(new String(id, StandardCharsets.UTF_8));
+    if (e != null) {
+      lastEmployee = e;
+      lastEmployeeId = id;
+    }
+    return e;
+  }
+
+  /**
+   * @effects
+   *  return the type of work whose id or name is <tt>buf[from, to)</tt>, or <tt>null</tt> if there is none
+   */
+  private TypeOfWork typeOfWork(ByteBuffer buf, int from, int to) {
+    int id = parseInt(buf, from, to);
+    if (id != Integer.MIN_VALUE) {
+      TypeOfWork t = typesById.get(id);
+      if (t == null && dom != null) {
+        // not given: resolve it once through the object manager
+        try {
+          t = ReferenceDataCache.getInstance().get(TypeOfWork.class, id, dom);
+        } catch (DataSourceException e) {
+          t = null;
+        }
+        if (t != null)
+          addTypesOfWork(Collections.singletonList(t));
+      }
+      return t;
+    } else
+      return typesByName.get(string(buf, from, to));
+  }
+
+  private void reject(String reason, int from, int to, ByteBuffer buf) {
+    stats.rejected++;
+    if (stats.errors.size() < MAX_ERRORS)
+      stats.errors.add("line " + stats.lines + ": " + reason + ": " + string(buf, from, to));
+  }
+
+  /**
+   * @effects
+   *  return the non-negative integer in <tt>buf[from, to)</tt> (trimmed), or
+   *  <tt>Integer.MIN_VALUE</tt> if it is not one
+   */
+  private static int parseInt(ByteBuffer buf, int from, int to) {
+    while (from < to && buf.get(from) == ' ') from++;
+    while (to > from && buf.get(to - 1) == ' ') to--;
+    if (from == to || to - from > 9)
+      return Integer.MIN_VALUE;
+
+    int v = 0;
+    for (int i = from; i < to; i++) {
+      int digit = buf.get(i) - '0';
+      if (digit < 0 || digit > 9)
+        return Integer.MIN_VALUE;
+      v = v * 10 + digit;
+    }
+    return v;
+  }
+
+  private static String string(ByteBuffer buf, int from, int to) {
+    byte[] b = new byte[to - from];
+    for (int i = 0; i < b.length; i++)
+      b[i] = buf.get(from + i);
+    return new String(b, StandardCharsets.UTF_8).trim();
+  }
+
+  private static int indexOf(ByteBuffer buf, char c, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buf.get(i) == c)
+        return i;
+    }
+    return -1;
+  }
+
+  private static boolean isBlank(ByteBuffer buf, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buf.get(i) > ' ')
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean equals(ByteBuffer buf, int from, int to, byte[] b) {
+    if (to - from != b.length)
+      return false;
+    for (int i = 0; i < b.length; i++) {
+      if (buf.get(from + i) != b[i])
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * The statistics of one import.
+   */
+  public static class Stats {
+    private long lines;
+    private long rows;
+    private long rejected;
+    private int batches;
+    private long elapsedNanos;
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * @effects return the number of lines that were read
+     */
+    public long getLines() {
+      return lines;
+    }
+
+    /**
+     * @effects return the number of records that were imported
+     */
+    public long getRows() {
+      return rows;
+    }
+
+    /**
+     * @effects return the number of lines that were not valid
+     */
+    public long getRejected() {
+      return rejected;
+    }
+
+    public int getBatches() {
+      return batches;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedNanos / 1000000;
+    }
+
+    /**
+     * @effects return the number of records imported per second
+     */
+    public double getRowsPerSecond() {
+      return (elapsedNanos > 0) ? rows * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * @effects return the messages of (up to {@value TimesheetImporter#MAX_ERRORS}) rejected lines
+     */
+    public List<String> getErrors() {
+      return Collections.unmodifiableList(errors);
+    }
+
+    @Override
+    public String toString() {
+      return "Stats(rows=" + rows + ",rejected=" + rejected + ",batches=" + batches
+          + ",ms=" + getElapsedMillis() + ",rows/s=" + Math.round(getRowsPerSecond()) + ")";
+    }
+  }
+}
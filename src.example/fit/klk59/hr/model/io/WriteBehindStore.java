@@ -0,0 +1,569 @@
+package klk59.hr.model.io;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.core.dodm.dsm.DSMBasic;
+import domainapp.basics.core.dodm.osm.OSM;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMToolkit;
+import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.model.config.Configuration;
+import domainapp.basics.model.config.dodm.OsmConfig;
+import domainapp.basics.model.meta.DAttr;
+
+/**
+ * A write-behind buffer between the domain objects of the HR model and their data source.
+ *
+ * <p>New objects are added to the object pool of the object manager at once (so that they can be
+ * found and linked to), but are written to the data source later. Changed objects are recorded and
+ * written later as well. An object that is changed many times before it is written is written once,
+ * with its latest state, and a new object that is changed before it is written is simply inserted
+ * with its latest state. Objects are written in the order in which they were first recorded, so that
+ * an object is written after the objects that it was created with a reference to.
+ *
+ * <p>The recorded objects are written when there are {@link #getMaxPending()} of them (by the thread that
+ * records the last one), when the oldest of them has waited {@link #getMaxDelayMillis()} (by a
+ * background thread), or when {@link #commit()} is called. What {@link #commit()} guarantees
+ * depends on the {@link Durability} of this.
+ *
+ * <p>An error of a background write is kept and is thrown by the next {@link #commit()}; the objects
+ * that were not written stay recorded and are retried by the next write.
+ *
+ * <p>The object manager writes one object per statement. If a JDBC connection to the data source is
+ * given by {@link #setBatchConnection(Connection)}, a run of recorded new objects of the same class
+ * is instead inserted with one JDBC batch, in one transaction. Updates, and new objects of classes
+ * that have a super-class or attributes of other types than the basic types and domain types, are
+ * still written by the object manager.
+ *
+ * @author agent
+ */
+public class WriteBehindStore {
+  /**
+   * When the changes that are recorded in a {@link WriteBehindStore} are known to be in the data source.
+   */
+  public static enum Durability {
+    /** each change is written when it is recorded (i.e. there is no buffering) */
+    WRITE_THROUGH,
+    /** {@link WriteBehindStore#commit()} returns after the changes have been written */
+    COMMIT,
+    /**
+     * {@link WriteBehindStore#commit()} starts writing the changes in the background and returns;
+     * changes that have not been written are lost if the program fails
+     */
+    LAZY
+  }
+
+  /** the default maximum number of recorded objects */
+  public static final int DEFAULT_MAX_PENDING = 1000;
+
+  /** the default maximum time that an object stays recorded */
+  public static final long DEFAULT_MAX_DELAY_MILLIS = 2000;
+
+  private final DOMBasic dom;
+  private final Durability durability;
+  private final int maxPending;
+  private final long maxDelayMillis;
+
+  /** recorded object -> true if it is new (i.e. is to be inserted), false if it is to be updated */
+  private LinkedHashMap<Object, Boolean> pending = new LinkedHashMap<>();
+
+  /** serialises the writes to the data source */
+  private final Object writeLock = new Object();
+
+  /** the thread that writes in the background (not used if durability is WRITE_THROUGH) */
+  private final ScheduledThreadPoolExecutor writer;
+
+  /** the scheduled background write, <tt>null</tt> if there is none */
+  private ScheduledFuture<?> scheduledWrite;
+
+  /** the error of the last background write (if it failed) */
+  private DataSourceException writeError;
+
+  /** the connection through which the new objects are inserted in batches, <tt>null</tt> if there is none */
+  private Connection batchConnection;
+
+  /** class -> its batch insert statement, or <tt>null</tt> if its objects can not be inserted in batches */
+  private final Map<Class<?>, Insert> inserts = new HashMap<>();
+
+  // statistics
+  private long recorded;
+  private long written;
+
+  /**
+   * @effects
+   *  initialise this to write the objects of <tt>dom</tt> with the default thresholds
+   */
+  public WriteBehindStore(DOMBasic dom, Durability durability) {
+    this(dom, durability, DEFAULT_MAX_PENDING, DEFAULT_MAX_DELAY_MILLIS);
+  }
+
+  /**
+   * @effects <pre>
+   *  initialise this to write the objects of <tt>dom</tt> when <tt>maxPending</tt> objects are recorded
+   *  or when an object has been recorded for <tt>maxDelayMillis</tt>;
+   *  throws ConstraintViolationException if <tt>maxPending &lt;= 0 \/ maxDelayMillis &lt;= 0</tt></pre>
+   */
+  public WriteBehindStore(DOMBasic dom, Durability durability, int maxPending, long maxDelayMillis)
+      throws ConstraintViolationException {
+    if (maxPending <= 0)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {maxPending, 1});
+    if (maxDelayMillis <= 0)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {maxDelayMillis, 1});
+
+    this.dom = dom;
+    this.durability = durability;
+    this.maxPending = maxPending;
+    this.maxDelayMillis = maxDelayMillis;
+
+    if (durability != Durability.WRITE_THROUGH) {
+      writer = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "WriteBehindStore-writer");
+        t.setDaemon(true);
+        return t;
+      });
+      writer.setRemoveOnCancelPolicy(true);
+    } else {
+      writer = null;
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  open a new JDBC connection to the data source of <tt>config</tt> (as the object manager does)
+   *  throws DataSourceException if fails to connect</pre>
+   */
+  public static Connection connect(Configuration config) throws DataSourceException {
+    OsmConfig osmConfig = config.getDodmConfig().getOsmConfig();
+    try {
+      return DriverManager.getConnection(osmConfig.getDataSourceURL(), osmConfig.getProperties());
+    } catch (SQLException e) {
+      throw new DataSourceException(DataSourceException.Code.FAIL_TO_CONNECT, e,
+          new Object[] {osmConfig.getDataSourceURL()});
+    }
+  }
+
+  /**
+   * @requires
+   *  <tt>conn</tt> is a connection to the data source of the object manager of this that is not
+   *  used by other writers
+   * @effects
+   *  insert the recorded new objects in JDBC batches through <tt>conn</tt>, or (if <tt>conn = null</tt>)
+   *  through the object manager
+   */
+  public void setBatchConnection(Connection conn) {
+    synchronized (writeLock) {
+      batchConnection = conn;
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  add the new object <tt>o</tt> to the object pool and record it to be inserted into the data source
+   *  throws DataSourceException if fails to add <tt>o</tt> (or to write the recorded objects)</pre>
+   */
+  public void create(Object o) throws DataSourceException {
+    if (durability == Durability.WRITE_THROUGH) {
+      dom.addObject(o);
+      synchronized (this) {
+        recorded++;
+      }
+      count(1);
+      return;
+    }
+
+    dom.addObject(o, false);
+    record(o, true);
+  }
+
+  /**
+   * @effects <pre>
+   *  record the changed object <tt>o</tt> to be updated in the data source
+   *  throws DataSourceException if fails to write <tt>o</tt> (or the recorded objects)</pre>
+   */
+  public void update(Object o) throws DataSourceException {
+    if (durability == Durability.WRITE_THROUGH) {
+      osm().updateObject(o, o.getClass());
+      synchronized (this) {
+        recorded++;
+      }
+      count(1);
+      return;
+    }
+
+    record(o, false);
+  }
+
+  /**
+   * @effects <pre>
+   *  if durability is COMMIT
+   *    write the recorded objects
+   *  else if durability is LAZY
+   *    start writing the recorded objects in the background
+   *  throws DataSourceException if fails to write the objects, or if a background write has failed
+   *  since the last commit</pre>
+   */
+  public void commit() throws DataSourceException {
+    DataSourceException error;
+    synchronized (this) {
+      error = writeError;
+      writeError = null;
+    }
+    if (error != null)
+      throw error;
+
+    if (durability == Durability.COMMIT) {
+      flush();
+    } else if (durability == Durability.LAZY) {
+      scheduleWrite(0);
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  write the recorded objects and stop the background thread of this
+   *  throws DataSourceException if fails to write the objects</pre>
+   */
+  public void close() throws DataSourceException {
+    try {
+      flush();
+    } finally {
+      if (writer != null)
+        writer.shutdown();
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  write the recorded objects to the data source, in the order in which they were recorded
+   *  throws DataSourceException if fails to write an object; the objects that were not written
+   *  stay recorded</pre>
+   */
+  public void flush() throws DataSourceException {
+    synchronized (writeLock) {
+      Map<Object, Boolean> batch;
+      synchronized (this) {
+        if (pending.isEmpty())
+          return;
+
+        batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledWrite != null) {
+          scheduledWrite.cancel(false);
+          scheduledWrite = null;
+        }
+      }
+
+      OSM osm = osm();
+      List<Map.Entry<Object, Boolean>> entries = new ArrayList<>(batch.entrySet());
+      int i = 0;
+      try {
+        while (i < entries.size()) {
+          Object o = entries.get(i).getKey();
+          boolean isNew = entries.get(i).getValue();
+          Insert insert = isNew ? insert(o.getClass()) : null;
+          if (insert != null) {
+            // the run of the new objects of the same class
+            int end = i + 1;
+            while (end < entries.size() && entries.get(end).getValue()
+                && entries.get(end).getKey().getClass() == o.getClass())
+              end++;
+            insert.execute(batchConnection, dom.getDsm(), entries.subList(i, end));
+            i = end;
+          } else {
+            if (isNew)
+              osm.putObject(o.getClass(), o);
+            else
+              osm.updateObject(o, o.getClass());
+            i++;
+          }
+        }
+      } finally {
+        count(i);
+        if (i < entries.size())
+          requeue(entries.subList(i, entries.size()));
+      }
+    }
+  }
+
+  /**
+   * @effects
+   *  stop recording the objects that have not been written (after waiting for a write in progress)
+   *  and return them, in the order in which they were recorded; they stay in the object pool
+   */
+  public List<Object> discard() {
+    synchronized (writeLock) {
+      synchronized (this) {
+        List<Object> discarded = new ArrayList<>(pending.keySet());
+        pending = new LinkedHashMap<>();
+        if (scheduledWrite != null) {
+          scheduledWrite.cancel(false);
+          scheduledWrite = null;
+        }
+        return discarded;
+      }
+    }
+  }
+
+  /**
+   * @effects return the number of objects that are recorded and have not been written
+   */
+  public synchronized int getPending() {
+    return pending.size();
+  }
+
+  /**
+   * @effects return the number of changes that have been recorded
+   */
+  public synchronized long getRecorded() {
+    return recorded;
+  }
+
+  /**
+   * @effects return the number of writes (of one object each) that the recorded changes were coalesced into
+   */
+  public synchronized long getWritten() {
+    return written;
+  }
+
+  public Durability getDurability() {
+    return durability;
+  }
+
+  public int getMaxPending() {
+    return maxPending;
+  }
+
+  public long getMaxDelayMillis() {
+    return maxDelayMillis;
+  }
+
+  private void record(Object o, boolean isNew) throws DataSourceException {
+    boolean full;
+    synchronized (this) {
+      recorded++;
+
+      Boolean wasNew = pending.get(o);
+      if (wasNew == null) {
+        pending.put(o, isNew);
+        if (pending.size() == 1)
+          scheduleWrite(maxDelayMillis);
+      } else if (isNew && !wasNew) {
+        pending.put(o, true);
+      }
+      full = pending.size() >= maxPending;
+    }
+
+    if (full)
+      flush();
+  }
+
+  /**
+   * @effects
+   *  put <tt>entries</tt>, which failed to be written, back in front of the recorded objects
+   */
+  private synchronized void requeue(List<Map.Entry<Object, Boolean>> entries) {
+    LinkedHashMap<Object, Boolean> merged = new LinkedHashMap<>();
+    for (Map.Entry<Object, Boolean> e : entries)
+      merged.put(e.getKey(), e.getValue());
+    for (Map.Entry<Object, Boolean> e : pending.entrySet()) {
+      Boolean wasNew = merged.get(e.getKey());
+      merged.put(e.getKey(), (wasNew != null && wasNew) || e.getValue());
+    }
+    pending = merged;
+  }
+
+  /**
+   * @effects
+   *  if there is no scheduled background write that is due within <tt>delayMillis</tt>
+   *    schedule one after <tt>delayMillis</tt>
+   */
+  private synchronized void scheduleWrite(long delayMillis) {
+    if (writer == null)
+      return;
+
+    if (scheduledWrite != null) {
+      if (scheduledWrite.getDelay(TimeUnit.MILLISECONDS) <= delayMillis)
+        return;
+      scheduledWrite.cancel(false);
+    }
+
+    scheduledWrite = writer.schedule(() -> {
+      synchronized (WriteBehindStore.this) {
+        scheduledWrite = null;
+      }
+      try {
+        flush();
+      } catch (DataSourceException e) {
+        synchronized (WriteBehindStore.this) {
+          if (writeError == null)
+            writeError = e;
+          // retry later
+          if (!pending.isEmpty())
+            scheduleWrite(WriteBehindStore.this.maxDelayMillis);
+        }
+      }
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @requires the caller holds {@link #writeLock}
+   * @effects
+   *  return the batch insert statement of <tt>c</tt>, or <tt>null</tt> if there is no batch connection
+   *  or the objects of <tt>c</tt> can not be inserted in batches
+   */
+  private Insert insert(Class<?> c) throws DataSourceException {
+    if (batchConnection == null || !(osm() instanceof RelationalOSMBasic))
+      return null;
+
+    if (!inserts.containsKey(c))
+      inserts.put(c, Insert.of((RelationalOSMBasic) osm(), dom.getDsm(), c));
+    return inserts.get(c);
+  }
+
+  private synchronized void count(int objects) {
+    written += objects;
+  }
+
+  private OSM osm() {
+    return dom.getOsm();
+  }
+
+  /**
+   * The parameterised insert statement of the objects of one domain class, with the same columns
+   * as that of the object manager.
+   */
+  private static final class Insert {
+    private final Class<?> c;
+    private final String sql;
+    private final Field[] fields;
+    private final DAttr[] attribs;
+
+    /** the SQL types of the parameters of {@link #sql}, read when it is first prepared */
+    private int[] types;
+
+    private Insert(Class<?> c, String sql, Field[] fields, DAttr[] attribs) {
+      this.c = c;
+      this.sql = sql;
+      this.fields = fields;
+      this.attribs = attribs;
+    }
+
+    /**
+     * @effects
+     *  return the insert statement of <tt>c</tt>, or <tt>null</tt> if <tt>c</tt> has a super-class or
+     *  a serialisable attribute whose type is not supported
+     */
+    static Insert of(RelationalOSMBasic osm, DSMBasic dsm, Class<?> c) throws DataSourceException {
+      if (dsm.getSuperClass(c) != null)
+        return null;
+
+      Map<Field, DAttr> attribs = dsm.getSerialisableAttributes(c);
+      if (attribs == null || attribs.isEmpty())
+        return null;
+
+      StringBuilder cols = new StringBuilder();
+      StringBuilder params = new StringBuilder();
+      List<Field> fields = new ArrayList<>();
+      List<DAttr> columns = new ArrayList<>();
+      for (Map.Entry<Field, DAttr> a : attribs.entrySet()) {
+        DAttr.Type type = a.getValue().type();
+        // the other ends of the associations are not stored with the objects of c
+        if (type.isCollection())
+          continue;
+        if (!isSupported(type))
+          return null;
+        fields.add(a.getKey());
+        columns.add(a.getValue());
+        if (cols.length() > 0) {
+          cols.append(",");
+          params.append(",");
+        }
+        cols.append(RelationalOSMToolkit.getColumName(osm, c, a.getKey(), null));
+        params.append("?");
+      }
+
+      String sql = "insert into " + dsm.getDomainClassName(c) + "(" + cols + ") values(" + params + ")";
+      return new Insert(c, sql, fields.toArray(new Field[0]), columns.toArray(new DAttr[0]));
+    }
+
+    private static boolean isSupported(DAttr.Type type) {
+      return type.isString() || type.isChar() || type.isNumeric() || type.isBoolean() || type.isDate()
+          || type.isDomainType();
+    }
+
+    /**
+     * @effects <pre>
+     *  insert the objects of <tt>run</tt> through <tt>conn</tt> with one JDBC batch, in one transaction
+     *  throws DataSourceException if fails to insert them; none of them is inserted</pre>
+     */
+    void execute(Connection conn, DSMBasic dsm, List<Map.Entry<Object, Boolean>> run)
+        throws DataSourceException {
+      try {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+          if (types == null) {
+            types = new int[fields.length];
+            for (int p = 0; p < types.length; p++)
+              types[p] = stmt.getParameterMetaData().getParameterType(p + 1);
+          }
+
+          for (Map.Entry<Object, Boolean> e : run) {
+            Object o = e.getKey();
+            for (int p = 0; p < fields.length; p++) {
+              Object v = toSQL(dsm, attribs[p].type(), dsm.getAttributeValue(fields[p], o));
+              if (v == null)
+                stmt.setNull(p + 1, types[p]);
+              else
+                stmt.setObject(p + 1, v);
+            }
+            stmt.addBatch();
+          }
+          stmt.executeBatch();
+          conn.commit();
+        } catch (SQLException | RuntimeException e) {
+          conn.rollback();
+          throw e;
+        } finally {
+          conn.setAutoCommit(autoCommit);
+        }
+      } catch (SQLException e) {
+        throw new DataSourceException(DataSourceException.Code.FAIL_TO_INSERT_OBJECT, e,
+            new Object[] {c.getSimpleName(), e.getMessage()});
+      }
+    }
+
+    /**
+     * @effects return the value that the object manager stores in the column of an attribute of
+     *  type <tt>type</tt> whose value is <tt>v</tt>
+     */
+    private static Object toSQL(DSMBasic dsm, DAttr.Type type, Object v) {
+      if (v == null)
+        return null;
+      else if (type.isDomainType())
+        return dsm.getIDAttributeValue(v);
+      else if (type.isBoolean() || type.isChar())
+        return v.toString();
+      else if (type.isDate())
+        return new java.sql.Date(((java.util.Date) v).getTime());
+      else
+        return v;
+    }
+  }
+}
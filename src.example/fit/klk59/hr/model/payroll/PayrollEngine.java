@@ -0,0 +1,237 @@
+package klk59.hr.model.payroll;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * Computes the gross pay of employees for a pay period from the basic salary of their positions
+ * ({@link JobQualification#getSalaryBasic()}) and their time-keeping records
+ * ({@link DailyTimeKeeping#getHourOfWork()}).
+ *
+ * <p>The basic salary is the pay for {@link #getStandardHours()} hours of work. Each hour
+ * is paid at <tt>salaryBasic / standardHours</tt> times the rate multiplier of its type of
+ * work (1.0 unless set by {@link #setRateMultiplier(String, double)}), so that:
+ * <pre>
+ *  grossPay = round(salaryBasic * sum(hourOfWork * multiplier(typeOfWork)) / standardHours)</pre>
+ *
+ * <p>Only the sums of a payroll run are split between the threads of a {@link ForkJoinPool}.
+ * Reading the model may change it (the records of an unloaded {@link klk59.hr.model.TimeKeepingLog}
+ * are loaded, and the basic salary of a position is re-derived when the salary grades change), so the
+ * basic salaries and the records of the period are read sequentially on the calling thread first; the
+ * tasks only compute over these snapshots and share no state. The reads are most of a run of in-memory
+ * employees (see <tt>PayrollBenchmark</tt>), and all of the loading of employees whose records are not
+ * loaded, so a run is not much faster in a larger pool.
+ *
+ * @author agent
+ */
+public class PayrollEngine {
+  /** the default number of paid hours in a (monthly) pay period: 22 days of 8 hours */
+  public static final int DEFAULT_STANDARD_HOURS = 176;
+
+  /** the number of employees below which a run is not split further */
+  private static final int SPLIT_THRESHOLD = 256;
+
+  private final ForkJoinPool pool;
+
+  /** name of type of work -> rate multiplier */
+  private final Map<String, Double> multipliers = new ConcurrentHashMap<>();
+
+  private volatile int standardHours = DEFAULT_STANDARD_HOURS;
+
+  /**
+   * @effects initialise this to run in the common fork-join pool
+   */
+  public PayrollEngine() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @effects initialise this to run in <tt>pool</tt>
+   */
+  public PayrollEngine(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @effects <pre>
+   *  if multiplier &gt;= 0
+   *    set the rate multiplier of the type of work named <tt>typeOfWork</tt> to <tt>multiplier</tt>
+   *  else
+   *    throws ConstraintViolationException</pre>
+   */
+  public void setRateMultiplier(String typeOfWork, double multiplier) throws ConstraintViolationException {
+    if (!(multiplier >= 0))
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {multiplier, 0});
+
+    multipliers.put(typeOfWork, multiplier);
+  }
+
+  /**
+   * @effects return the rate multiplier of the type of work named <tt>typeOfWork</tt>
+   */
+  public double getRateMultiplier(String typeOfWork) {
+    Double m = (typeOfWork != null) ? multipliers.get(typeOfWork) : null;
+    return (m != null) ? m : 1.0;
+  }
+
+  /**
+   * @effects <pre>
+   *  if hours &gt; 0
+   *    set the number of hours that are paid by the basic salary to <tt>hours</tt>
+   *  else
+   *    throws ConstraintViolationException</pre>
+   */
+  public void setStandardHours(int hours) throws ConstraintViolationException {
+    if (hours <= 0)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_VALUE_LOWER_THAN_MIN, new Object[] {hours, 1});
+
+    standardHours = hours;
+  }
+
+  public int getStandardHours() {
+    return standardHours;
+  }
+
+  /**
+   * @effects
+   *  return the payslips of <tt>employees</tt> (in the same order) for the pay period
+   *  <tt>[fromDate, toDate]</tt>; throws ConstraintViolationException if a date is not valid
+   */
+  public List<Payslip> run(Collection<Employee> employees, String fromDate, String toDate)
+      throws ConstraintViolationException {
+    return run(employees, WorkDates.parse(fromDate), WorkDates.parse(toDate));
+  }
+
+  /**
+   * @effects
+   *  return the payslips of <tt>employees</tt> (in the same order) for the pay period
+   *  <tt>[fromDay, toDay]</tt> (epoch days)
+   */
+  public List<Payslip> run(Collection<Employee> employees, int fromDay, int toDay) {
+    // read the model on this thread
+    Input[] input = new Input[employees.size()];
+    int i = 0;
+    for (Employee e : employees)
+      input[i++] = new Input(e, fromDay, toDay);
+    Payslip[] output = new Payslip[input.length];
+
+    // the settings of this run
+    Rates rates = new Rates(new HashMap<>(multipliers), standardHours);
+
+    pool.invoke(new PayTask(rates, input, output, 0, input.length, fromDay, toDay));
+
+    return Arrays.asList(output);
+  }
+
+  /**
+   * @effects return the payslip of <tt>e</tt> for the pay period <tt>[fromDay, toDay]</tt> (epoch days)
+   */
+  public Payslip pay(Employee e, int fromDay, int toDay) {
+    return new Rates(new HashMap<>(multipliers), standardHours).pay(new Input(e, fromDay, toDay), fromDay, toDay);
+  }
+
+  /**
+   * The basic salary of an employee and the records of the employee in a pay period, as read
+   * before a payroll run.
+   */
+  private static class Input {
+    private final Employee employee;
+    private final int salaryBasic;
+    private final DailyTimeKeeping[] records;
+
+    Input(Employee e, int fromDay, int toDay) {
+      JobQualification position = e.getPosition();
+      this.employee = e;
+      this.salaryBasic = (position != null) ? position.getSalaryBasic() : 0;
+      Collection<DailyTimeKeeping> days = e.getTimeKeepingLog().getDays(fromDay, toDay);
+      this.records = days.toArray(new DailyTimeKeeping[days.size()]);
+    }
+  }
+
+  /**
+   * The multipliers and standard hours of one payroll run.
+   */
+  private static class Rates {
+    private final Map<String, Double> multipliers;
+    private final int standardHours;
+
+    Rates(Map<String, Double> multipliers, int standardHours) {
+      this.multipliers = multipliers;
+      this.standardHours = standardHours;
+    }
+
+    Payslip pay(Input in, int fromDay, int toDay) {
+      int salaryBasic = in.salaryBasic;
+
+      int hours = 0;
+      double paidHours = 0;
+      for (DailyTimeKeeping d : in.records) {
+        int h = d.getHourOfWork();
+        hours += h;
+        paidHours += h * multiplier(d.getTypeOfWork());
+      }
+
+      long grossPay = Math.round(salaryBasic * paidHours / standardHours);
+
+      return new Payslip(in.employee, fromDay, toDay, salaryBasic, hours, paidHours, grossPay);
+    }
+
+    private double multiplier(TypeOfWork t) {
+      if (multipliers.isEmpty() || t == null || t.getName() == null)
+        return 1.0;
+
+      Double m = multipliers.get(t.getName());
+      return (m != null) ? m : 1.0;
+    }
+  }
+
+  /**
+   * Computes the payslips of <tt>input[from, to)</tt> into <tt>output[from, to)</tt>.
+   */
+  private static class PayTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Rates rates;
+    private final Input[] input;
+    private final Payslip[] output;
+    private final int from, to;
+    private final int fromDay, toDay;
+
+    PayTask(Rates rates, Input[] input, Payslip[] output, int from, int to, int fromDay, int toDay) {
+      this.rates = rates;
+      this.input = input;
+      this.output = output;
+      this.from = from;
+      this.to = to;
+      this.fromDay = fromDay;
+      this.toDay = toDay;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SPLIT_THRESHOLD) {
+        for (int i = from; i < to; i++)
+          output[i] = rates.pay(input[i], fromDay, toDay);
+      } else {
+        int mid = (from + to) >>> 1;
+        invokeAll(new PayTask(rates, input, output, from, mid, fromDay, toDay),
+            new PayTask(rates, input, output, mid, to, fromDay, toDay));
+      }
+    }
+  }
+}
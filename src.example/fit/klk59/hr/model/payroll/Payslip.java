@@ -0,0 +1,73 @@
+package klk59.hr.model.payroll;
+
+import klk59.hr.model.Employee;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * The gross pay of one {@link Employee} for one pay period, as computed by a {@link PayrollEngine}.
+ *
+ * @author agent
+ */
+public class Payslip {
+  private final Employee employee;
+
+  /** the pay period: <tt>[fromDay, toDay]</tt> (epoch days) */
+  private final int fromDay;
+  private final int toDay;
+
+  /** the basic (monthly) salary of the employee's position */
+  private final int salaryBasic;
+
+  /** the hours of work recorded in the period */
+  private final int hoursOfWork;
+
+  /** the hours of work, each weighted by the rate multiplier of its type of work */
+  private final double paidHours;
+
+  private final long grossPay;
+
+  Payslip(Employee employee, int fromDay, int toDay, int salaryBasic, int hoursOfWork,
+      double paidHours, long grossPay) {
+    this.employee = employee;
+    this.fromDay = fromDay;
+    this.toDay = toDay;
+    this.salaryBasic = salaryBasic;
+    this.hoursOfWork = hoursOfWork;
+    this.paidHours = paidHours;
+    this.grossPay = grossPay;
+  }
+
+  public Employee getEmployee() {
+    return employee;
+  }
+
+  public String getFromDate() {
+    return WorkDates.format(fromDay);
+  }
+
+  public String getToDate() {
+    return WorkDates.format(toDay);
+  }
+
+  public int getSalaryBasic() {
+    return salaryBasic;
+  }
+
+  public int getHoursOfWork() {
+    return hoursOfWork;
+  }
+
+  public double getPaidHours() {
+    return paidHours;
+  }
+
+  public long getGrossPay() {
+    return grossPay;
+  }
+
+  @Override
+  public String toString() {
+    return "Payslip(" + (employee != null ? employee.getId() : null) + "," + getFromDate() + ","
+        + getToDate() + "," + hoursOfWork + "," + grossPay + ")";
+  }
+}
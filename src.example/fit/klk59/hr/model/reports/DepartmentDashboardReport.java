@@ -0,0 +1,174 @@
+package klk59.hr.model.reports;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import domainapp.basics.core.dodm.qrm.QRM;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.meta.DAssoc;
+import domainapp.basics.model.meta.DAssoc.AssocEndType;
+import domainapp.basics.model.meta.DAssoc.AssocType;
+import domainapp.basics.model.meta.DAssoc.Associate;
+import domainapp.basics.model.meta.DAttr;
+import domainapp.basics.model.meta.DAttr.Type;
+import domainapp.basics.model.meta.DClass;
+import domainapp.basics.model.meta.DOpt;
+import domainapp.basics.model.meta.MetaConstants;
+import domainapp.basics.model.meta.Select;
+import domainapp.modules.report.model.meta.Output;
+import klk59.hr.model.Department;
+import klk59.hr.model.IDAllocator;
+
+/**
+ * Represent the dashboard of the departments: the headcount, the number of employees by job level and
+ * the total basic salary of each department, and their totals.
+ *
+ * <p>The figures of a department are read from the counts by position that {@link Department} keeps up
+ * to date as employees join and leave it, move between departments and change position, so the report is
+ * computed in time proportional to the number of departments, without reading their employees. The counts
+ * of the departments whose employees are not all loaded are read from the data source with one query for
+ * all of them (see {@link Department#countPositions(java.util.Collection)}), the first time they are used.
+ *
+ * @author agent
+ */
+@DClass(schema="hr",serialisable=false)
+public class DepartmentDashboardReport {
+  @DAttr(name = "id", id = true, auto = true, type = Type.Integer, length = 5, optional = false, mutable = false)
+  private int id;
+
+  /**output: number of departments */
+  @DAttr(name = "numDepartments", type = Type.Integer, length = 10, auto=true, mutable=false)
+  @Output
+  private int numDepartments;
+
+  /**output: number of employees of all the departments */
+  @DAttr(name = "headcount", type = Type.Integer, length = 10, auto=true, mutable=false)
+  @Output
+  private int headcount;
+
+  /**output: total basic salary of the employees of all the departments */
+  @DAttr(name = "salaryCost", type = Type.Long, length = 20, auto=true, mutable=false)
+  @Output
+  private long salaryCost;
+
+  /**output: the summaries of the departments, in name order */
+  @DAttr(name="departments",type=Type.Collection,optional=false, mutable=false,
+      serialisable=false,filter=@Select(clazz=DepartmentSummary.class,
+      attributes={DepartmentSummary.A_id, DepartmentSummary.A_department, DepartmentSummary.A_headcount,
+          DepartmentSummary.A_employeesByJobLevel, DepartmentSummary.A_salaryCost, DepartmentSummary.A_report}))
+  @DAssoc(ascName="department-dashboard-report-has-departments",role="report",
+      ascType=AssocType.One2Many,endType=AssocEndType.One,
+    associate=@Associate(type=DepartmentSummary.class,cardMin=0,cardMax=MetaConstants.CARD_MORE))
+  @Output
+  private List<DepartmentSummary> departments;
+
+  /**
+   * @effects
+   *  initialise this with the summaries of all the departments in the object pool.
+   *
+   *  <p>throws NotPossibleException if the data source is not initialised
+   */
+  @DOpt(type=DOpt.Type.ObjectFormConstructor)
+  @DOpt(type=DOpt.Type.RequiredConstructor)
+  public DepartmentDashboardReport() throws NotPossibleException {
+    this.id = IDAllocator.nextID(DepartmentDashboardReport.class);
+
+    refresh();
+  }
+
+  /**
+   * @effects
+   *  recompute the output of this from the current counters of the departments in the object pool.
+   *
+   *  <p>throws NotPossibleException if the data source is not initialised
+   */
+  public void refresh() throws NotPossibleException {
+    update(ReportQueries.objects(QRM.getInstance().getDom(), Department.class));
+  }
+
+  /**
+   * @effects
+   *  set the output of this to the summaries of <tt>departments</tt>
+   */
+  void update(Collection<Department> departments) {
+    List<DepartmentSummary> result = new ArrayList<>();
+    int count = 0;
+    long cost = 0;
+    if (departments != null) {
+      // one query for the departments whose links are not all loaded
+      Department.countPositions(departments);
+      for (Department d : departments) {
+        DepartmentSummary s = new DepartmentSummary(d);
+        s.setReport(this);
+        result.add(s);
+        count += s.getHeadcount();
+        cost += s.getSalaryCost();
+      }
+    }
+
+    result.sort(Comparator.comparing(s -> s.getDepartment().getName(),
+        Comparator.nullsLast(Comparator.naturalOrder())));
+
+    this.departments = Collections.unmodifiableList(result);
+    this.numDepartments = result.size();
+    this.headcount = count;
+    this.salaryCost = cost;
+  }
+
+  /**
+   * @effects return the summaries of the departments, in name order
+   */
+  public List<DepartmentSummary> getDepartments() {
+    return departments;
+  }
+
+  /**
+   * @effects return numDepartments
+   */
+  public int getNumDepartments() {
+    return numDepartments;
+  }
+
+  /**
+   * @effects return headcount
+   */
+  public int getHeadcount() {
+    return headcount;
+  }
+
+  /**
+   * @effects return salaryCost
+   */
+  public long getSalaryCost() {
+    return salaryCost;
+  }
+
+  /**
+   * @effects return id
+   */
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 + id;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    return id == ((DepartmentDashboardReport) obj).id;
+  }
+
+  @Override
+  public String toString() {
+    return "DepartmentDashboardReport (" + id + ", " + numDepartments + " departments)";
+  }
+}
@@ -0,0 +1,166 @@
+package klk59.hr.model.reports;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import domainapp.basics.model.meta.DAttr;
+import domainapp.basics.model.meta.DAttr.Type;
+import domainapp.basics.model.meta.DClass;
+import klk59.hr.model.Department;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.JobQualification;
+
+/**
+ * The headcount, the number of employees by job level and the total basic salary of one department,
+ * as shown by a {@link DepartmentDashboardReport}.
+ *
+ * <p>The headcount is the sum of the counts by position of the department, so that the two agree
+ * whether or not the employees of the department have been loaded (see {@link Department#getPositionCounts()}).
+ *
+ * @author agent
+ */
+@DClass(schema="hr",serialisable=false)
+public class DepartmentSummary {
+  public static final String A_id = "id";
+  public static final String A_department = "department";
+  public static final String A_headcount = "headcount";
+  public static final String A_employeesByJobLevel = "employeesByJobLevel";
+  public static final String A_salaryCost = "salaryCost";
+  public static final String A_report = "report";
+
+  /** the job level of the employees that have no position */
+  public static final String NO_POSITION = "-";
+
+  @DAttr(name = A_id, id = true, auto = true, type = Type.Integer, length = 10, optional = false, mutable = false)
+  private int id;
+
+  @DAttr(name = A_department, type = Type.Domain, length = 5, optional = false, mutable = false)
+  private Department department;
+
+  @DAttr(name = A_headcount, type = Type.Integer, length = 10, auto=true, mutable = false)
+  private int headcount;
+
+  /** the number of employees by job level, as text (see {@link #getEmployeesByJobLevel()}) */
+  @DAttr(name = A_employeesByJobLevel, type = Type.String, length = 255, auto=true, mutable = false)
+  private String employeesByJobLevel;
+
+  @DAttr(name = A_salaryCost, type = Type.Long, length = 20, auto=true, mutable = false)
+  private long salaryCost;
+
+  @DAttr(name = A_report, type = Type.Domain, serialisable = false,
+      // excluded from the object state, like the other reports' back references
+      virtual = true)
+  private DepartmentDashboardReport report;
+
+  /** job level name -> number of employees, in name order */
+  private final Map<String, Integer> jobLevels;
+
+  /**
+   * @effects initialise this with the current counters of <tt>department</tt>
+   */
+  DepartmentSummary(Department department) {
+    this.id = IDAllocator.nextID(DepartmentSummary.class);
+    this.department = department;
+
+    int count = 0;
+    Map<String, Integer> jobLevels = new TreeMap<>();
+    for (Map.Entry<JobQualification, Integer> c : department.getPositionCounts().entrySet()) {
+      JobQualification position = c.getKey();
+      String level = (position != null && position.getJobLevelName() != null) ? position.getJobLevelName()
+          : NO_POSITION;
+      jobLevels.merge(level, c.getValue(), Integer::sum);
+      count += c.getValue();
+    }
+    this.headcount = count;
+    this.jobLevels = Collections.unmodifiableMap(jobLevels);
+
+    StringBuilder text = new StringBuilder();
+    for (Map.Entry<String, Integer> l : jobLevels.entrySet()) {
+      if (text.length() > 0)
+        text.append(", ");
+      text.append(l.getKey()).append(": ").append(l.getValue());
+    }
+    this.employeesByJobLevel = text.toString();
+
+    this.salaryCost = department.getSalaryCost();
+  }
+
+  /**
+   * @effects return id
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @effects return department
+   */
+  public Department getDepartment() {
+    return department;
+  }
+
+  /**
+   * @effects return headcount
+   */
+  public int getHeadcount() {
+    return headcount;
+  }
+
+  /**
+   * @effects return the number of employees of the department by job level name
+   *  ({@link #NO_POSITION} for those without a position)
+   */
+  public Map<String, Integer> getJobLevels() {
+    return jobLevels;
+  }
+
+  /**
+   * @effects return the number of employees of the department by job level, as the text
+   *  <tt>level: count, ...</tt> in name order
+   */
+  public String getEmployeesByJobLevel() {
+    return employeesByJobLevel;
+  }
+
+  /**
+   * @effects return salaryCost
+   */
+  public long getSalaryCost() {
+    return salaryCost;
+  }
+
+  /**
+   * @effects return report
+   */
+  public DepartmentDashboardReport getReport() {
+    return report;
+  }
+
+  /**
+   * @effects set report = <tt>report</tt>
+   */
+  void setReport(DepartmentDashboardReport report) {
+    this.report = report;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 + id;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    return id == ((DepartmentSummary) obj).id;
+  }
+
+  @Override
+  public String toString() {
+    return "DepartmentSummary (" + department.getName() + ", " + headcount + ", " + jobLevels + ", "
+        + salaryCost + ")";
+  }
+}
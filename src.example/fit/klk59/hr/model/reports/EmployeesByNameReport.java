@@ -1,11 +1,20 @@
 package klk59.hr.model.reports;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import domainapp.basics.core.dodm.dom.DOMBasic;
 import domainapp.basics.core.dodm.dsm.DSMBasic;
+import domainapp.basics.core.dodm.osm.OSM;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic;
 import domainapp.basics.core.dodm.qrm.QRM;
 import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
 import domainapp.basics.exceptions.NotPossibleException;
 import domainapp.basics.model.Oid;
 import domainapp.basics.model.meta.AttrRef;
@@ -20,10 +29,16 @@ import domainapp.basics.model.meta.DOpt;
 import domainapp.basics.model.meta.MetaConstants;
 import domainapp.basics.model.meta.Select;
 import domainapp.basics.model.query.Expression.Op;
+import domainapp.basics.model.query.ObjectExpression;
 import domainapp.basics.model.query.Query;
-import domainapp.basics.model.query.QueryToolKit;
+import domainapp.basics.util.events.ChangeEvent;
+import domainapp.basics.util.events.ChangeEventSource;
+import domainapp.basics.util.events.ChangeListener;
 import domainapp.modules.report.model.meta.Output;
 import klk59.hr.model.Employee;
+import klk59.hr.model.EmployeeIdentityMap;
+import klk59.hr.model.EmployeeNameIndex;
+import klk59.hr.model.IDAllocator;
 
 /**
  * Represent the reports about employees by name
@@ -33,15 +48,32 @@ import klk59.hr.model.Employee;
  */
 @DClass(schema="hr",serialisable=false)
 public class EmployeesByNameReport {
+	/** the delay after the last change of {@link #name} before an asynchronous query is run */
+	public static final long QUERY_DELAY_MILLIS = 250;
+	
+	/** the (shared) thread that runs the asynchronous queries */
+	private static ScheduledThreadPoolExecutor queryExecutor;
+	
 	@DAttr(name = "id", id = true, auto = true, type = Type.Integer, length = 5, optional = false, mutable = false)
 	private int id;
-	private static int idCounter = 0;
 
 	/**input: employee name */
 	@DAttr(name = "name", type = Type.String, length = 30, optional = false)
 	private String name;
 	  
-	  /**output: employees whose names match {@link #name} */
+	  /**input: the number of employees per page of {@link #employees}, 0 if the output is not paged */
+	  @DAttr(name = "pageSize", type = Type.Integer, length = 5, min = 0, optional = true)
+	  private volatile int pageSize;
+	  
+	  /**input: the page of the output that is displayed (1-based) */
+	  @DAttr(name = "page", type = Type.Integer, length = 5, min = 1, optional = true)
+	  private volatile int page = 1;
+	  
+	  /**input: whether a change of {@link #name} re-runs the query in the background (see {@link #setName(String)}) */
+	  @DAttr(name = "async", type = Type.Boolean, optional = true)
+	  private volatile boolean async;
+	  
+	  /**output: employees on {@link #page} of the employees whose names match {@link #name} */
 	  @DAttr(name="employees",type=Type.Collection,optional=false, mutable=false,
 	      serialisable=false,filter=@Select(clazz=Employee.class, 
 	      attributes={Employee.A_id, Employee.A_name, Employee.A_dob, Employee.A_email, 
@@ -51,12 +83,47 @@ public class EmployeesByNameReport {
 	    associate=@Associate(type=Employee.class,cardMin=0,cardMax=MetaConstants.CARD_MORE))
 	  
 	  @Output
-	  private Collection<Employee> employees;
+	  private volatile Collection<Employee> employees;
 
-	  /**output: number of employees found (if any), derived from {@link #employees} */
+	  /**output: number of employees found (if any), over all pages of {@link #employees} */
 	  @DAttr(name = "numEmployees", type = Type.Integer, length = 20, auto=true, mutable=false)
 	  @Output
-	  private int numEmployees;
+	  private volatile int numEmployees;
+	  
+	  /**output: number of pages of {@link #employees} */
+	  @DAttr(name = "numPages", type = Type.Integer, length = 10, auto=true, mutable=false)
+	  @Output
+	  private volatile int numPages;
+	  
+	  /** 
+	   * the query of this report, prepared once per {@link DSMBasic} (see {@link #bindNameQuery(DSMBasic, String)});
+	   * its {@link #namePattern} is re-bound on each run, while the lock on {@link #nameQueryLock} is held.
+	   * Each report has its own, so that the queries of different reports run concurrently. 
+	   */
+	  private Query<ObjectExpression> nameQuery;
+	  private NamePattern namePattern;
+	  private DSMBasic nameQueryDsm;
+	  private final Object nameQueryLock = new Object();
+	  
+	  /** the name for which {@link #employees} was computed */
+	  private volatile String resultName;
+	  
+	  /** all the employees that match {@link #resultName}, if they are held in memory */
+	  private volatile List<Employee> matches;
+	  
+	  /** the LIKE pattern of the employees that match {@link #resultName}, if the output is paged from the data source */
+	  private volatile String matchPattern;
+	  
+	  /** the number of the latest query; an asynchronous query publishes its result only if it is still the latest */
+	  private int queryNo;
+	  
+	  /** the scheduled or running asynchronous query (if any) */
+	  private Future<?> pendingQuery;
+	  
+	  /** the error of the last asynchronous query, <tt>null</tt> if it succeeded */
+	  private volatile Exception queryError;
+	  
+	  private volatile ChangeListener resultListener;
 	  
 	  /**
 	   * @effects 
@@ -71,13 +138,85 @@ public class EmployeesByNameReport {
 	  @DOpt(type=DOpt.Type.ObjectFormConstructor)
 	  @DOpt(type=DOpt.Type.RequiredConstructor)
 	  public EmployeesByNameReport(@AttrRef("name") String name) throws NotPossibleException, DataSourceException {
-	    this.id=++idCounter;
+	    this(name, 0);
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  initialise this with <tt>name</tt> and <tt>pageSize</tt> (see {@link #setPageSize(int)}) and 
+	   *  retrieve the employees whose names match <tt>name</tt>, as {@link #EmployeesByNameReport(String)}
+	   */
+	  @DOpt(type=DOpt.Type.ObjectFormConstructor)
+	  public EmployeesByNameReport(@AttrRef("name") String name, @AttrRef("pageSize") Integer pageSize) 
+	      throws NotPossibleException, DataSourceException {
+	    this(name, pageSize, false);
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  initialise this with <tt>name</tt>, <tt>pageSize</tt> and <tt>async</tt> (see {@link #setAsync(boolean)}) 
+	   *  and retrieve the employees whose names match <tt>name</tt>, as {@link #EmployeesByNameReport(String)};
+	   *  this first query is run before the constructor returns, whether or not this is asynchronous
+	   */
+	  @DOpt(type=DOpt.Type.ObjectFormConstructor)
+	  public EmployeesByNameReport(@AttrRef("name") String name, @AttrRef("pageSize") Integer pageSize,
+	      @AttrRef("async") Boolean async) throws NotPossibleException, DataSourceException {
+	    this.id=IDAllocator.nextID(EmployeesByNameReport.class);
 	    
 	    this.name = name;
+	    this.pageSize = (pageSize != null) ? Math.max(0, pageSize) : 0;
+	    this.async = (async != null) && async;
 	    
 	    doReportQuery();
 	  }
 	  
+	  /**
+	   * @effects return async
+	   */
+	  public boolean getAsync() {
+	    return async;
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  set whether the changes of {@link #name} from now on re-run the query of this asynchronously;
+	   *  the query that is pending (if any) still publishes its result
+	   */
+	  public void setAsync(boolean async) {
+	    this.async = async;
+	  }
+	  
+	  /**
+	   * @effects return pageSize
+	   */
+	  public int getPageSize() {
+	    return pageSize;
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  set the number of employees per page of the output of this (if <tt>size &lt;= 0</tt> the output 
+	   *  is not paged) and, if it is changed, re-run the query of this from the first page (in the
+	   *  background if this is asynchronous).
+	   *  
+	   *  <p>In paged mode, a query that is sent to the data source only counts the matching employees, 
+	   *  and only the employees of the displayed page are loaded.
+	   *  
+	   *  <p>throws NotPossibleException if failed to generate data source query; 
+	   *  DataSourceException if fails to read from the data source.</pre>
+	   */
+	  public synchronized void setPageSize(int size) throws NotPossibleException, DataSourceException {
+	    size = Math.max(0, size);
+	    if (size != pageSize) {
+	      pageSize = size;
+	      
+	      // the matches in memory can be re-paged, the others must be re-counted
+	      matchPattern = null;
+	      if (name != null)
+	        runReportQuery();
+	    }
+	  }
+	  
 	  /**
 	   * @effects return name
 	   */
@@ -89,60 +228,459 @@ public class EmployeesByNameReport {
 	   * @effects <pre>
 	   *  set this.name = name
 	   *  if name is changed
-	   *    invoke {@link #doReportQuery()} to update the output attribute value
-	   *    throws NotPossibleException if failed to generate data source query; 
-	   *    DataSourceException if fails to read from the data source.
+	   *    {@link #runReportQuery()}
 	   *  </pre>
 	   */
-	  public void setName(String name) throws NotPossibleException, DataSourceException {
+	  public synchronized void setName(String name) throws NotPossibleException, DataSourceException {
 	    boolean doReportQuery = (name != null && !name.equals(this.name));
 	    
 	    this.name = name;
 	    
 	    if (doReportQuery) {
+	      runReportQuery();
+	    }
+	  }
+	  
+	  /**
+	   * @requires the lock on this is held
+	   * @effects <pre>
+	   *  if this is asynchronous
+	   *    cancel the pending query (if any) and schedule a query of {@link #name} 
+	   *    to run after {@link #QUERY_DELAY_MILLIS} 
+	   *  else
+	   *    drop the pending query (if any) and invoke {@link #doReportQuery()} to update the output
+	   *    throws NotPossibleException if failed to generate data source query; 
+	   *    DataSourceException if fails to read from the data source.
+	   *  </pre>
+	   */
+	  private void runReportQuery() throws NotPossibleException, DataSourceException {
+	    if (async) {
+	      scheduleReportQuery(name);
+	    } else {
+	      supersedePendingQuery();
 	      doReportQuery();
 	    }
 	  }
+	  
+	  /**
+	   * @requires the lock on this is held
+	   * @effects 
+	   *  cancel {@link #pendingQuery} (if any) and make sure that it does not publish its result
+	   */
+	  private void supersedePendingQuery() {
+	    ++queryNo;
+	    if (pendingQuery != null) {
+	      pendingQuery.cancel(false);
+	      pendingQuery = null;
+	    }
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  cancel {@link #pendingQuery} (if any) and schedule a new query for <tt>name</tt>, 
+	   *  which publishes its result and notifies {@link #resultListener} unless another
+	   *  query has been scheduled in the meantime.
+	   *  
+	   *  <p>A query that is already running is not interrupted (an interrupt would abort the
+	   *  JDBC call of the data source), but its result is dropped because it is no longer the latest.
+	   */
+	  private synchronized void scheduleReportQuery(final String name) {
+	    supersedePendingQuery();
+	    final int no = queryNo;
+	    
+	    pendingQuery = getQueryExecutor().schedule(() -> {
+	      if (!isLatestQuery(no)) 
+	        return;
+	      
+	      Matches result;
+	      Exception error = null;
+	      try {
+	        result = queryEmployees(name);
+	      } catch (NotPossibleException | DataSourceException e) {
+	        result = null;
+	        error = e;
+	      }
+	      
+	      synchronized (EmployeesByNameReport.this) {
+	        if (no != queryNo)  // superseded
+	          return;
+	        
+	        try {
+	          updateOutput(name, result);
+	        } catch (NotPossibleException | DataSourceException e) {
+	          resetOutput();
+	          error = e;
+	        }
+	        queryError = error;
+	        pendingQuery = null;
+	      }
+	      
+	      fireResultChanged();
+	    }, QUERY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	  }
+
+	  private synchronized boolean isLatestQuery(int no) {
+	    return no == queryNo;
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return the executor of the asynchronous queries, creating it if it does not exist 
+	   */
+	  private static synchronized ScheduledThreadPoolExecutor getQueryExecutor() {
+	    if (queryExecutor == null) {
+	      queryExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+	        Thread t = new Thread(r, "EmployeesByNameReport-query");
+	        t.setDaemon(true);
+	        return t;
+	      });
+	      queryExecutor.setRemoveOnCancelPolicy(true);
+	    }
+	    
+	    return queryExecutor;
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  set the listener that is notified (on the query thread) when an asynchronous query has updated 
+	   *  the output of this; the object form does not register one, so a caller that makes this 
+	   *  asynchronous registers it to learn of the results
+	   */
+	  public void setResultListener(ChangeListener l) {
+	    this.resultListener = l;
+	  }
+	  
+	  // ChangeEventSource is a raw ArrayList
+	  @SuppressWarnings("unchecked")
+	  private void fireResultChanged() {
+	    ChangeListener l = resultListener;
+	    if (l != null) {
+	      ChangeEventSource src = new ChangeEventSource(EmployeesByNameReport.class);
+	      src.add(this);
+	      l.stateChanged(new ChangeEvent(src));
+	    }
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return true if an asynchronous query has been scheduled and has not yet updated the output
+	   */
+	  public synchronized boolean isQueryPending() {
+	    return pendingQuery != null;
+	  }
+	  
+	  /**
+	   * @effects 
+	   *  return the error of the last asynchronous query, or <tt>null</tt> if it succeeded
+	   */
+	  public Exception getQueryError() {
+	    return queryError;
+	  }
 
 	  /**
 	   * This method is invoked when the report input has be set by the user. 
 	   * 
 	   * @effects <pre>
-	   *   formulate the object query
-	   *   execute the query to retrieve from the data source the domain objects that satisfy it 
+	   *   if the name has no LIKE wildcards and the output is not paged (or the {@link EmployeeNameIndex} is warm)
+	   *     look up the matching employees in the index
+	   *   else
+	   *     formulate the object query
+	   *     execute the query to retrieve from the data source the domain objects that satisfy it 
 	   *   update the output attributes accordingly.
 	   *  
 	   *  <p>throws NotPossibleException if failed to generate data source query; 
 	   *  DataSourceException if fails to read from the data source. </pre>
 	   */
 	  private void doReportQuery() throws NotPossibleException, DataSourceException {
+	    updateOutput(name, queryEmployees(name));
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *   if the matches of this are in memory and are for a name that <tt>name</tt> contains
+	   *     return the matches whose names contain <tt>name</tt>
+	   *   else if <tt>name</tt> has no LIKE wildcards and the output is not paged or the 
+	   *   {@link EmployeeNameIndex} is warm
+	   *     return the matching employees in the index, which is loaded if it is cold
+	   *   else if the output is paged and the data source is relational
+	   *     return the number of the matching employees in the data source
+	   *   else
+	   *     return the matching employees in the data source
+	   *   (in every case, return null if there are no matches)
+	   *  
+	   *  <p>throws NotPossibleException if failed to generate data source query; 
+	   *  DataSourceException if fails to read from the data source. </pre>
+	   */
+	  private Matches queryEmployees(String name) throws NotPossibleException, DataSourceException {
+	    boolean literal = name.indexOf('%') < 0 && name.indexOf('_') < 0;
+	    
+	    // narrow down the current matches if name extends their name
+	    List<Employee> current = matches;
+	    String currentName = resultName;
+	    if (literal && current != null && currentName != null && name.contains(currentName)) {
+	      List<Employee> result = new ArrayList<>();
+	      for (Employee e : current) {
+	        if (e.getName() != null && e.getName().contains(name))
+	          result.add(e);
+	      }
+	      return Matches.of(result);
+	    }
+	    
 	    // the query manager instance
 	    
 	    QRM qrm = QRM.getInstance();
 	    
+	    // use the in-memory name index, which reads every employee the first time it is used
+	    // (names with LIKE wildcards are left to the data source, as are the paged reports
+	    // while the index is cold, so that they do not load every employee)
+	    EmployeeNameIndex index = EmployeeNameIndex.getInstance();
+	    if (literal && (pageSize <= 0 || index.isWarm(qrm.getDom()))) {
+	      return Matches.of(index.search(qrm.getDom(), name));
+	    }
+	    
 	    // create a query to look up Employee from the data source
 	    // and then populate the output attribute (employees) with the result
+	    String pattern = "%"+name+"%";
+	    OSM osm = qrm.getDom().getOsm();
+	    if (pageSize > 0 && osm instanceof RelationalOSMBasic) {
+	      // only the count: the objects are loaded page by page
+	      int count = countMatches((RelationalOSMBasic) osm, pattern);
+	      return (count > 0) ? new Matches(pattern, count) : null;
+	    }
+	    
 	    DSMBasic dsm = qrm.getDsm();
 	    
-	    //TODO: to conserve memory cache the query and only change the query parameter value(s)
-	    Query q = QueryToolKit.createSearchQuery(dsm, Employee.class, 
-	        new String[] {Employee.A_name}, 
-	        new Op[] {Op.MATCH}, 
-	        new Object[] {"%"+name+"%"});
+	    synchronized (nameQueryLock) {
+	      Query<ObjectExpression> q = bindNameQuery(dsm, pattern);
+	      
+	      Map<Oid, Employee> result = qrm.getDom().retrieveObjects(Employee.class, q);
+	      return (result != null) ? Matches.of(EmployeeIdentityMap.getInstance().canonical(result.values())) : null;
+	    }
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  return the number of employees in the data source of <tt>osm</tt> whose names are LIKE <tt>pattern</tt>,
+	   *  counted by the query:
+	   *    SELECT COUNT(*) FROM Employee WHERE name LIKE :pattern
+	   *  
+	   *  <p>throws NotPossibleException if the columns are not known,
+	   *  DataSourceException if fails to run the query</pre>
+	   */
+	  private static int countMatches(RelationalOSMBasic osm, String pattern) 
+	      throws NotPossibleException, DataSourceException {
+	    DOMBasic dom = QRM.getInstance().getDom();
+	    String sql;
+	    try {
+	      sql = "SELECT COUNT(*) AS N FROM " + ReportQueries.tableName(dom, Employee.class)
+	          + " WHERE " + osm.toDBColumnName(Employee.class, Employee.A_name, false) 
+	          + " LIKE " + ReportQueries.literal(pattern);
+	    } catch (NotFoundException e) {
+	      throw new NotPossibleException(NotPossibleException.Code.FAIL_TO_PERFORM_REPORT, e,
+	          new Object[] {EmployeesByNameReport.class.getSimpleName()});
+	    }
+	    
+	    List<?> n = ReportQueries.column(osm.queryAsMap(sql), "N");
+	    return n.isEmpty() ? 0 : ((Number) n.get(0)).intValue();
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  return, in id order, the <tt>size</tt> employees from position <tt>from</tt> of the employees 
+	   *  in the data source of <tt>osm</tt> whose names are LIKE <tt>pattern</tt>; their ids are read by 
+	   *  the query:
+	   *    SELECT id FROM Employee WHERE name LIKE :pattern ORDER BY id OFFSET :from ROWS FETCH NEXT :size ROWS ONLY
+	   *  
+	   *  <p>throws NotPossibleException if the columns are not known,
+	   *  DataSourceException if fails to read the employees</pre>
+	   */
+	  private static List<Employee> loadMatches(RelationalOSMBasic osm, String pattern, int from, int size) 
+	      throws NotPossibleException, DataSourceException {
+	    DOMBasic dom = QRM.getInstance().getDom();
+	    DAttr idAttrib;
+	    String sql;
+	    try {
+	      idAttrib = dom.getDsm().getDomainConstraint(Employee.class, Employee.A_id);
+	      String idCol = osm.toDBColumnName(Employee.class, Employee.A_id, false);
+	      sql = "SELECT " + idCol + " AS ID FROM " + ReportQueries.tableName(dom, Employee.class)
+	          + " WHERE " + osm.toDBColumnName(Employee.class, Employee.A_name, false) 
+	          + " LIKE " + ReportQueries.literal(pattern)
+	          + " ORDER BY " + idCol + " OFFSET " + from + " ROWS FETCH NEXT " + size + " ROWS ONLY";
+	    } catch (NotFoundException e) {
+	      throw new NotPossibleException(NotPossibleException.Code.FAIL_TO_PERFORM_REPORT, e,
+	          new Object[] {EmployeesByNameReport.class.getSimpleName()});
+	    }
 	    
-	    Map<Oid, Employee> result = qrm.getDom().retrieveObjects(Employee.class, q);
+	    List<Oid> oids = new ArrayList<>();
+	    for (Object id : ReportQueries.column(osm.queryAsMap(sql), "ID")) {
+	      Oid oid = new Oid(Employee.class);
+	      oid.addIdValue(idAttrib, (String) id);
+	      oids.add(oid);
+	    }
+	    if (oids.isEmpty())
+	      return new ArrayList<>(0);
 	    
+	    Map<Oid, Employee> objects = dom.retrieveObjects(Employee.class, oids, null);
+	    List<Employee> result = new ArrayList<>(oids.size());
+	    if (objects != null) {
+	      for (Oid oid : oids) {
+	        Employee e = objects.get(oid);
+	        if (e != null)
+	          result.add(e);
+	      }
+	    }
+	    return EmployeeIdentityMap.getInstance().canonical(result);
+	  }
+	  
+	  /**
+	   * The employees that match a name: either held in memory, or counted in the data source and 
+	   * read from it page by page.
+	   */
+	  private static final class Matches {
+	    /** the matching employees, <tt>null</tt> if they are paged from the data source */
+	    final List<Employee> employees;
+	    /** the LIKE pattern of the matching employees, <tt>null</tt> if they are in memory */
+	    final String pattern;
+	    final int count;
+	    
+	    Matches(String pattern, int count) {
+	      this.employees = null;
+	      this.pattern = pattern;
+	      this.count = count;
+	    }
+	    
+	    private Matches(List<Employee> employees) {
+	      this.employees = employees;
+	      this.pattern = null;
+	      this.count = employees.size();
+	    }
+	    
+	    /**
+	     * @effects return the matches <tt>employees</tt>, or <tt>null</tt> if it is empty
+	     */
+	    static Matches of(List<Employee> employees) {
+	      return employees.isEmpty() ? null : new Matches(employees);
+	    }
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  if result != null
+	   *    set the matches of this to <tt>result</tt>, which was computed for <tt>name</tt>,
+	   *    and display the first page
+	   *  else
+	   *    reset the output attributes
+	   *  
+	   *  <p>throws NotPossibleException, DataSourceException if fails to load the employees of the page</pre>
+	   */
+	  private void updateOutput(String name, Matches result) throws NotPossibleException, DataSourceException {
 	    if (result != null) {
-	      // update the main output data 
-	      employees = result.values();
+	      matches = result.employees;
+	      matchPattern = result.pattern;
+	      resultName = name;
 	      
 	      // update other output (if any)
-	      numEmployees = employees.size();
+	      numEmployees = result.count;
+	      numPages = (pageSize > 0) ? (numEmployees + pageSize - 1) / pageSize : 1;
+	      
+	      // update the main output data 
+	      page = 1;
+	      employees = loadPage(page);
 	    } else {
 	      // no data found: reset output
 	      resetOutput();
 	    }
 	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  return the employees on page <tt>p</tt> of the matches of this
+	   *  
+	   *  <p>throws NotPossibleException, DataSourceException if fails to load the employees from the data source</pre>
+	   */
+	  private Collection<Employee> loadPage(int p) throws NotPossibleException, DataSourceException {
+	    List<Employee> inMemory = matches;
+	    String pattern = matchPattern;
+	    int size = numEmployees;
+	    
+	    if (pageSize <= 0 || size == 0) 
+	      return inMemory;
+	    
+	    int from = Math.min((p - 1) * pageSize, size);
+	    int to = Math.min(from + pageSize, size);
+	    
+	    if (inMemory != null) {
+	      return inMemory.subList(from, to);
+	    } else {
+	      return loadMatches((RelationalOSMBasic) QRM.getInstance().getDom().getOsm(), pattern, from, to - from);
+	    }
+	  }
+	  
+	  /**
+	   * @effects return page
+	   */
+	  public int getPage() {
+	    return page;
+	  }
+	  
+	  /**
+	   * @effects <pre>
+	   *  if 1 &lt;= p &lt;= numPages and p != page
+	   *    set this.page = p and update {@link #employees} to the employees on that page
+	   *    throws NotPossibleException, DataSourceException if fails to load the employees from the data source
+	   *  </pre>
+	   */
+	  public synchronized void setPage(int p) throws NotPossibleException, DataSourceException {
+	    if (p >= 1 && p <= numPages && p != page) {
+	      this.page = p;
+	      employees = loadPage(p);
+	    }
+	  }
+	  
+	  /**
+	   * @effects return numPages
+	   */
+	  public int getNumPages() {
+	    return numPages;
+	  }
+
+	  /**
+	   * @requires 
+	   *  the lock on {@link #nameQueryLock} is held until the returned query has been run
+	   * @effects <pre>
+	   *  if {@link #nameQuery} has not been prepared for <tt>dsm</tt>
+	   *    prepare it 
+	   *  bind <tt>pattern</tt> as the {@link Op#MATCH} value of {@link #nameQuery}
+	   *  return {@link #nameQuery}</pre>
+	   */
+	  private Query<ObjectExpression> bindNameQuery(DSMBasic dsm, String pattern) throws NotFoundException {
+	    if (nameQuery == null || nameQueryDsm != dsm) {
+	      namePattern = new NamePattern(dsm.getDomainConstraint(Employee.class, Employee.A_name));
+	      nameQuery = new Query<>(namePattern);
+	      nameQueryDsm = dsm;
+	    }
+	    
+	    namePattern.pattern = pattern;
+	    
+	    return nameQuery;
+	  }
+	  
+	  /**
+	   * The {@link Op#MATCH} term of {@link EmployeesByNameReport#nameQuery}, whose value is re-bound 
+	   * on each run instead of re-creating the term.
+	   */
+	  private static final class NamePattern extends ObjectExpression {
+	    private String pattern;
+	    
+	    NamePattern(DAttr nameAttrib) {
+	      super(Employee.class, nameAttrib, Op.MATCH, null);
+	    }
+	    
+	    @Override
+	    public Object getVal() {
+	      return pattern;
+	    }
+	  }
 
 	  /**
 	   * @effects 
@@ -150,7 +688,12 @@ public class EmployeesByNameReport {
 	   */
 	  private void resetOutput() {
 	    employees = null;
+	    resultName = null;
+	    matches = null;
+	    matchPattern = null;
 	    numEmployees = 0;
+	    numPages = 0;
+	    page = 1;
 	  }
 
 	  /**
@@ -0,0 +1,493 @@
+package klk59.hr.model.reports;
+
+import java.time.DateTimeException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.core.dodm.osm.OSM;
+import domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic;
+import domainapp.basics.core.dodm.qrm.QRM;
+import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.Oid;
+import domainapp.basics.model.meta.AttrRef;
+import domainapp.basics.model.meta.DAssoc;
+import domainapp.basics.model.meta.DAssoc.AssocEndType;
+import domainapp.basics.model.meta.DAssoc.AssocType;
+import domainapp.basics.model.meta.DAssoc.Associate;
+import domainapp.basics.model.meta.DAttr;
+import domainapp.basics.model.meta.DAttr.Type;
+import domainapp.basics.model.meta.DClass;
+import domainapp.basics.model.meta.DOpt;
+import domainapp.basics.model.meta.MetaConstants;
+import domainapp.basics.model.meta.Select;
+import domainapp.basics.util.collection.MapList;
+import domainapp.modules.report.model.meta.Output;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.EmployeeIdentityMap;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.ReferenceDataCache;
+import klk59.hr.model.TimeKeepingLog;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * Represent the monthly timesheet summary: the hours of work of each employee (of a department, or of
+ * all departments) in a month, by type of work and in total.
+ *
+ * <p>The report is computed in one of two ways, chosen by its input {@link #aggregation}:
+ * <ul>
+ *  <li>{@link Aggregation#IN_MEMORY}: the time-keeping records of the employees are loaded (on the
+ *  thread that runs the report) and then summed in parallel, one employee per task.
+ *  <li>{@link Aggregation#DATA_SOURCE}: the sums are computed by the data source in one
+ *  <tt>GROUP BY</tt> query, so that the records are not loaded. This needs a relational data source
+ *  whose records can be selected by a range of days (see
+ *  {@link TimeKeepingLog#canSelectDaysInDataSource()}); otherwise the report is computed in memory.
+ * </ul>
+ *
+ * @author agent
+ */
+@DClass(schema="hr",serialisable=false)
+public class MonthlyTimesheetReport {
+  /** the ways of computing the report */
+  public static enum Aggregation {
+    /** sum the records of the employees in memory */
+    IN_MEMORY,
+    /** sum the records in the data source (a relational data source is required) */
+    DATA_SOURCE;
+
+    /**
+     * @effects return the name of this (by which the framework displays the enum values)
+     */
+    @DAttr(name = "name", id = true, type = Type.String, length = 15)
+    public String getName() {
+      return name();
+    }
+  }
+
+  @DAttr(name = "id", id = true, auto = true, type = Type.Integer, length = 5, optional = false, mutable = false)
+  private int id;
+
+  /**input: the month, in the format <tt>yyyy-MM</tt> */
+  @DAttr(name = "month", type = Type.String, length = 7, optional = false)
+  private String month;
+
+  /**input: the department whose employees are reported, <tt>null</tt> for all employees */
+  @DAttr(name = "department", type = Type.Domain, length = 5, optional = true)
+  private Department department;
+
+  /**input: the way that the report is computed */
+  @DAttr(name = "aggregation", type = Type.Domain, length = 15, optional = true)
+  private Aggregation aggregation;
+
+  /**output: number of employees that have worked in the month */
+  @DAttr(name = "numEmployees", type = Type.Integer, length = 20, auto=true, mutable=false)
+  @Output
+  private int numEmployees;
+
+  /**output: hours of work of all the employees in the month */
+  @DAttr(name = "totalHours", type = Type.Integer, length = 20, auto=true, mutable=false)
+  @Output
+  private int totalHours;
+
+  /**output: the summaries of the employees that have worked in the month, in employee id order */
+  @DAttr(name="summaries",type=Type.Collection,optional=false, mutable=false,
+      serialisable=false,filter=@Select(clazz=TimesheetSummary.class,
+      attributes={TimesheetSummary.A_id, TimesheetSummary.A_employee, TimesheetSummary.A_hoursOfWork,
+          TimesheetSummary.A_totalHours, TimesheetSummary.A_report}))
+  @DAssoc(ascName="monthly-timesheet-report-has-summaries",role="report",
+      ascType=AssocType.One2Many,endType=AssocEndType.One,
+    associate=@Associate(type=TimesheetSummary.class,cardMin=0,cardMax=MetaConstants.CARD_MORE))
+  @Output
+  private List<TimesheetSummary> summaries;
+
+  /** the first and last days (epoch days) of {@link #month} */
+  private int fromDay, toDay;
+
+  /**
+   * @effects
+   *  initialise this with <tt>month</tt> and compute the summaries of all employees for that month.
+   *
+   *  <p>throws ConstraintViolationException if <tt>month</tt> is not a valid month;
+   *  NotPossibleException, DataSourceException if fails to read the records
+   */
+  @DOpt(type=DOpt.Type.RequiredConstructor)
+  public MonthlyTimesheetReport(@AttrRef("month") String month)
+      throws ConstraintViolationException, NotPossibleException, DataSourceException {
+    this(month, null);
+  }
+
+  /**
+   * @effects
+   *  initialise this with <tt>month</tt> and <tt>department</tt> and compute the summaries of the
+   *  employees of <tt>department</tt> (of all employees if it is <tt>null</tt>) for that month, in memory.
+   *
+   *  <p>throws ConstraintViolationException if <tt>month</tt> is not a valid month;
+   *  NotPossibleException, DataSourceException if fails to read the records
+   */
+  public MonthlyTimesheetReport(String month, Department department)
+      throws ConstraintViolationException, NotPossibleException, DataSourceException {
+    this(month, department, Aggregation.IN_MEMORY);
+  }
+
+  /**
+   * @effects
+   *  initialise this with <tt>month</tt>, <tt>department</tt> and <tt>aggregation</tt> and compute the
+   *  summaries of the employees of <tt>department</tt> (of all employees if it is <tt>null</tt>) for that
+   *  month, in the way <tt>aggregation</tt> (in memory if it is <tt>null</tt>).
+   *
+   *  <p>throws ConstraintViolationException if <tt>month</tt> is not a valid month;
+   *  NotPossibleException, DataSourceException if fails to read the records
+   */
+  @DOpt(type=DOpt.Type.ObjectFormConstructor)
+  public MonthlyTimesheetReport(@AttrRef("month") String month, @AttrRef("department") Department department,
+      @AttrRef("aggregation") Aggregation aggregation)
+      throws ConstraintViolationException, NotPossibleException, DataSourceException {
+    this.id = IDAllocator.nextID(MonthlyTimesheetReport.class);
+
+    setPeriod(month);
+    this.department = department;
+    this.aggregation = (aggregation != null) ? aggregation : Aggregation.IN_MEMORY;
+
+    doReportQuery();
+  }
+
+  /**
+   * @effects return month
+   */
+  public String getMonth() {
+    return month;
+  }
+
+  /**
+   * @effects <pre>
+   *  if month is a valid month different from this.month
+   *    set this.month = month and recompute the output
+   *  else if month is not valid
+   *    throws ConstraintViolationException
+   *  throws NotPossibleException, DataSourceException if fails to read the records</pre>
+   */
+  public void setMonth(String month) throws ConstraintViolationException, NotPossibleException, DataSourceException {
+    if (month != null && !month.equals(this.month)) {
+      setPeriod(month);
+      doReportQuery();
+    }
+  }
+
+  /**
+   * @effects return department
+   */
+  public Department getDepartment() {
+    return department;
+  }
+
+  /**
+   * @effects <pre>
+   *  if department is different from this.department
+   *    set this.department = department and recompute the output
+   *  throws NotPossibleException, DataSourceException if fails to read the records</pre>
+   */
+  public void setDepartment(Department department) throws NotPossibleException, DataSourceException {
+    if (department != this.department) {
+      this.department = department;
+      doReportQuery();
+    }
+  }
+
+  /**
+   * @effects return aggregation
+   */
+  public Aggregation getAggregation() {
+    return aggregation;
+  }
+
+  /**
+   * @effects <pre>
+   *  if aggregation is different from this.aggregation
+   *    set this.aggregation = aggregation (IN_MEMORY if it is null) and recompute the output
+   *  throws NotPossibleException, DataSourceException if fails to read the records</pre>
+   */
+  public void setAggregation(Aggregation aggregation) throws NotPossibleException, DataSourceException {
+    if (aggregation == null)
+      aggregation = Aggregation.IN_MEMORY;
+    if (aggregation != this.aggregation) {
+      this.aggregation = aggregation;
+      doReportQuery();
+    }
+  }
+
+  /**
+   * @effects
+   *  set {@link #month} to <tt>month</tt> and {@link #fromDay}, {@link #toDay} to its first and last days;
+   *  throws ConstraintViolationException if <tt>month</tt> is not a valid month
+   */
+  private void setPeriod(String month) throws ConstraintViolationException {
+    YearMonth m;
+    try {
+      m = YearMonth.parse((month != null) ? month.trim() : null);
+    } catch (DateTimeException | NullPointerException e) {
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_DATE_VALUE, e, new Object[] {month});
+    }
+
+    this.month = m.toString();
+    this.fromDay = (int) m.atDay(1).toEpochDay();
+    this.toDay = (int) m.atEndOfMonth().toEpochDay();
+  }
+
+  /**
+   * @effects <pre>
+   *  compute the summaries of the employees in the period of this, in the way {@link #aggregation}
+   *  (in memory if the data source can not select the records by day, see {@link Aggregation#DATA_SOURCE}),
+   *  and update the output attributes.
+   *
+   *  <p>throws NotPossibleException, DataSourceException if fails to read the records</pre>
+   */
+  private void doReportQuery() throws NotPossibleException, DataSourceException {
+    DOMBasic dom = QRM.getInstance().getDom();
+
+    List<TimesheetSummary> result;
+    OSM osm = dom.getOsm();
+    if (aggregation == Aggregation.DATA_SOURCE && osm instanceof RelationalOSMBasic
+        && TimeKeepingLog.canSelectDaysInDataSource()) {
+      result = aggregateInDataSource(dom, (RelationalOSMBasic) osm);
+    } else {
+      result = aggregateInMemory(dom);
+    }
+
+    result.sort(Comparator.comparingLong(s -> s.getEmployee().getIdKey()));
+
+    int total = 0;
+    for (TimesheetSummary s : result) {
+      s.setReport(this);
+      total += s.getTotalHours();
+    }
+
+    summaries = Collections.unmodifiableList(result);
+    numEmployees = result.size();
+    totalHours = total;
+  }
+
+  /**
+   * @effects
+   *  return the summaries of the employees in the period of this that have worked in it, computed
+   *  from their time-keeping records: the records are loaded on the current thread (the logs load
+   *  lazily and are not thread-safe) and then summed one employee per (parallel) task
+   */
+  private List<TimesheetSummary> aggregateInMemory(DOMBasic dom) {
+    Collection<Employee> employees = (department != null) ? department.getEmployees()
+        : ReportQueries.objects(dom, Employee.class);
+    if (employees == null || employees.isEmpty())
+      return new ArrayList<>();
+
+    List<EmployeeDays> days = new ArrayList<>(employees.size());
+    for (Employee e : employees)
+      days.add(new EmployeeDays(e, e.getTimeKeepingLog().getDays(fromDay, toDay)));
+
+    List<TimesheetSummary> result = new ArrayList<>(days.size());
+    days.parallelStream()
+        .map(EmployeeDays::summarise)
+        .forEachOrdered(s -> {
+          if (s != null)
+            result.add(s);
+        });
+    return result;
+  }
+
+  /**
+   * The (loaded) records of one employee in the period of a report.
+   */
+  private static final class EmployeeDays {
+    final Employee employee;
+    final Collection<DailyTimeKeeping> days;
+
+    EmployeeDays(Employee employee, Collection<DailyTimeKeeping> days) {
+      this.employee = employee;
+      this.days = days;
+    }
+
+    /**
+     * @effects
+     *  return the summary of {@link #days}, or <tt>null</tt> if there are none
+     */
+    TimesheetSummary summarise() {
+      Map<String, Integer> hours = new HashMap<>();
+      for (DailyTimeKeeping d : days) {
+        TypeOfWork t = d.getTypeOfWork();
+        hours.merge((t != null) ? t.getName() : null, d.getHourOfWork(), Integer::sum);
+      }
+
+      return hours.isEmpty() ? null : new TimesheetSummary(employee, hours);
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  return the summaries of the employees in the period of this that have worked in it, whose
+   *  sums are computed in the data source by one query of the form:
+   *    SELECT d.employee, d.typeOfWork, SUM(d.hourOfWork) FROM DailyTimeKeeping d
+   *      [JOIN Employee e ON e.id = d.employee]
+   *    WHERE d.dateOfWork BETWEEN :first AND :last [AND e.department = :department]
+   *    GROUP BY d.employee, d.typeOfWork
+   *  and whose employees that are not in the object pool are then read with one more query.
+   *
+   *  <p>throws NotPossibleException if the columns are not known,
+   *  DataSourceException if fails to run the queries</pre>
+   * @requires
+   *  {@link TimeKeepingLog#canSelectDaysInDataSource()}
+   */
+  private List<TimesheetSummary> aggregateInDataSource(DOMBasic dom, RelationalOSMBasic osm)
+      throws NotPossibleException, DataSourceException {
+    DAttr idAttrib;
+    String sql;
+    try {
+      idAttrib = dom.getDsm().getDomainConstraint(Employee.class, Employee.A_id);
+      String dEmployee = "d." + osm.toDBColumnName(DailyTimeKeeping.class, "employee", false);
+      String dType = "d." + osm.toDBColumnName(DailyTimeKeeping.class, "typeOfWork", false);
+      String dDate = "d." + osm.toDBColumnName(DailyTimeKeeping.class, "dateOfWork", false);
+      String dHours = "d." + osm.toDBColumnName(DailyTimeKeeping.class, "hourOfWork", false);
+
+      StringBuilder q = new StringBuilder()
+          .append("SELECT ").append(dEmployee).append(" AS EMP, ").append(dType).append(" AS TOW, SUM(")
+          .append(dHours).append(") AS HRS FROM ")
+          .append(ReportQueries.tableName(dom, DailyTimeKeeping.class)).append(" d");
+      if (department != null) {
+        q.append(" JOIN ").append(ReportQueries.tableName(dom, Employee.class)).append(" e ON e.")
+            .append(osm.toDBColumnName(Employee.class, Employee.A_id, false)).append(" = ").append(dEmployee);
+      }
+      // the dates are all ISO dates (see @requires), which are ordered as strings
+      q.append(" WHERE ").append(dDate).append(" BETWEEN ").append(ReportQueries.literal(WorkDates.format(fromDay)))
+          .append(" AND ").append(ReportQueries.literal(WorkDates.format(toDay)));
+      if (department != null) {
+        q.append(" AND e.").append(osm.toDBColumnName(Employee.class, "department", false))
+            .append(" = ").append(department.getId());
+      }
+      q.append(" GROUP BY ").append(dEmployee).append(", ").append(dType);
+      sql = q.toString();
+    } catch (NotFoundException e) {
+      throw new NotPossibleException(NotPossibleException.Code.FAIL_TO_PERFORM_REPORT, e,
+          new Object[] {MonthlyTimesheetReport.class.getSimpleName()});
+    }
+
+    MapList<?, ?> rows = osm.queryAsMap(sql);
+    List<?> employeeIds = ReportQueries.column(rows, "EMP");
+    List<?> typeIds = ReportQueries.column(rows, "TOW");
+    List<?> hours = ReportQueries.column(rows, "HRS");
+
+    // employee id -> (name of type of work -> hours)
+    Map<String, Map<String, Integer>> sums = new LinkedHashMap<>();
+    ReferenceDataCache types = ReferenceDataCache.getInstance();
+    for (int i = 0; i < employeeIds.size(); i++) {
+      String employeeId = String.valueOf(employeeIds.get(i));
+      TypeOfWork t = types.get(TypeOfWork.class, ((Number) typeIds.get(i)).intValue(), dom);
+      int h = ((Number) hours.get(i)).intValue();
+
+      sums.computeIfAbsent(employeeId, k -> new HashMap<>())
+          .merge((t != null) ? t.getName() : null, h, Integer::sum);
+    }
+
+    Map<String, Employee> employees = lookUpEmployees(dom, idAttrib, sums.keySet());
+    List<TimesheetSummary> result = new ArrayList<>(sums.size());
+    for (Map.Entry<String, Map<String, Integer>> s : sums.entrySet()) {
+      Employee e = employees.get(s.getKey());
+      if (e != null)
+        result.add(new TimesheetSummary(e, s.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * @effects
+   *  return the canonical employees whose ids are <tt>ids</tt>, by id: those that are not in the
+   *  object pool are read from the data source with one query (those that are in neither are left out)
+   */
+  private static Map<String, Employee> lookUpEmployees(DOMBasic dom, DAttr idAttrib, Collection<String> ids)
+      throws NotPossibleException, DataSourceException {
+    EmployeeIdentityMap identities = EmployeeIdentityMap.getInstance();
+    Map<String, Employee> result = new HashMap<>();
+    List<Oid> missing = new ArrayList<>();
+    for (String id : ids) {
+      Employee e = identities.get(id);
+      if (e == null)
+        e = (Employee) dom.lookUpObjectByID(Employee.class, id);
+
+      if (e != null) {
+        result.put(id, identities.canonical(e));
+      } else {
+        Oid oid = new Oid(Employee.class);
+        oid.addIdValue(idAttrib, id);
+        missing.add(oid);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      Map<Oid, Employee> objects = dom.retrieveObjects(Employee.class, missing, null);
+      if (objects != null) {
+        for (Employee e : objects.values()) {
+          if (e != null)
+            result.put(e.getId(), identities.canonical(e));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @effects return the summaries of the employees that have worked in the month, in employee id order
+   */
+  public List<TimesheetSummary> getSummaries() {
+    return summaries;
+  }
+
+  /**
+   * @effects return numEmployees
+   */
+  public int getNumEmployees() {
+    return numEmployees;
+  }
+
+  /**
+   * @effects return totalHours
+   */
+  public int getTotalHours() {
+    return totalHours;
+  }
+
+  /**
+   * @effects return id
+   */
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 + id;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    return id == ((MonthlyTimesheetReport) obj).id;
+  }
+
+  @Override
+  public String toString() {
+    return "MonthlyTimesheetReport (" + id + ", " + month + ", " + department + ")";
+  }
+}
@@ -0,0 +1,63 @@
+package klk59.hr.model.reports;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.util.collection.MapList;
+
+/**
+ * Helpers of the reports that read the objects of the object pool and send SQL queries to a relational
+ * data source (through {@link domainapp.basics.core.dodm.osm.relational.RelationalOSMBasic#queryAsMap(String)}).
+ *
+ * @author agent
+ */
+final class ReportQueries {
+  private ReportQueries() {
+    // no instances
+  }
+
+  /**
+   * @effects return the objects of <tt>c</tt> in the object pool of <tt>dom</tt>
+   */
+  static <T> List<T> objects(DOMBasic dom, Class<T> c) {
+    Collection<?> objects = dom.getObjects(c);
+    List<T> result = new ArrayList<>((objects != null) ? objects.size() : 0);
+    if (objects != null) {
+      for (Object o : objects)
+        result.add(c.cast(o));
+    }
+    return result;
+  }
+
+  /**
+   * @effects return the name of the data source table of <tt>c</tt>, qualified by its schema
+   *  (the {@link domainapp.basics.model.meta.DClass#schema()} of <tt>c</tt>, unless it is the default one)
+   */
+  static String tableName(DOMBasic dom, Class<?> c) {
+    return dom.getDsm().getDomainClassName(c);
+  }
+
+  /**
+   * @effects return <tt>s</tt> as an SQL string literal
+   */
+  static String literal(String s) {
+    return "'" + s.replace("'", "''") + "'";
+  }
+
+  /**
+   * @effects
+   *  return the values, one per row, of the column <tt>label</tt> of the result <tt>rows</tt> of
+   *  <tt>queryAsMap</tt> (which is <tt>null</tt> if the query has no rows)
+   */
+  static List<?> column(MapList<?, ?> rows, String label) {
+    if (rows == null)
+      return Collections.emptyList();
+
+    // queryAsMap keys the columns by their lower-case names
+    Object values = rows.get(label.toLowerCase());
+    return (values != null) ? (List<?>) values : Collections.emptyList();
+  }
+}
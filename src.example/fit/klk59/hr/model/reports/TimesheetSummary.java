@@ -0,0 +1,145 @@
+package klk59.hr.model.reports;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import domainapp.basics.model.meta.DAttr;
+import domainapp.basics.model.meta.DAttr.Type;
+import domainapp.basics.model.meta.DClass;
+import klk59.hr.model.Employee;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.TypeOfWork;
+
+/**
+ * The hours of work of one employee in the period of a {@link MonthlyTimesheetReport}, by type of work
+ * and in total.
+ *
+ * @author agent
+ */
+@DClass(schema="hr",serialisable=false)
+public class TimesheetSummary {
+  public static final String A_id = "id";
+  public static final String A_employee = "employee";
+  public static final String A_hoursOfWork = "hoursOfWork";
+  public static final String A_totalHours = "totalHours";
+  public static final String A_report = "report";
+
+  @DAttr(name = A_id, id = true, auto = true, type = Type.Integer, length = 10, optional = false, mutable = false)
+  private int id;
+
+  @DAttr(name = A_employee, type = Type.Domain, length = 5, optional = false, mutable = false)
+  private Employee employee;
+
+  /** the hours of work by type of work, as text (see {@link #getHoursOfWork()}) */
+  @DAttr(name = A_hoursOfWork, type = Type.String, length = 255, auto=true, mutable = false)
+  private String hoursOfWork;
+
+  @DAttr(name = A_totalHours, type = Type.Integer, length = 10, auto=true, mutable = false)
+  private int totalHours;
+
+  @DAttr(name = A_report, type = Type.Domain, serialisable = false,
+      // excluded from the object state, like the other reports' back references
+      virtual = true)
+  private MonthlyTimesheetReport report;
+
+  /** name of type of work -> hours of work, in name order */
+  private final Map<String, Integer> hoursByTypeOfWork;
+
+  /**
+   * @effects initialise this with the hours of work of <tt>employee</tt> by type of work
+   */
+  TimesheetSummary(Employee employee, Map<String, Integer> hoursByTypeOfWork) {
+    this.id = IDAllocator.nextID(TimesheetSummary.class);
+    this.employee = employee;
+    this.hoursByTypeOfWork = Collections.unmodifiableMap(new TreeMap<>(hoursByTypeOfWork));
+
+    int total = 0;
+    StringBuilder text = new StringBuilder();
+    for (Map.Entry<String, Integer> h : this.hoursByTypeOfWork.entrySet()) {
+      total += h.getValue();
+      if (text.length() > 0)
+        text.append(", ");
+      text.append(h.getKey()).append(": ").append(h.getValue());
+    }
+    this.totalHours = total;
+    this.hoursOfWork = text.toString();
+  }
+
+  /**
+   * @effects return id
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @effects return employee
+   */
+  public Employee getEmployee() {
+    return employee;
+  }
+
+  /**
+   * @effects return the hours of work of the employee by type of work, as the text
+   *  <tt>type: hours, ...</tt> in name order
+   */
+  public String getHoursOfWork() {
+    return hoursOfWork;
+  }
+
+  /**
+   * @effects return the hours of work of the employee, by name of type of work
+   */
+  public Map<String, Integer> getHoursByTypeOfWork() {
+    return hoursByTypeOfWork;
+  }
+
+  /**
+   * @effects return the hours of work of the employee of type <tt>t</tt>
+   */
+  public int getHoursOfWork(TypeOfWork t) {
+    Integer h = hoursByTypeOfWork.get(t.getName());
+    return (h != null) ? h : 0;
+  }
+
+  /**
+   * @effects return totalHours
+   */
+  public int getTotalHours() {
+    return totalHours;
+  }
+
+  /**
+   * @effects return report
+   */
+  public MonthlyTimesheetReport getReport() {
+    return report;
+  }
+
+  /**
+   * @effects set report = <tt>report</tt>
+   */
+  void setReport(MonthlyTimesheetReport report) {
+    this.report = report;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 + id;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || getClass() != obj.getClass())
+      return false;
+    return id == ((TimesheetSummary) obj).id;
+  }
+
+  @Override
+  public String toString() {
+    return "TimesheetSummary (" + employee.getId() + ", " + hoursByTypeOfWork + ", " + totalHours + ")";
+  }
+}
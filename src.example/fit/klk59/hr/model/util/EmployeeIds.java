@@ -0,0 +1,115 @@
+package klk59.hr.model.util;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+
+/**
+ * The codec of the ids of {@link klk59.hr.model.Employee}, which are the prefix {@link #PREFIX}
+ * followed by a positive decimal number (e.g. <tt>"TSDV12"</tt>).
+ *
+ * <p>Ids are parsed in place, without creating substrings, and formatted into one character array.
+ * The number of an id is also its {@link #toKey(CharSequence) key}, a <tt>long</tt> that identifies
+ * the employee and can be hashed and compared without the string.
+ *
+ * @author agent
+ */
+public class EmployeeIds {
+  /** the prefix of every employee id */
+  public static final String PREFIX = "TSDV";
+
+  private static final int PREFIX_LENGTH = PREFIX.length();
+
+  /** the maximum number of digits of an id (those of {@link Integer#MAX_VALUE}) */
+  private static final int MAX_DIGITS = 10;
+
+  /** the maximum length of an id, i.e. the length of {@link #PREFIX} plus {@link #MAX_DIGITS} */
+  public static final int MAX_LENGTH = 4 + MAX_DIGITS;
+
+  private EmployeeIds() {
+    // no instances
+  }
+
+  /**
+   * @effects <pre>
+   *  if <tt>id</tt> is a valid employee id
+   *    return its number
+   *  else
+   *    throws ConstraintViolationException</pre>
+   */
+  public static int parse(CharSequence id) throws ConstraintViolationException {
+    long n = toKey(id);
+    if (n > Integer.MAX_VALUE)
+      throw invalid(id);
+    return (int) n;
+  }
+
+  /**
+   * @effects <pre>
+   *  if <tt>id</tt> is a valid employee id
+   *    return its key
+   *  else
+   *    throws ConstraintViolationException</pre>
+   */
+  public static long toKey(CharSequence id) throws ConstraintViolationException {
+    long n = keyOf(id);
+    if (n < 0)
+      throw invalid(id);
+    return n;
+  }
+
+  /**
+   * @effects return true if <tt>id</tt> is a valid employee id, false otherwise
+   */
+  public static boolean isValid(CharSequence id) {
+    return keyOf(id) >= 0;
+  }
+
+  /**
+   * @requires n &gt; 0
+   * @effects return the id whose number is <tt>n</tt>
+   */
+  public static String format(int n) {
+    int digits = 1;
+    for (int v = n; v >= 10; v /= 10)
+      digits++;
+
+    char[] c = new char[PREFIX_LENGTH + digits];
+    PREFIX.getChars(0, PREFIX_LENGTH, c, 0);
+    for (int i = c.length - 1, v = n; i >= PREFIX_LENGTH; i--, v /= 10)
+      c[i] = (char) ('0' + v % 10);
+
+    return new String(c);
+  }
+
+  /**
+   * @effects
+   *  return the number of <tt>id</tt> if it is a valid employee id, or <tt>-1</tt>
+   */
+  private static long keyOf(CharSequence id) {
+    if (id == null)
+      return -1;
+
+    int len = id.length();
+    if (len <= PREFIX_LENGTH || len > PREFIX_LENGTH + MAX_DIGITS)
+      return -1;
+
+    for (int i = 0; i < PREFIX_LENGTH; i++) {
+      if (id.charAt(i) != PREFIX.charAt(i))
+        return -1;
+    }
+
+    long n = 0;
+    for (int i = PREFIX_LENGTH; i < len; i++) {
+      int digit = id.charAt(i) - '0';
+      if (digit < 0 || digit > 9)
+        return -1;
+      n = n * 10 + digit;
+    }
+
+    return (n > 0) ? n : -1;
+  }
+
+  private static ConstraintViolationException invalid(CharSequence id) {
+    return new ConstraintViolationException(
+        ConstraintViolationException.Code.INVALID_VALUE, new Object[] {id});
+  }
+}
@@ -0,0 +1,227 @@
+package klk59.hr.model.util;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link java.util.List} of the linked objects of an association end, which keeps
+ * the objects in insertion order and indexes them by hash code.
+ *
+ * <p>{@link #contains(Object)}, {@link #add(Object)} and {@link #remove(Object)} take O(1) time.
+ * A list does not contain duplicates: {@link #add(Object)} returns <tt>false</tt> and leaves
+ * the list unchanged if the object is already in it, so that the owner of the list can use
+ * the result to keep its link count up-to-date.
+ *
+ * <p>Positional access is supported through an array snapshot of the elements, which
+ * is rebuilt after the list has been changed.
+ *
+ * <p>The list also keeps the link count of the association end (see {@link #getLinkCount()}), so that
+ * the owner does not have to count the links itself: the count is the number of elements plus the
+ * number of links that the data source has reported (see {@link #setLinkCount(int)}) and that have not
+ * been added yet.
+ *
+ * @author agent
+ */
+public class IndexedLinkList<E> extends AbstractList<E> {
+  private final LinkedHashSet<E> elements;
+
+  /** cached elements for {@link #get(int)}, <tt>null</tt> if out-of-date */
+  private Object[] snapshot;
+
+  /** the number of links in the data source that have not been added to this */
+  private int unloaded;
+
+  /**
+   * @effects
+   *  initialise this as an empty list
+   */
+  public IndexedLinkList() {
+    elements = new LinkedHashSet<>();
+  }
+
+  /**
+   * @effects
+   *  initialise this with the distinct elements of <tt>c</tt>, in the iteration order of <tt>c</tt>
+   */
+  public IndexedLinkList(Collection<? extends E> c) {
+    elements = new LinkedHashSet<>(Math.max(16, (int) (c.size() / .75f) + 1));
+    elements.addAll(c);
+  }
+
+  /**
+   * @effects
+   *  if e is not in this
+   *    append e to this, return true
+   *  else
+   *    return false
+   */
+  @Override
+  public boolean add(E e) {
+    if (elements.add(e)) {
+      changed();
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Add a link that is read from the data source, i.e. one that is already included in the
+   * link count of this.
+   *
+   * @effects
+   *  if e is not in this
+   *    append e to this, count it as one of the links that were not loaded, return true
+   *  else
+   *    return false
+   */
+  public boolean addLoaded(E e) {
+    if (add(e)) {
+      if (unloaded > 0)
+        unloaded--;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * @effects
+   *  {@link #addLoaded(Object)} each element of <tt>c</tt>;
+   *  return true if this was changed
+   */
+  public boolean addAllLoaded(Collection<? extends E> c) {
+    boolean added = false;
+    for (E e : c) {
+      if (addLoaded(e))
+        added = true;
+    }
+    return added;
+  }
+
+  /**
+   * @effects
+   *  return the number of links of the association end of this, i.e. the number of elements
+   *  plus the number of links in the data source that have not been added
+   */
+  public int getLinkCount() {
+    return elements.size() + unloaded;
+  }
+
+  /**
+   * This method is invoked (through the <tt>LinkCountSetter</tt> of the owner) with the number of links
+   * in the data source, before the links are loaded.
+   *
+   * @effects
+   *  set the link count of this to <tt>count</tt> (but not lower than {@link #size()})
+   */
+  public void setLinkCount(int count) {
+    unloaded = Math.max(0, count - elements.size());
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends E> c) {
+    boolean added = false;
+    for (E e : c) {
+      if (elements.add(e))
+        added = true;
+    }
+
+    if (added)
+      changed();
+
+    return added;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return elements.contains(o);
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (elements.remove(o)) {
+      changed();
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public E remove(int index) {
+    E e = get(index);
+    remove(e);
+    return e;
+  }
+
+  @Override
+  public void clear() {
+    if (!elements.isEmpty()) {
+      elements.clear();
+      changed();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public E get(int index) {
+    if (index < 0 || index >= elements.size())
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.size());
+
+    if (snapshot == null)
+      snapshot = elements.toArray();
+
+    return (E) snapshot[index];
+  }
+
+  @Override
+  public int size() {
+    return elements.size();
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    final Iterator<E> it = elements.iterator();
+    return new Iterator<E>() {
+      private boolean canRemove;
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public E next() {
+        if (!it.hasNext())
+          throw new NoSuchElementException();
+
+        E e = it.next();
+        canRemove = true;
+        return e;
+      }
+
+      @Override
+      public void remove() {
+        if (!canRemove)
+          throw new IllegalStateException();
+
+        it.remove();
+        canRemove = false;
+        changed();
+      }
+    };
+  }
+
+  /**
+   * @effects
+   *  invalidate {@link #snapshot} and record a structural change of this
+   */
+  private void changed() {
+    snapshot = null;
+    modCount++;
+  }
+}
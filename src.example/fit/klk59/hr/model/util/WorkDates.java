@@ -0,0 +1,154 @@
+package klk59.hr.model.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+
+/**
+ * Parsing and formatting of the work dates of {@link klk59.hr.model.DailyTimeKeeping}.
+ *
+ * <p>A work date is represented internally as an epoch day (the number of days since 1970-01-01),
+ * so that dates can be compared and ordered as <tt>int</tt>s. A date string may be written
+ * in the ISO format (<tt>yyyy-MM-dd</tt>) or in the day-first format (<tt>d/M/yyyy</tt> or <tt>d-M-yyyy</tt>);
+ * dates are always formatted in the ISO format.
+ *
+ * <p>The dates of the records that are read from the data source were entered as free text before
+ * they were validated, so they are parsed with {@link #parseLenient(String)}, which accepts the other
+ * common ways of writing a date and returns {@link #NO_DAY} for a value that is not a date at all.
+ *
+ * <p>{@link #format(int)} returns the same <tt>String</tt> object for the same day of the years
+ * {@value #FIRST_YEAR} to {@value #LAST_YEAR}, so that the records of a day share one date string
+ * instead of holding one each.
+ *
+ * @author agent
+ */
+public class WorkDates {
+  /** the work day of a record whose date is not a valid date (see {@link #parseLenient(String)}) */
+  public static final int NO_DAY = Integer.MIN_VALUE;
+
+  /** the first and last years whose date strings are shared (see {@link #format(int)}) */
+  public static final int FIRST_YEAR = 1900, LAST_YEAR = 2099;
+
+  private static final int FIRST_DAY = (int) LocalDate.of(FIRST_YEAR, 1, 1).toEpochDay();
+
+  /**
+   * the ISO strings of the days from {@link #FIRST_DAY}, filled in as they are formatted; a race
+   * between two threads only formats the same string twice, and a String is safe to read without
+   * synchronisation
+   */
+  private static final String[] ISO_STRINGS =
+      new String[(int) LocalDate.of(LAST_YEAR + 1, 1, 1).toEpochDay() - FIRST_DAY];
+
+  private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("uuuu-MM-dd")
+      .withResolverStyle(ResolverStyle.STRICT);
+
+  private static final DateTimeFormatter[] DAY_FIRST = {
+      DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT),
+      DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT)
+  };
+
+  /** the other date formats that {@link #parseLenient(String)} accepts, in the order they are tried */
+  private static final DateTimeFormatter[] LENIENT = lenientFormats(
+      "uuuu-M-d", "uuuu/M/d", "uuuu.M.d", "uuuuMMdd",
+      "d.M.uuuu", "d/M/uu", "d-M-uu", "d.M.uu",
+      "d MMM uuuu", "d-MMM-uuuu", "d MMMM uuuu", "MMM d, uuuu", "MMMM d, uuuu");
+
+  /** a time of day after a date, e.g. <tt>" 08:00"</tt> or <tt>"T08:00:00.000"</tt> */
+  private static final Pattern TIME_SUFFIX = Pattern.compile("[ T]\\d{1,2}:\\d{2}(:\\d{2}(\\.\\d+)?)?$");
+
+  private WorkDates() {
+    // no instances
+  }
+
+  /**
+   * @effects
+   *  if <tt>date</tt> is a valid work date
+   *    return its epoch day
+   *  else
+   *    throws ConstraintViolationException
+   */
+  public static int parse(String date) throws ConstraintViolationException {
+    if (date == null)
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_DATE_VALUE, new Object[] {date});
+
+    String d = date.trim();
+    try {
+      if (d.length() == 10 && d.charAt(4) == '-') {
+        return (int) LocalDate.parse(d, ISO).toEpochDay();
+      } else {
+        DateTimeFormatter f = (d.indexOf('/') >= 0) ? DAY_FIRST[0] : DAY_FIRST[1];
+        return (int) LocalDate.parse(d, f).toEpochDay();
+      }
+    } catch (DateTimeException e) {
+      throw new ConstraintViolationException(
+          ConstraintViolationException.Code.INVALID_DATE_VALUE, e, new Object[] {date});
+    }
+  }
+
+  /**
+   * @effects <pre>
+   *  if <tt>date</tt> is a valid work date (see {@link #parse(String)}), or a date in one of the other
+   *  accepted formats, possibly followed by a time of day
+   *    return its epoch day
+   *  else
+   *    return {@link #NO_DAY}</pre>
+   */
+  public static int parseLenient(String date) {
+    if (date == null)
+      return NO_DAY;
+
+    String d = TIME_SUFFIX.matcher(date.trim()).replaceFirst("");
+    try {
+      return parse(d);
+    } catch (ConstraintViolationException e) {
+      // try the other formats
+    }
+
+    for (DateTimeFormatter f : LENIENT) {
+      try {
+        return (int) LocalDate.parse(d, f).toEpochDay();
+      } catch (DateTimeException e) {
+        // try the next format
+      }
+    }
+    return NO_DAY;
+  }
+
+  /**
+   * @effects
+   *  return the ISO string of the date whose epoch day is <tt>epochDay</tt>, the same object on every
+   *  call if it is in the years {@link #FIRST_YEAR} to {@link #LAST_YEAR};
+   *  or <tt>null</tt> if <tt>epochDay = {@link #NO_DAY}</tt>
+   */
+  public static String format(int epochDay) {
+    if (epochDay == NO_DAY)
+      return null;
+
+    int i = epochDay - FIRST_DAY;
+    if (i < 0 || i >= ISO_STRINGS.length)
+      return LocalDate.ofEpochDay(epochDay).format(ISO);
+
+    String s = ISO_STRINGS[i];
+    if (s == null) {
+      s = LocalDate.ofEpochDay(epochDay).format(ISO);
+      ISO_STRINGS[i] = s;
+    }
+    return s;
+  }
+
+  private static DateTimeFormatter[] lenientFormats(String... patterns) {
+    DateTimeFormatter[] formats = new DateTimeFormatter[patterns.length];
+    for (int i = 0; i < patterns.length; i++) {
+      formats[i] = new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(patterns[i])
+          .toFormatter(Locale.ENGLISH).withResolverStyle(ResolverStyle.STRICT);
+    }
+    return formats;
+  }
+}
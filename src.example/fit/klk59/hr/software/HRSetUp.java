@@ -0,0 +1,37 @@
+package klk59.hr.software;
+
+import java.util.concurrent.ForkJoinPool;
+
+import domainapp.basics.apps.tool.setup.DomainAppToolSetUp;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
+
+/**
+ * The set-up of {@link HRSoftware} in the <tt>parallel</tt> start-up mode (see
+ * {@link HRSoftware#PROP_BOOTSTRAP}): once the framework has loaded the configuration of the application,
+ * the domain model is started up by a {@link ModelStartUp} and the time of each phase is logged.
+ *
+ * @author agent
+ */
+public class HRSetUp extends DomainAppToolSetUp {
+  /**
+   * @effects
+   *  load the configuration of the application, then
+   *  {@link ModelStartUp#start(domainapp.basics.core.dodm.DODMBasic)} the model and log the time of each phase
+   */
+  @Override
+  public void loadConfiguration() throws NotFoundException, NotPossibleException, DataSourceException {
+    long start = System.nanoTime();
+    super.loadConfiguration();
+    long configMillis = (System.nanoTime() - start) / 1000000;
+
+    ModelStartUp startUp = new ModelStartUp(getModelClasses(), ForkJoinPool.commonPool());
+    startUp.record("configuration", configMillis);
+    try {
+      startUp.start(getDODM());
+    } finally {
+      log(MessageCode.UNDEFINED, "HRSoftware start-up (ms): {0}", startUp.getTimings());
+    }
+  }
+}
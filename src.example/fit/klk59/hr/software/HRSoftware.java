@@ -1,6 +1,7 @@
 package klk59.hr.software;
 
 import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.util.properties.Property.PropertyName;
 import domainapp.basics.software.DomainAppToolSoftware;
 import klk59.hr.model.City;
 import klk59.hr.model.DailyTimeKeeping;
@@ -8,29 +9,59 @@ import klk59.hr.model.Department;
 import klk59.hr.model.Employee;
 import klk59.hr.model.JobQualification;
 import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.reports.DepartmentDashboardReport;
+import klk59.hr.model.reports.DepartmentSummary;
 import klk59.hr.model.reports.EmployeesByNameReport;
+import klk59.hr.model.reports.MonthlyTimesheetReport;
+import klk59.hr.model.reports.TimesheetSummary;
 
 public class HRSoftware extends DomainAppToolSoftware{
 	// the domain model of software
-	  private static final Class[] model = {
+	  private static final Class<?>[] model = {
 	      Employee.class, 
 	      City.class, 
 	      Department.class,
 	      JobQualification.class,
 	      TypeOfWork.class,
 	      DailyTimeKeeping.class,
-	      EmployeesByNameReport.class
+	      EmployeesByNameReport.class,
+	      TimesheetSummary.class,
+	      MonthlyTimesheetReport.class,
+	      DepartmentSummary.class,
+	      DepartmentDashboardReport.class
 	  };
 	  
+	  /**
+	   * The system property that selects the start-up mode: <tt>parallel</tt> runs the command 
+	   * with the set-up {@link HRSetUp}, which starts the domain model up with {@link ModelStartUp}
+	   * and logs the time of each phase; any other value runs the command directly. 
+	   */
+	  public static final String PROP_BOOTSTRAP = "hr.bootstrap";
+	  
 	  /**
 	   * @effects 
 	   *  return {@link #model}.
 	   */
 	  @Override
-	  protected Class[] getModel() {
+	  protected Class<?>[] getModel() {
 	    return model;
 	  }
 
+	  /**
+	   * @effects 
+	   *  if the start-up mode ({@link #PROP_BOOTSTRAP}) is <tt>parallel</tt> and no set-up class is set
+	   *    set the set-up class to {@link HRSetUp}
+	   *  run the command args[0]
+	   */
+	  @Override
+	  protected void exec(String[] args) throws NotPossibleException {
+	    String setUp = PropertyName.setup_class.getSysPropName();
+	    if ("parallel".equals(System.getProperty(PROP_BOOTSTRAP)) && System.getProperty(setUp) == null)
+	      System.setProperty(setUp, HRSetUp.class.getName());
+	    
+	    super.exec(args);
+	  }
+
 	  /**
 	   * The main method
 	   * @effects 
@@ -0,0 +1,238 @@
+package klk59.hr.software;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import domainapp.basics.core.dodm.DODMBasic;
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.exceptions.NotFoundException;
+import domainapp.basics.exceptions.NotPossibleException;
+import domainapp.basics.model.meta.DAttr;
+import klk59.hr.model.EmployeeIdentityMap;
+import klk59.hr.model.ReferenceDataCache;
+import klk59.hr.model.SalaryGrades;
+
+/**
+ * Starts the domain model of a software up, and records the time of each phase of the start-up.
+ *
+ * <p>{@link #start(DODMBasic)} runs these phases:
+ * <ol>
+ *  <li><tt>prepare</tt>: loads and initialises the domain classes and reads their fields, methods,
+ *  constructors and their annotations, in parallel, so that the framework finds the classes loaded and
+ *  their reflection data cached. A class is prepared after the classes that its domain-typed attributes
+ *  refer to, and the classes that do not depend on each other are prepared together (see
+ *  {@link #getLevels()}).
+ *  <li><tt>register</tt>: registers the domain classes with the object manager, one at a time because the
+ *  registration of the framework is not thread-safe. The framework checks the table of each class (and
+ *  creates it if it does not exist) as it registers the class; the check is not deferred. The objects are
+ *  not read: reference data and time-keeping records are read when they are first used.
+ *  <li><tt>services</tt>: registers {@link ReferenceDataCache} and {@link EmployeeIdentityMap} with the
+ *  object manager. Nothing is read: {@link klk59.hr.model.EmployeeNameIndex} is loaded by its first search.
+ * </ol>
+ *
+ * <p>So only the warm-up of the reflection data is parallel. It is measured by <tt>StartUpTimer</tt>
+ * against the registration on its own, and saves little: the registration loads most of the classes and
+ * reads the annotations that it needs itself.
+ *
+ * <p>The metadata that the framework builds from the annotations of the domain classes (attributes,
+ * associations, constructors, link operations) is not saved between runs. The framework builds it in its
+ * own registration code and has no hook that accepts metadata built beforehand, so a snapshot of it
+ * would not save the framework any work; only the warm-up would read it, and that warm-up needs little
+ * more than the domain-typed fields (see {@link #getLevels()}).
+ *
+ * @author agent
+ */
+public class ModelStartUp {
+  /** the domain classes of the model */
+  private final Class<?>[] model;
+
+  /** the domain classes in dependency order, one set of independent classes per level */
+  private final List<List<Class<?>>> levels;
+
+  /** phase name -> elapsed time (ms) */
+  private final Map<String, Long> timings = new LinkedHashMap<>();
+
+  private final ForkJoinPool pool;
+
+  /**
+   * @effects initialise this for the domain classes <tt>model</tt>
+   */
+  public ModelStartUp(Class<?>[] model) {
+    this(model, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @effects initialise this for the domain classes <tt>model</tt>, to run in <tt>pool</tt>
+   */
+  public ModelStartUp(Class<?>[] model, ForkJoinPool pool) {
+    this.model = model.clone();
+    this.pool = pool;
+    this.levels = levels(model);
+  }
+
+  /**
+   * @effects
+   *  {@link #prepare()} the classes of the model, register them with <tt>dodm</tt> without reading their
+   *  objects and register the shared model services with the object manager of <tt>dodm</tt>
+   *
+   *  <p>throws NotPossibleException, NotFoundException, DataSourceException if fails to register the
+   *  classes
+   */
+  public void start(DODMBasic dodm) throws NotPossibleException, NotFoundException, DataSourceException {
+    prepare();
+
+    long start = System.nanoTime();
+    try {
+      dodm.addClasses(model, true, false);
+    } finally {
+      record("register", (System.nanoTime() - start) / 1000000);
+    }
+
+    start = System.nanoTime();
+    try {
+      DOMBasic dom = dodm.getDom();
+      ReferenceDataCache.getInstance().listenTo(dom);
+      EmployeeIdentityMap.getInstance().listenTo(dom);
+    } finally {
+      record("services", (System.nanoTime() - start) / 1000000);
+    }
+  }
+
+  /**
+   * @effects
+   *  load, initialise and read the reflection data of the classes of the model, level by level,
+   *  the classes of a level in parallel
+   */
+  public void prepare() {
+    time("prepare", () -> {
+      for (final List<Class<?>> level : levels) {
+        pool.submit(() -> level.parallelStream().forEach(ModelStartUp::prepare)).join();
+      }
+
+      SalaryGrades.getVersion();
+    });
+  }
+
+  /**
+   * @effects
+   *  run <tt>phase</tt> and record its elapsed time under <tt>name</tt>
+   */
+  public void time(String name, Runnable phase) {
+    long start = System.nanoTime();
+    try {
+      phase.run();
+    } finally {
+      record(name, (System.nanoTime() - start) / 1000000);
+    }
+  }
+
+  /**
+   * @effects
+   *  record <tt>millis</tt> as the elapsed time of the phase <tt>name</tt>, which was run outside this
+   */
+  public void record(String name, long millis) {
+    synchronized (timings) {
+      timings.put(name, millis);
+    }
+  }
+
+  /**
+   * @effects return the classes of the model in dependency order, grouped into levels of classes
+   *  that do not depend on each other
+   */
+  public List<List<Class<?>>> getLevels() {
+    return Collections.unmodifiableList(levels);
+  }
+
+  /**
+   * @effects return the recorded phases and their elapsed times (ms), in the order in which they were run
+   */
+  public Map<String, Long> getTimings() {
+    synchronized (timings) {
+      return new LinkedHashMap<>(timings);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ModelStartUp(" + getTimings() + ")";
+  }
+
+  /**
+   * @effects
+   *  load and initialise <tt>c</tt> and read its fields, methods and constructors and their annotations
+   */
+  private static void prepare(Class<?> c) {
+    try {
+      Class.forName(c.getName(), true, c.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      // c is loaded already
+    }
+
+    c.getAnnotations();
+    for (Field f : c.getDeclaredFields())
+      f.getAnnotations();
+    for (Method m : c.getDeclaredMethods()) {
+      m.getAnnotations();
+      m.getParameterAnnotations();
+    }
+    for (Constructor<?> k : c.getDeclaredConstructors()) {
+      k.getAnnotations();
+      k.getParameterAnnotations();
+    }
+  }
+
+  /**
+   * @effects
+   *  return the classes of <tt>model</tt> in levels, such that the domain-typed attributes of a class
+   *  only refer to classes of lower levels; classes in a dependency cycle are put in one level
+   */
+  private static List<List<Class<?>>> levels(Class<?>[] model) {
+    Set<Class<?>> classes = new LinkedHashSet<>(Arrays.asList(model));
+    Map<Class<?>, Set<Class<?>>> dependencies = new LinkedHashMap<>();
+    for (Class<?> c : classes) {
+      Set<Class<?>> deps = new LinkedHashSet<>();
+      for (Field f : c.getDeclaredFields()) {
+        DAttr attrib = f.getAnnotation(DAttr.class);
+        if (attrib != null && attrib.type() == DAttr.Type.Domain && f.getType() != c
+            && classes.contains(f.getType()))
+          deps.add(f.getType());
+      }
+      dependencies.put(c, deps);
+    }
+
+    List<List<Class<?>>> levels = new ArrayList<>();
+    Set<Class<?>> done = new LinkedHashSet<>();
+    while (done.size() < classes.size()) {
+      List<Class<?>> level = new ArrayList<>();
+      for (Class<?> c : classes) {
+        if (!done.contains(c) && done.containsAll(dependencies.get(c)))
+          level.add(c);
+      }
+
+      if (level.isEmpty()) {
+        // a cycle: the remaining classes together
+        for (Class<?> c : classes) {
+          if (!done.contains(c))
+            level.add(c);
+        }
+      }
+
+      levels.add(level);
+      done.addAll(level);
+    }
+
+    return levels;
+  }
+}
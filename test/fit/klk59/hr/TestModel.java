@@ -0,0 +1,105 @@
+package klk59.hr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+
+import domainapp.basics.core.dodm.DODMBasic;
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.core.dodm.qrm.QRM;
+import domainapp.basics.model.config.Configuration;
+import domainapp.basics.util.ApplicationToolKit;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.WriteBehindStore;
+import klk59.hr.model.reports.DepartmentDashboardReport;
+import klk59.hr.model.reports.DepartmentSummary;
+import klk59.hr.model.reports.EmployeesByNameReport;
+import klk59.hr.model.reports.MonthlyTimesheetReport;
+import klk59.hr.model.reports.TimesheetSummary;
+
+/**
+ * The HR domain model registered against an embedded Derby data source, for use by the tests and
+ * the benchmarks.
+ *
+ * <p>The data source is created in a new temporary folder the first time {@link #get()} is invoked
+ * and is shared by all the callers in the same JVM (the framework's {@link QRM} is a singleton).
+ *
+ * @author agent
+ */
+public final class TestModel {
+  /** the domain model; a class is registered after the classes that it refers to (so are its tables) */
+  public static final Class<?>[] MODEL = {
+      City.class,
+      Department.class,
+      JobQualification.class,
+      TypeOfWork.class,
+      Employee.class,
+      DailyTimeKeeping.class,
+      EmployeesByNameReport.class,
+      TimesheetSummary.class,
+      MonthlyTimesheetReport.class,
+      DepartmentSummary.class,
+      DepartmentDashboardReport.class
+  };
+
+  private static DODMBasic dodm;
+
+  private static Configuration config;
+
+  private static Path folder;
+
+  private TestModel() {
+    // no instances
+  }
+
+  /**
+   * @effects
+   *  if the model has not been registered
+   *    create an embedded Derby data source in a new temporary folder, register {@link #MODEL}
+   *    with it (creating the tables) and initialise {@link QRM}
+   *  return the DODM of the model
+   */
+  public static synchronized DODMBasic get() throws Exception {
+    if (dodm == null) {
+      folder = Files.createTempDirectory("hr-test-");
+      if (System.getProperty("derby.stream.error.file") == null)
+        System.setProperty("derby.stream.error.file", folder.resolve("derby.log").toString());
+
+      Configuration config = ApplicationToolKit.createDefaultInitApplicationConfiguration("HRTest",
+          folder.resolve("db").toString());
+      DODMBasic d = DODMBasic.getInstance(config);
+      d.addClasses(MODEL, true, true);
+      QRM.createSingleInstance(d);
+      dodm = d;
+      TestModel.config = config;
+    }
+    return dodm;
+  }
+
+  /**
+   * @effects return the DOM of {@link #get()}
+   */
+  public static DOMBasic dom() throws Exception {
+    return get().getDom();
+  }
+
+  /**
+   * @effects return a new JDBC connection to the data source of {@link #get()}, which the caller closes
+   */
+  public static Connection connect() throws Exception {
+    get();
+    return WriteBehindStore.connect(config);
+  }
+
+  /**
+   * @effects return the folder of the data source, or null if it has not been created
+   */
+  public static synchronized Path getFolder() {
+    return folder;
+  }
+}
@@ -0,0 +1,174 @@
+package klk59.hr.bench;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import domainapp.basics.model.meta.DAttr;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * JMH benchmarks of reading the serialisable attributes of a bulk of {@link Employee}s and
+ * {@link DailyTimeKeeping}s (as {@link klk59.hr.model.io.WriteBehindStore} does to insert them): through
+ * reflection, as the object manager does, and through accessors that {@link LambdaMetafactory} generates
+ * from the getters of the attributes.
+ *
+ * <p>The generated accessors are slower on JDK 17 (whose reflective field access is already compiled,
+ * while one generated class per attribute makes the per-column call site megamorphic), so the model
+ * keeps reading its attributes through reflection.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeAccessBenchmark {
+  /** the number of objects of each class */
+  private static final int OBJECTS = 1000;
+
+  private Employee[] employees;
+  private DailyTimeKeeping[] records;
+
+  private Field[] employeeFields;
+  private Field[] recordFields;
+
+  private List<Function<Object, Object>> employeeGetters;
+  private List<Function<Object, Object>> recordGetters;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    City city = new City("Hanoi");
+    Department department = new Department("Finance");
+    JobQualification position = new JobQualification("Manager");
+    TypeOfWork typeOfWork = new TypeOfWork("Normal");
+    int firstDay = WorkDates.parse("2018-01-01");
+
+    employees = new Employee[OBJECTS];
+    records = new DailyTimeKeeping[OBJECTS];
+    for (int i = 0; i < OBJECTS; i++) {
+      employees[i] = new Employee(null, "Employee " + i, "1990-01-01", "e" + i + "@example.com", "0900000000",
+          "ID" + i, "SI" + i, city, department, position);
+      records[i] = new DailyTimeKeeping(null, employees[i], typeOfWork, WorkDates.format(firstDay + i % 365), 8);
+    }
+
+    employeeFields = fields(Employee.class);
+    recordFields = fields(DailyTimeKeeping.class);
+    employeeGetters = getters(employeeFields);
+    recordGetters = getters(recordFields);
+  }
+
+  /**
+   * @effects
+   *  return the accessible fields of the serialisable, non-collection attributes of <tt>c</tt> that have
+   *  a public getter
+   */
+  private static Field[] fields(Class<?> c) {
+    List<Field> fields = new ArrayList<>();
+    for (Field f : c.getDeclaredFields()) {
+      DAttr attrib = f.getAnnotation(DAttr.class);
+      if (attrib != null && attrib.serialisable() && !attrib.type().isCollection() && getter(f) != null) {
+        f.setAccessible(true);
+        fields.add(f);
+      }
+    }
+    return fields.toArray(new Field[0]);
+  }
+
+  /**
+   * @effects return the public getter of <tt>f</tt>, or <tt>null</tt> if there is none
+   */
+  private static Method getter(Field f) {
+    String name = f.getName();
+    String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    for (String prefix : new String[] {"get", "is"}) {
+      try {
+        Method m = f.getDeclaringClass().getMethod(prefix + suffix);
+        if (m.getReturnType() != void.class)
+          return m;
+      } catch (NoSuchMethodException e) {
+        // try the next prefix
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @effects return the getters of <tt>fields</tt>, generated by {@link LambdaMetafactory}
+   */
+  @SuppressWarnings("unchecked")
+  private static List<Function<Object, Object>> getters(Field[] fields) throws Throwable {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    List<Function<Object, Object>> result = new ArrayList<>();
+    for (Field f : fields) {
+      MethodHandle getter = lookup.unreflect(getter(f));
+      result.add((Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+          MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+          getter, getter.type().wrap()).getTarget().invokeExact());
+    }
+    return result;
+  }
+
+  private static void readReflectively(Object[] objects, Field[] fields, Blackhole bh)
+      throws IllegalAccessException {
+    for (Object o : objects) {
+      for (Field f : fields)
+        bh.consume(f.get(o));
+    }
+  }
+
+  private static void readWithGetters(Object[] objects, List<Function<Object, Object>> getters, Blackhole bh) {
+    for (Object o : objects) {
+      for (Function<Object, Object> g : getters)
+        bh.consume(g.apply(o));
+    }
+  }
+
+  @Benchmark
+  public void employeesReflectively(Blackhole bh) throws IllegalAccessException {
+    readReflectively(employees, employeeFields, bh);
+  }
+
+  @Benchmark
+  public void employeesWithGeneratedGetters(Blackhole bh) {
+    readWithGetters(employees, employeeGetters, bh);
+  }
+
+  @Benchmark
+  public void dailyTimeKeepingsReflectively(Blackhole bh) throws IllegalAccessException {
+    readReflectively(records, recordFields, bh);
+  }
+
+  @Benchmark
+  public void dailyTimeKeepingsWithGeneratedGetters(Blackhole bh) {
+    readWithGetters(records, recordGetters, bh);
+  }
+}
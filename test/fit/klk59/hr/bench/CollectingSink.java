@@ -0,0 +1,57 @@
+package klk59.hr.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import domainapp.basics.exceptions.DataSourceException;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator.Sink;
+
+/**
+ * A {@link Sink} that passes the generated objects on to another sink and keeps the generated employees.
+ *
+ * @author agent
+ */
+class CollectingSink implements Sink {
+  private final Sink target;
+
+  private final List<Employee> employees = new ArrayList<>();
+
+  CollectingSink(Sink target) {
+    this.target = target;
+  }
+
+  @Override
+  public void referenceData(List<City> cities, List<Department> departments, List<JobQualification> positions,
+      List<TypeOfWork> typesOfWork) throws DataSourceException {
+    target.referenceData(cities, departments, positions, typesOfWork);
+  }
+
+  @Override
+  public void employees(List<Employee> chunk) throws DataSourceException {
+    target.employees(chunk);
+    employees.addAll(chunk);
+  }
+
+  @Override
+  public void dailyTimeKeeping(Employee e, List<DailyTimeKeeping> records) throws DataSourceException {
+    target.dailyTimeKeeping(e, records);
+  }
+
+  @Override
+  public void end() throws DataSourceException {
+    target.end();
+  }
+
+  /**
+   * @effects return the employees that have been generated
+   */
+  List<Employee> getEmployees() {
+    return employees;
+  }
+}
@@ -0,0 +1,93 @@
+package klk59.hr.bench;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * A main-driven measurement of the heap that is retained by the {@link DailyTimeKeeping} records of a year,
+ * read as from the data source (each with a new date string, as a JDBC driver returns it):
+ * <ul>
+ *  <li>with ISO dates, which the records replace by the strings that {@link WorkDates#format(int)} shares
+ *  <li>with the same dates in the day-first format <tt>dd.MM.yyyy</tt>, which the records keep as they are;
+ *    this is what every record held before the ISO dates were shared
+ * </ul>
+ *
+ * <p>The retained size is the used heap after a full collection, less that before the records were read;
+ * run it on its own JVM (e.g. <tt>mvn -P bench test-compile exec:exec
+ * -Dbench.main=klk59.hr.bench.DailyTimeKeepingHeap -Dbench.args=1000000</tt>).
+ *
+ * <pre>
+ * usage: DailyTimeKeepingHeap [records]   (default: 1000000)
+ * </pre>
+ *
+ * @author agent
+ */
+public class DailyTimeKeepingHeap {
+  private static final DateTimeFormatter DAY_FIRST = DateTimeFormatter.ofPattern("dd.MM.uuuu");
+
+  private static final int FIRST_DAY = (int) LocalDate.of(2018, 1, 1).toEpochDay();
+
+  private final Employee employee = new Employee("Nguyen Van A", "1990-01-01", "a@example.com", "0900",
+      "ID1", "SI1");
+
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  /** the id of the next record that is read */
+  private int nextId = 1;
+
+  public static void main(String[] args) {
+    int numRecords = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+    DailyTimeKeepingHeap heap = new DailyTimeKeepingHeap();
+
+    // warm up the classes that are used, so that they are not counted
+    heap.retained(1000, true);
+    heap.retained(1000, false);
+
+    long own = heap.retained(numRecords, false);
+    long shared = heap.retained(numRecords, true);
+    System.out.printf("%-28s %,14d bytes %8.1f bytes/record%n", "one date string per record", own,
+        (double) own / numRecords);
+    System.out.printf("%-28s %,14d bytes %8.1f bytes/record%n", "shared ISO date strings", shared,
+        (double) shared / numRecords);
+    System.out.printf("%-28s %13.1f %%%n", "reduction", 100.0 * (own - shared) / own);
+  }
+
+  /**
+   * @effects
+   *  read <tt>numRecords</tt> records on the days of a year, with ISO dates if <tt>iso</tt> is true or
+   *  day-first dates otherwise, and return the number of bytes of the heap that they retain
+   */
+  private long retained(int numRecords, boolean iso) {
+    long before = usedHeap();
+
+    DailyTimeKeeping[] records = new DailyTimeKeeping[numRecords];
+    for (int i = 0; i < numRecords; i++) {
+      LocalDate day = LocalDate.ofEpochDay(FIRST_DAY + i % 365);
+      String date = iso ? day.toString() : day.format(DAY_FIRST);
+      records[i] = new DailyTimeKeeping(nextId++, employee, normal, date, 8);
+    }
+
+    long after = usedHeap();
+    if (records[numRecords - 1].getWorkDay() == WorkDates.NO_DAY)
+      throw new AssertionError();
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,267 @@
+package klk59.hr.bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.model.Oid;
+import domainapp.basics.model.query.Expression.Op;
+import domainapp.basics.model.query.Query;
+import domainapp.basics.model.query.QueryToolKit;
+import klk59.hr.TestModel;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.EmployeeIdentityMap;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator;
+import klk59.hr.model.io.WriteBehindStore;
+import klk59.hr.model.payroll.PayrollEngine;
+import klk59.hr.model.payroll.Payslip;
+import klk59.hr.model.reports.EmployeesByNameReport;
+import klk59.hr.model.reports.MonthlyTimesheetReport;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * JMH benchmarks of the HR domain model against an embedded Derby data source (see {@link TestModel}):
+ * the reports, the payroll and the bulk writes.
+ *
+ * <p>The data source is filled with {@value #EMPLOYEES} synthetic employees and one month of their
+ * time-keeping records before the benchmarks run.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataSourceBenchmark {
+  private static final int EMPLOYEES = 500;
+
+  private static final String MONTH = "2018-01";
+
+  /** the number of employees of a bulk write of employees and records */
+  private static final int LOAD_EMPLOYEES = 50;
+
+  /** the number of days of records of each employee of a bulk write */
+  private static final int LOAD_DAYS = 20;
+
+  /** the names that the name report is run for: common family names, full names and no match */
+  private static final String[] NAMES = {"Nguyen", "Tran Minh", "Le", "Hoa Pham", "Ngoc", "Xyz"};
+
+  /** 
+   * names with LIKE wildcards, which the name report always looks up with its query on the data source 
+   * (not in the {@link klk59.hr.model.EmployeeNameIndex} or in its previous matches)
+   */
+  private static final String[] PATTERNS = {"Ngu_en", "Tr%Minh", "L_", "%Pham", "Ng%c", "X_z"};
+
+  private DOMBasic dom;
+
+  /** the connection through which the bulk writes insert in batches */
+  private Connection conn;
+
+  private List<Employee> employees;
+
+  private int fromDay, toDay;
+
+  private int nextName;
+
+  private int nextPattern;
+
+  private EmployeesByNameReport nameReport;
+
+  private EmployeesByNameReport patternReport;
+
+  /** the type of work of the records of the bulk writes */
+  private TypeOfWork loadTypeOfWork;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dom = TestModel.dom();
+    conn = TestModel.connect();
+
+    CollectingSink sink = new CollectingSink(SyntheticDataGenerator.toDataSource(dom, conn));
+    new SyntheticDataGenerator(2018).setNumEmployees(EMPLOYEES).setPeriod(MONTH + "-01", 31).generate(sink);
+    employees = sink.getEmployees();
+
+    fromDay = WorkDates.parse(MONTH + "-01");
+    toDay = WorkDates.parse(MONTH + "-31");
+    nameReport = new EmployeesByNameReport(NAMES[0]);
+    patternReport = new EmployeesByNameReport(PATTERNS[0]);
+    loadTypeOfWork = new TypeOfWork("load");
+    dom.addObject(loadTypeOfWork);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    conn.close();
+  }
+
+  private String nextName() {
+    String name = NAMES[nextName];
+    nextName = (nextName + 1) % NAMES.length;
+    return name;
+  }
+
+  private String nextPattern() {
+    String pattern = PATTERNS[nextPattern];
+    nextPattern = (nextPattern + 1) % PATTERNS.length;
+    return pattern;
+  }
+
+  /** create a name report, which runs its query */
+  @Benchmark
+  public int employeesByName() throws DataSourceException {
+    return new EmployeesByNameReport(nextName()).getNumEmployees();
+  }
+
+  /** change the name of one report, which re-runs its query */
+  @Benchmark
+  public int employeesByNameRerun() throws DataSourceException {
+    nameReport.setName(nextName());
+    return nameReport.getNumEmployees();
+  }
+
+  /** change the name of one report to a pattern, which re-binds and re-runs its prepared query */
+  @Benchmark
+  public int nameQueryReused() throws DataSourceException {
+    patternReport.setName(nextPattern());
+    return patternReport.getNumEmployees();
+  }
+
+  /**
+   * the baseline of {@link #nameQueryReused()}: the report's query as it was before it was prepared once,
+   * created for each name with QueryToolKit
+   */
+  @Benchmark
+  public int nameQueryPreparedPerCall() throws DataSourceException {
+    Query<?> q = QueryToolKit.createSearchQuery(dom.getDsm(), Employee.class,
+        new String[] {Employee.A_name},
+        new Op[] {Op.MATCH},
+        new Object[] {"%" + nextPattern() + "%"});
+    Map<Oid, Employee> result = dom.retrieveObjects(Employee.class, q);
+    return (result != null) ? EmployeeIdentityMap.getInstance().canonical(result.values()).size() : 0;
+  }
+
+  @Benchmark
+  public int monthlyReportInMemory() throws DataSourceException {
+    return new MonthlyTimesheetReport(MONTH, null, MonthlyTimesheetReport.Aggregation.IN_MEMORY).getTotalHours();
+  }
+
+  @Benchmark
+  public int monthlyReportInDataSource() throws DataSourceException {
+    return new MonthlyTimesheetReport(MONTH, null, MonthlyTimesheetReport.Aggregation.DATA_SOURCE).getTotalHours();
+  }
+
+  @Benchmark
+  public List<Payslip> payroll() {
+    return new PayrollEngine().run(employees, fromDay, toDay);
+  }
+
+  /** insert 1000 new objects through a {@link WriteBehindStore} and commit them */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public long writeBehind() throws DataSourceException {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT);
+    store.setBatchConnection(conn);
+    try {
+      for (int i = 0; i < 1000; i++)
+        store.create(new TypeOfWork("type " + i));
+      store.commit();
+    } finally {
+      store.close();
+    }
+    return store.getWritten();
+  }
+
+  /** the baseline of {@link #writeBehind()}: add 1000 new objects with the object manager, one at a time */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public int addObject() throws DataSourceException {
+    for (int i = 0; i < 1000; i++)
+      dom.addObject(new TypeOfWork("type " + i));
+    return 1000;
+  }
+
+  /**
+   * insert {@value #LOAD_EMPLOYEES} new employees and {@value #LOAD_DAYS} time-keeping records of each through
+   * a {@link WriteBehindStore} and commit them
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public long writeBehindEmployeesAndRecords() throws DataSourceException {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT);
+    store.setBatchConnection(conn);
+    try {
+      for (int i = 0; i < LOAD_EMPLOYEES; i++) {
+        Employee e = loadEmployee(i);
+        store.create(e);
+        for (int d = 0; d < LOAD_DAYS; d++)
+          store.create(new DailyTimeKeeping(e, loadTypeOfWork, WorkDates.format(fromDay + d), 8));
+      }
+      store.commit();
+    } finally {
+      store.close();
+    }
+    return store.getWritten();
+  }
+
+  /** the baseline of {@link #writeBehindEmployeesAndRecords()}: the same objects added one at a time */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 5)
+  public int addObjectEmployeesAndRecords() throws DataSourceException {
+    for (int i = 0; i < LOAD_EMPLOYEES; i++) {
+      Employee e = loadEmployee(i);
+      dom.addObject(e);
+      for (int d = 0; d < LOAD_DAYS; d++)
+        dom.addObject(new DailyTimeKeeping(e, loadTypeOfWork, WorkDates.format(fromDay + d), 8));
+    }
+    return LOAD_EMPLOYEES * (LOAD_DAYS + 1);
+  }
+
+  private Employee loadEmployee(int i) {
+    return new Employee("Load Employee " + i, "1990-01-01", "load" + i + "@example.com", "0900", "ID" + i,
+        "SI" + i);
+  }
+
+  /** add 100 synthetic employees and one month of their records to the data source */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 3)
+  public void syntheticMonthToDataSource() throws DataSourceException {
+    new SyntheticDataGenerator(System.nanoTime()).setNumEmployees(100).setPeriod(MONTH + "-01", 31)
+        .generate(SyntheticDataGenerator.toDataSource(dom, conn));
+  }
+}
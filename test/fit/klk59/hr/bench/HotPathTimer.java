@@ -0,0 +1,134 @@
+package klk59.hr.bench;
+
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import klk59.hr.TestModel;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator;
+import klk59.hr.model.payroll.PayrollEngine;
+import klk59.hr.model.reports.EmployeesByNameReport;
+import klk59.hr.model.reports.MonthlyTimesheetReport;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * A quick, main-driven timing of the hot paths of the HR domain model, for use where JMH is not wanted
+ * (e.g. <tt>mvn -P bench test-compile exec:exec -Dbench.main=klk59.hr.bench.HotPathTimer</tt>,
+ * or from an IDE). Each path is run a number of times to warm up and then timed; the average time per run
+ * is printed.
+ *
+ * <p>The numbers are indicative only: use the JMH suite ({@link ModelBenchmark}, {@link DataSourceBenchmark})
+ * to compare changes.
+ *
+ * <pre>
+ * usage: HotPathTimer [employees]   (default: 1000)
+ * </pre>
+ *
+ * @author agent
+ */
+public class HotPathTimer {
+  /** a timed operation */
+  private static interface Path {
+    Object run() throws Exception;
+  }
+
+  private final Map<String, Double> results = new LinkedHashMap<>();
+
+  /** keeps the results of the runs alive */
+  private int blackhole;
+
+  public static void main(String[] args) throws Exception {
+    int numEmployees = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    new HotPathTimer().run(numEmployees);
+  }
+
+  private void run(int numEmployees) throws Exception {
+    // in memory
+    City city = new City("Hanoi");
+    Department department = new Department("Finance");
+    JobQualification position = new JobQualification("Manager");
+    TypeOfWork type = new TypeOfWork("normal");
+    Employee[] employees = new Employee[numEmployees];
+    for (int i = 0; i < numEmployees; i++) {
+      employees[i] = new Employee("Employee " + i, "1990-01-01", "e" + i + "@example.com", "0900000000",
+          "ID" + i, "SI" + i, city, department, position);
+      department.addNewEmployee(employees[i]);
+    }
+    Employee worker = employees[0];
+    int firstDay = WorkDates.parse("2018-01-01");
+    for (int d = 0; d < 365; d++)
+      worker.addNewDailyTimeKeeping(new DailyTimeKeeping(null, worker, type, WorkDates.format(firstDay + d), 8));
+
+    int[] next = {0};
+    time("IDAllocator.nextID", 1_000_000, () -> IDAllocator.nextID(HotPathTimer.class));
+    time("new Employee", 100_000, () -> new Employee("Nguyen Van A", "1990-01-01", "a@example.com",
+        "0900000000", "ID", "SI", city, department, position));
+    time("new DailyTimeKeeping", 100_000, () -> new DailyTimeKeeping(null, worker, type, "2018-03-01", 8));
+    time("Department remove+addNewEmployee", 100_000, () -> {
+      Employee e = employees[next[0]++ % numEmployees];
+      department.removeEmployee(e);
+      return department.addNewEmployee(e);
+    });
+    time("JobQualification.updateSalaryBasic", 1_000_000, () -> {
+      position.updateSalaryBasic();
+      return position.getSalaryBasic();
+    });
+    time("TimeKeepingLog.getHoursOfWork (31 days)", 100_000,
+        () -> worker.getTimeKeepingLog().getHoursOfWork(firstDay + 31, firstDay + 61));
+    time("SyntheticDataGenerator (month, in memory)", 5, () -> {
+      new SyntheticDataGenerator(42).setNumEmployees(numEmployees).setPeriod("2018-01-01", 31)
+          .generate(SyntheticDataGenerator.toModel());
+      return null;
+    });
+
+    // against the data source
+    DOMBasic dom = TestModel.dom();
+    CollectingSink sink;
+    long start = System.nanoTime();
+    try (Connection conn = TestModel.connect()) {
+      sink = new CollectingSink(SyntheticDataGenerator.toDataSource(dom, conn));
+      new SyntheticDataGenerator(2018).setNumEmployees(numEmployees / 2).setPeriod("2018-01-01", 31)
+          .generate(sink);
+    }
+    results.put("SyntheticDataGenerator (month, to data source)", (System.nanoTime() - start) / 1e6);
+    List<Employee> stored = sink.getEmployees();
+
+    String[] names = {"Nguyen", "Tran Minh", "Le", "Xyz"};
+    time("EmployeesByNameReport", 200, () -> new EmployeesByNameReport(names[next[0]++ % names.length]));
+    time("MonthlyTimesheetReport", 20, () -> new MonthlyTimesheetReport("2018-01"));
+    int from = WorkDates.parse("2018-01-01"), to = WorkDates.parse("2018-01-31");
+    time("PayrollEngine.run (month)", 20, () -> new PayrollEngine().run(stored, from, to));
+
+    for (Map.Entry<String, Double> r : results.entrySet())
+      System.out.printf("%-50s %12.4f ms%n", r.getKey(), r.getValue());
+    System.out.println("(" + blackhole + ")");
+  }
+
+  /**
+   * @effects
+   *  run <tt>path</tt> <tt>runs</tt> times to warm up, then <tt>runs</tt> times more and record the
+   *  average time per run under <tt>label</tt>
+   */
+  private void time(String label, int runs, Path path) throws Exception {
+    for (int i = 0; i < runs; i++)
+      consume(path.run());
+
+    long start = System.nanoTime();
+    for (int i = 0; i < runs; i++)
+      consume(path.run());
+    results.put(label, (System.nanoTime() - start) / 1e6 / runs);
+  }
+
+  private void consume(Object o) {
+    blackhole += System.identityHashCode(o) & 1;
+  }
+}
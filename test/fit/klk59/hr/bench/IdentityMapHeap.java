@@ -0,0 +1,144 @@
+package klk59.hr.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.EmployeeIdentityMap;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator;
+
+/**
+ * A main-driven measurement of the heap that is retained by the employees that the object manager loads
+ * from the data source, with and without the entries of {@link EmployeeIdentityMap}.
+ *
+ * <p>The employees are written to the data source of {@link TestModel} (by {@link SyntheticDataGenerator})
+ * and unloaded. They are then loaded with <tt>retrieveObjects</tt>, and again through the links of every
+ * {@link Department}, {@link City} and {@link JobQualification} (with <tt>retrieveAssociatedObjects</tt>),
+ * as the object manager loads them. The measurement counts the employees of the links that are not the
+ * object in the pool (the copies that the identity map would fold), and the used heap after a full
+ * collection, less that before the load: with the entries of the map, and after they are removed.
+ *
+ * <p>Run it on its own JVM (e.g. <tt>mvn -P bench test-compile exec:exec
+ * -Dbench.main=klk59.hr.bench.IdentityMapHeap -Dbench.args=20000</tt>).
+ *
+ * <pre>
+ * usage: IdentityMapHeap [employees]   (default: 20000)
+ * </pre>
+ *
+ * @author agent
+ */
+public class IdentityMapHeap {
+  /** the classes that are unloaded before the measurement, the linked classes last */
+  private static final Class<?>[] UNLOADED = {
+      DailyTimeKeeping.class, Employee.class, Department.class, City.class, JobQualification.class, TypeOfWork.class
+  };
+
+  private final DOMBasic dom;
+
+  private final EmployeeIdentityMap identities = EmployeeIdentityMap.getInstance();
+
+  private IdentityMapHeap(DOMBasic dom) {
+    this.dom = dom;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int numEmployees = (args.length > 0) ? Integer.parseInt(args[0]) : 20_000;
+    DOMBasic dom = TestModel.dom();
+    EmployeeIdentityMap.getInstance().listenTo(dom);
+
+    // 2018-01-07 is a Sunday: the employees have no records
+    new SyntheticDataGenerator(42).setNumEmployees(numEmployees).setNumDepartments(100).setNumCities(50)
+        .setPeriod("2018-01-07", 1).generate(SyntheticDataGenerator.toDataSource(dom));
+
+    IdentityMapHeap heap = new IdentityMapHeap(dom);
+    heap.unload();
+    heap.measure(numEmployees);
+    System.exit(0);
+  }
+
+  private void measure(int numEmployees) throws Exception {
+    long before = usedHeap();
+
+    Map<Oid, City> cities = dom.retrieveObjects(City.class);
+    Map<Oid, Department> departments = dom.retrieveObjects(Department.class);
+    Map<Oid, JobQualification> positions = dom.retrieveObjects(JobQualification.class);
+    Map<Oid, Employee> employees = dom.retrieveObjects(Employee.class);
+
+    Set<Employee> pooled = Collections.newSetFromMap(new IdentityHashMap<>());
+    pooled.addAll(employees.values());
+
+    // the employees as they are loaded through the links
+    List<Employee> linked = new ArrayList<>();
+    for (Department d : departments.values())
+      addAll(linked, dom.retrieveAssociatedObjects(d, Department.class, Employee.class, "department-has-employee"));
+    for (City c : cities.values())
+      addAll(linked, dom.retrieveAssociatedObjects(c, City.class, Employee.class, "employee-has-city"));
+    for (JobQualification p : positions.values())
+      addAll(linked, dom.retrieveAssociatedObjects(p, JobQualification.class, Employee.class, "employee-has-position"));
+
+    int copies = 0;
+    for (Employee e : linked) {
+      if (!pooled.contains(e))
+        copies++;
+    }
+
+    pooled = null;
+    long withMap = usedHeap() - before;
+    int entries = identities.size();
+
+    for (Employee e : employees.values())
+      identities.remove(e);
+    long withoutMap = usedHeap() - before;
+
+    System.out.printf("%-32s %,14d%n", "employees loaded", employees.size());
+    System.out.printf("%-32s %,14d%n", "employees loaded through links", linked.size());
+    System.out.printf("%-32s %,14d%n", "copies of pooled employees", copies);
+    System.out.printf("%-32s %,14d%n", "identity map entries", entries);
+    System.out.printf("%-32s %,14d bytes%n", "retained with identity map", withMap);
+    System.out.printf("%-32s %,14d bytes%n", "retained without identity map", withoutMap);
+    System.out.printf("%-32s %14.1f bytes/employee%n", "cost of identity map",
+        (double) (withMap - withoutMap) / numEmployees);
+
+    // keep the loaded objects reachable until they are measured
+    if (cities.size() + departments.size() + positions.size() + linked.size() < 0)
+      throw new AssertionError();
+  }
+
+  private static void addAll(List<Employee> linked, Map<Oid, Employee> loaded) {
+    if (loaded != null)
+      linked.addAll(loaded.values());
+  }
+
+  /**
+   * @effects remove the objects of {@link #UNLOADED} from the object pool
+   */
+  private void unload() throws Exception {
+    for (Class<?> c : UNLOADED)
+      dom.unloadObjects(c);
+  }
+
+  private static long usedHeap() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,184 @@
+package klk59.hr.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domainapp.basics.exceptions.DataSourceException;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.IDAllocator;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * JMH benchmarks of the in-memory hot paths of the HR domain model: object construction, id
+ * allocation, the link adders and removers of the associations, the derived salary and the
+ * time-keeping log of an employee.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+  /** the number of employees that are linked to the reference objects */
+  private static final int EMPLOYEES = 1000;
+
+  /** the number of days of time-keeping records of {@link #worker} */
+  private static final int DAYS = 365;
+
+  private City city;
+  private Department department;
+  private JobQualification position;
+  private TypeOfWork typeOfWork;
+
+  private Employee[] employees;
+  private int next;
+
+  /** an employee with {@link #DAYS} days of records */
+  private Employee worker;
+  private int firstDay;
+  private DailyTimeKeeping record;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    city = new City("Hanoi");
+    department = new Department("Finance");
+    position = new JobQualification("Manager");
+    typeOfWork = new TypeOfWork("Normal");
+
+    employees = new Employee[EMPLOYEES];
+    for (int i = 0; i < EMPLOYEES; i++) {
+      Employee e = employee(i);
+      employees[i] = e;
+      city.addNewEmployee(e);
+      department.addNewEmployee(e);
+      position.addNewEmployee(e);
+    }
+
+    worker = employee(EMPLOYEES);
+    firstDay = WorkDates.parse("2018-01-01");
+    for (int d = 0; d < DAYS; d++)
+      worker.addNewDailyTimeKeeping(
+          new DailyTimeKeeping(null, worker, typeOfWork, WorkDates.format(firstDay + d), 8));
+    record = worker.getDailyTimeKeeping().get(DAYS / 2);
+  }
+
+  private Employee employee(int i) {
+    return new Employee("Employee " + i, "1990-01-01", "e" + i + "@example.com", "0900000000",
+        "ID" + i, "SI" + i, city, department, position);
+  }
+
+  private Employee nextEmployee() {
+    Employee e = employees[next];
+    next = (next + 1) % EMPLOYEES;
+    return e;
+  }
+
+  @Benchmark
+  public int nextID() {
+    return IDAllocator.nextID(ModelBenchmark.class);
+  }
+
+  @Benchmark
+  public Employee newEmployee() {
+    return new Employee("Nguyen Van A", "1990-01-01", "a@example.com", "0900000000", "ID", "SI",
+        city, department, position);
+  }
+
+  @Benchmark
+  public DailyTimeKeeping newDailyTimeKeeping() {
+    return new DailyTimeKeeping(null, worker, typeOfWork, "2018-03-01", 8);
+  }
+
+  @Benchmark
+  public City newCity() {
+    return new City("Da Nang");
+  }
+
+  /** remove a linked employee from, and add it back to, a department of {@value #EMPLOYEES} employees */
+  @Benchmark
+  public boolean departmentLink() {
+    Employee e = nextEmployee();
+    department.removeEmployee(e);
+    return department.addNewEmployee(e);
+  }
+
+  @Benchmark
+  public boolean cityLink() {
+    Employee e = nextEmployee();
+    city.removeEmployee(e);
+    return city.addNewEmployee(e);
+  }
+
+  @Benchmark
+  public boolean jobQualificationLink() {
+    Employee e = nextEmployee();
+    position.removeEmployee(e);
+    return position.addNewEmployee(e);
+  }
+
+  /** remove a record from, and add it back to, an employee with {@value #DAYS} days of records */
+  @Benchmark
+  public boolean employeeLink() {
+    worker.removeDailyTimeKeeping(record);
+    return worker.addNewDailyTimeKeeping(record);
+  }
+
+  @Benchmark
+  public int updateSalaryBasic() {
+    position.updateSalaryBasic();
+    return position.getSalaryBasic();
+  }
+
+  @Benchmark
+  public int workDay() {
+    return record.getWorkDay();
+  }
+
+  @Benchmark
+  public String dateOfWork() {
+    return record.getDateOfWork();
+  }
+
+  /** the hours of work of a 31-day range of {@link #worker} */
+  @Benchmark
+  public int hoursOfMonth() {
+    return worker.getTimeKeepingLog().getHoursOfWork(firstDay + 31, firstDay + 61);
+  }
+
+  /** the records of {@link #worker} on one day */
+  @Benchmark
+  public int recordsOfDay() {
+    return worker.getTimeKeepingLog().getDay(firstDay + 100).size();
+  }
+
+  /** generate the employees and records of one synthetic month in memory */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 3)
+  @Measurement(iterations = 5)
+  public void syntheticMonth() throws DataSourceException {
+    new SyntheticDataGenerator(42).setNumEmployees(2000).setPeriod("2018-01-01", 31)
+        .generate(SyntheticDataGenerator.toModel());
+  }
+}
@@ -0,0 +1,111 @@
+package klk59.hr.bench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.payroll.PayrollEngine;
+import klk59.hr.model.payroll.Payslip;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * JMH benchmarks of a {@link PayrollEngine} run over a month of in-memory employees, in a pool of
+ * {@link #threads} threads.
+ *
+ * <p>A run reads the basic salaries and the records of the period on the calling thread and splits only
+ * the sums over them; {@link #readInputs()} does the same reads on their own, so that
+ * <tt>run - readInputs</tt> is the part of a run that the pool can share.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayrollBenchmark {
+  private static final int EMPLOYEES = 10_000;
+
+  /** the number of working days of each employee in the month */
+  private static final int DAYS = 22;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  private ForkJoinPool pool;
+  private PayrollEngine engine;
+
+  private List<Employee> employees;
+  private int fromDay, toDay;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    JobQualification position = new JobQualification("SE1");
+    TypeOfWork normal = new TypeOfWork("normal");
+    TypeOfWork overtime = new TypeOfWork("overtime");
+    fromDay = WorkDates.parse("2018-01-01");
+    toDay = WorkDates.parse("2018-01-31");
+
+    employees = new ArrayList<>(EMPLOYEES);
+    for (int i = 0; i < EMPLOYEES; i++) {
+      Employee e = new Employee("Employee " + i, "1990-01-01", "e" + i + "@example.com", "0900", "ID" + i,
+          "SI" + i, null, null, position);
+      for (int d = 0; d < DAYS; d++) {
+        String date = WorkDates.format(fromDay + d);
+        e.addNewDailyTimeKeeping(new DailyTimeKeeping(null, e, normal, date, 8));
+        if (d % 5 == 0)
+          e.addNewDailyTimeKeeping(new DailyTimeKeeping(null, e, overtime, date, 2));
+      }
+      employees.add(e);
+    }
+
+    pool = new ForkJoinPool(threads);
+    engine = new PayrollEngine(pool);
+    engine.setRateMultiplier("overtime", 1.5);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  /** a payroll run of {@value #EMPLOYEES} employees */
+  @Benchmark
+  public List<Payslip> run() {
+    return engine.run(employees, fromDay, toDay);
+  }
+
+  /** the reads of the model that a run does on the calling thread, on their own */
+  @Benchmark
+  public int readInputs() {
+    int n = 0;
+    for (Employee e : employees) {
+      JobQualification position = e.getPosition();
+      n += (position != null) ? position.getSalaryBasic() & 1 : 0;
+      Collection<DailyTimeKeeping> days = e.getTimeKeepingLog().getDays(fromDay, toDay);
+      n += days.toArray(new DailyTimeKeeping[days.size()]).length;
+    }
+    return n;
+  }
+}
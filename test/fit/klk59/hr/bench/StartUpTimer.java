@@ -0,0 +1,52 @@
+package klk59.hr.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import domainapp.basics.core.dodm.DODMBasic;
+import domainapp.basics.model.config.Configuration;
+import domainapp.basics.util.ApplicationToolKit;
+import klk59.hr.TestModel;
+import klk59.hr.software.ModelStartUp;
+
+/**
+ * A main-driven timing of the start-up of the domain model ({@link TestModel#MODEL}) against a new
+ * embedded Derby data source: the classes are registered by the framework on their own
+ * (<tt>sequential</tt>), or by {@link ModelStartUp#start(DODMBasic)} (<tt>parallel</tt>), which first
+ * prepares them in parallel.
+ *
+ * <p>A start-up is timed once per JVM, since most of its cost is the loading of the classes; run each mode
+ * on its own JVM a number of times (e.g. <tt>mvn -P bench test-compile exec:exec
+ * -Dbench.main=klk59.hr.bench.StartUpTimer -Dbench.args=parallel</tt>) and compare the medians.
+ *
+ * <pre>
+ * usage: StartUpTimer [sequential|parallel]   (default: parallel)
+ * </pre>
+ *
+ * @author agent
+ */
+public class StartUpTimer {
+  public static void main(String[] args) throws Exception {
+    boolean parallel = !(args.length > 0 && "sequential".equals(args[0]));
+
+    Path folder = Files.createTempDirectory("hr-startup-");
+    System.setProperty("derby.stream.error.file", folder.resolve("derby.log").toString());
+    Configuration config = ApplicationToolKit.createDefaultInitApplicationConfiguration("HRStartUp",
+        folder.resolve("db").toString());
+
+    long start = System.nanoTime();
+    DODMBasic dodm = DODMBasic.getInstance(config);
+    ModelStartUp startUp = null;
+    if (parallel) {
+      startUp = new ModelStartUp(TestModel.MODEL);
+      startUp.start(dodm);
+    } else {
+      dodm.addClasses(TestModel.MODEL, true, false);
+    }
+    long millis = (System.nanoTime() - start) / 1000000;
+
+    System.out.printf("%-12s %,8d ms  %s%n", parallel ? "parallel" : "sequential", millis,
+        (startUp != null) ? startUp.getTimings() : "");
+    System.exit(0);
+  }
+}
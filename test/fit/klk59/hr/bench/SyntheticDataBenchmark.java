@@ -0,0 +1,80 @@
+package klk59.hr.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import domainapp.basics.exceptions.DataSourceException;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator;
+import klk59.hr.model.io.SyntheticDataGenerator.Sink;
+
+/**
+ * JMH benchmarks of the generation of a synthetic month of {@link #employees} employees (about 22 records
+ * each) in memory: into {@link SyntheticDataGenerator#toModel()}, which links the objects, and into a sink
+ * that drops them, which is the cost of the generator alone.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SyntheticDataBenchmark {
+  @Param({"10000", "100000"})
+  public int employees;
+
+  private SyntheticDataGenerator generator() {
+    return new SyntheticDataGenerator(42).setNumEmployees(employees).setNumDepartments(100).setNumCities(50)
+        .setPeriod("2018-01-01", 31);
+  }
+
+  @Benchmark
+  public void toModel() throws DataSourceException {
+    generator().generate(SyntheticDataGenerator.toModel());
+  }
+
+  @Benchmark
+  public void toNothing(Blackhole bh) throws DataSourceException {
+    generator().generate(new Sink() {
+      @Override
+      public void referenceData(List<City> cities, List<Department> departments, List<JobQualification> positions,
+          List<TypeOfWork> typesOfWork) {
+        bh.consume(cities);
+      }
+
+      @Override
+      public void employees(List<Employee> employees) {
+        bh.consume(employees);
+      }
+
+      @Override
+      public void dailyTimeKeeping(Employee e, List<DailyTimeKeeping> records) {
+        bh.consume(records);
+      }
+
+      @Override
+      public void end() {
+        // nothing is stored
+      }
+    });
+  }
+}
@@ -0,0 +1,116 @@
+package klk59.hr.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import klk59.hr.TestModel;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.TimeSheetArchive;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * A main-driven measurement of the heap that is retained by the {@link DailyTimeKeeping} records of a year,
+ * which are in the object pool of {@link TestModel} and in the time-keeping logs of their employees:
+ * <ul>
+ *  <li>live, before they are archived
+ *  <li>after {@link TimeSheetArchive#archive(java.util.Collection, String)}, which leaves them in the pool
+ *  <li>after {@link TimeSheetArchive#archive(DOMBasic, java.util.Collection, String)}, which removes them
+ * </ul>
+ * The records are added to the pool only (they are not written to the data source). The archive's columns
+ * are off-heap and not counted.
+ *
+ * <p>The retained size is the used heap after a full collection, less that before the records were created;
+ * run it on its own JVM (e.g. <tt>mvn -P bench test-compile exec:exec
+ * -Dbench.main=klk59.hr.bench.TimeSheetArchiveHeap -Dbench.args=1000000</tt>).
+ *
+ * <pre>
+ * usage: TimeSheetArchiveHeap [records]   (default: 1000000)
+ * </pre>
+ *
+ * @author agent
+ */
+public class TimeSheetArchiveHeap {
+  private static final int NUM_EMPLOYEES = 1000;
+
+  private static final int FIRST_DAY = WorkDates.parse("2018-01-01");
+
+  private static final String CUTOFF = "2019-01-01";
+
+  private final DOMBasic dom;
+
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  private TimeSheetArchiveHeap(DOMBasic dom) {
+    this.dom = dom;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int numRecords = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+    TimeSheetArchiveHeap heap = new TimeSheetArchiveHeap(TestModel.dom());
+
+    // warm up the classes that are used, so that they are not counted
+    heap.retained(10_000, null);
+    heap.retained(10_000, Boolean.TRUE);
+
+    long live = heap.retained(numRecords, null);
+    long pooled = heap.retained(numRecords, Boolean.FALSE);
+    long unpooled = heap.retained(numRecords, Boolean.TRUE);
+    System.out.printf("%-32s %,14d bytes%n", "live records", live);
+    System.out.printf("%-32s %,14d bytes%n", "archived, left in the pool", pooled);
+    System.out.printf("%-32s %,14d bytes%n", "archived, removed from the pool", unpooled);
+    System.out.printf("%-32s %13.1f %%%n", "reduction (removed vs left)", 100.0 * (pooled - unpooled) / pooled);
+  }
+
+  /**
+   * @effects
+   *  create <tt>numRecords</tt> records of {@link #NUM_EMPLOYEES} employees on the days of a year, add them to
+   *  the pool and, unless <tt>removeFromPool = null</tt>, archive them (removing them from the pool if
+   *  <tt>removeFromPool</tt> is true); return the number of bytes of the heap that are retained
+   */
+  private long retained(int numRecords, Boolean removeFromPool) throws Exception {
+    long before = usedHeap();
+
+    List<Employee> employees = new ArrayList<>(NUM_EMPLOYEES);
+    for (int i = 0; i < NUM_EMPLOYEES; i++)
+      employees.add(new Employee("Employee " + i, "1990-01-01", "e" + i + "@example.com", "0900", "ID" + i,
+          "SI" + i));
+
+    for (int i = 0; i < numRecords; i++) {
+      Employee e = employees.get(i % NUM_EMPLOYEES);
+      String date = WorkDates.format(FIRST_DAY + (i / NUM_EMPLOYEES) % 365);
+      DailyTimeKeeping d = new DailyTimeKeeping(e, normal, date, 8);
+      e.addNewDailyTimeKeeping(d);
+      dom.addObject(d, false);
+    }
+
+    TimeSheetArchive archive = null;
+    if (removeFromPool == Boolean.TRUE)
+      archive = TimeSheetArchive.archive(dom, employees, CUTOFF);
+    else if (removeFromPool == Boolean.FALSE)
+      archive = TimeSheetArchive.archive(employees, CUTOFF);
+
+    long after = usedHeap();
+    if (archive != null && archive.size() != numRecords)
+      throw new AssertionError();
+
+    dom.unloadObjects(DailyTimeKeeping.class);
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
@@ -0,0 +1,90 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * Tests of the work dates and hours of {@link DailyTimeKeeping} and of how the
+ * {@link TimeKeepingLog} of an employee files them.
+ *
+ * @author agent
+ */
+public class DailyTimeKeepingTest {
+  private final Employee employee = new Employee("Tran Thi B", "1991-02-03", "b@example.com", "0911",
+      "ID2", "SI2");
+
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  @Test
+  public void recordsFromTheDataSourceKeepTheirDates() {
+    DailyTimeKeeping d = new DailyTimeKeeping(1_000_001, employee, normal, "12.03.2018", 8);
+    assertEquals("12.03.2018", d.getDateOfWork());
+    assertEquals(WorkDates.parse("2018-03-12"), d.getWorkDay());
+
+    DailyTimeKeeping undated = new DailyTimeKeeping(1_000_002, employee, normal, "n/a", 4);
+    assertEquals("n/a", undated.getDateOfWork());
+    assertEquals(WorkDates.NO_DAY, undated.getWorkDay());
+  }
+
+  @Test
+  public void recordsOfADayShareTheirIsoDate() {
+    DailyTimeKeeping read = new DailyTimeKeeping(1_000_006, employee, normal, new String("2018-03-12"), 8);
+    DailyTimeKeeping created = new DailyTimeKeeping(employee, normal, "12/3/2018", 4);
+    assertSame(WorkDates.format(WorkDates.parse("2018-03-12")), read.getDateOfWork());
+    assertSame(read.getDateOfWork(), created.getDateOfWork());
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void newRecordsNeedValidDates() {
+    new DailyTimeKeeping(employee, normal, "n/a", 8);
+  }
+
+  @Test
+  public void newRecordsAreStoredWithIsoDates() {
+    DailyTimeKeeping d = new DailyTimeKeeping(employee, normal, "12/3/2018", 8);
+    assertEquals("2018-03-12", d.getDateOfWork());
+
+    d.setDateOfWork("13-3-2018");
+    assertEquals("2018-03-13", d.getDateOfWork());
+  }
+
+  @Test
+  public void recordsFromTheDataSourceKeepTheirHours() {
+    DailyTimeKeeping d = new DailyTimeKeeping(1_000_003, employee, normal, "2018-03-12", 30);
+    assertEquals(30, d.getHourOfWork());
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void newRecordsNeedValidHours() {
+    new DailyTimeKeeping(employee, normal, "2018-03-12", DailyTimeKeeping.MAX_HOUR_OF_WORK + 1);
+  }
+
+  @Test
+  public void undatedRecordsAreCountedButNotInAnyRange() {
+    DailyTimeKeeping dated = new DailyTimeKeeping(1_000_003, employee, normal, "2018-03-12", 8);
+    DailyTimeKeeping undated = new DailyTimeKeeping(1_000_004, employee, normal, "n/a", 4);
+    employee.addDailyTimeKeeping(Arrays.asList(dated, undated));
+
+    TimeKeepingLog log = employee.getTimeKeepingLog();
+    assertEquals(2, log.size());
+    assertEquals(12, employee.getTotalHoursOfWork());
+    assertEquals(WorkDates.parse("2018-03-12"), (int) log.getFirstDay());
+    assertEquals(WorkDates.parse("2018-03-12"), (int) log.getLastDay());
+    assertEquals(8, log.getHoursOfWork(WorkDates.parse("2018-01-01"), WorkDates.parse("2018-12-31")));
+  }
+
+  @Test
+  public void logWithOnlyUndatedRecordsHasNoDays() {
+    employee.addDailyTimeKeeping(new DailyTimeKeeping(1_000_005, employee, normal, "?", 4));
+    assertNull(employee.getTimeKeepingLog().getFirstDay());
+    assertNull(employee.getTimeKeepingLog().getLastDay());
+  }
+}
@@ -0,0 +1,100 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests of how the hours of work of the employees are counted by their {@link Department}.
+ *
+ * @author agent
+ */
+public class DepartmentHoursTest {
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  private Employee employeeWith(int hours) {
+    Employee e = new Employee("Tran Van D", "1990-02-03", "d@example.com", "0933", "ID4", "SI4");
+    e.addNewDailyTimeKeeping(new DailyTimeKeeping(e, normal, "2018-01-15", hours));
+    return e;
+  }
+
+  @Test
+  public void hoursFollowTheLinksOfTheDepartment() {
+    Department sales = new Department("Sales");
+    Department support = new Department("Support");
+    Employee e = employeeWith(8);
+
+    e.setDepartment(sales);
+    sales.addNewEmployee(e);
+    assertEquals(8, sales.getTotalHoursOfWork());
+
+    e.addNewDailyTimeKeeping(new DailyTimeKeeping(e, normal, "2018-01-16", 4));
+    assertEquals(12, sales.getTotalHoursOfWork());
+
+    sales.removeEmployee(e);
+    e.setDepartment(support);
+    support.addEmployee(e);
+    assertEquals(0, sales.getTotalHoursOfWork());
+    assertEquals(12, support.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void hoursOfUnlinkedEmployeesAreNotCounted() {
+    Department sales = new Department("Sales");
+    Employee e = employeeWith(8);
+
+    // the department is set by the constructor, as when e is read, but the link has not been added (yet)
+    Employee copy = new Employee(e.getId(), e.getName(), e.getDob(), e.getEmail(), e.getPhonenumber(),
+        e.getIdentification(), e.getSocialInsuranceNo(), null, sales, null);
+    copy.addNewDailyTimeKeeping(new DailyTimeKeeping(copy, normal, "2018-01-16", 4));
+    assertEquals(0, sales.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void anotherObjectOfAnEmployeeIsCountedById() {
+    Department sales = new Department("Sales");
+    JobQualification se1 = new JobQualification("SE1");
+    Employee e = employeeWith(8);
+    e.setDepartment(sales);
+    sales.addNewEmployee(e);
+
+    // e as read again, e.g. from the data source
+    Employee copy = new Employee(e.getId(), e.getName(), e.getDob(), e.getEmail(), e.getPhonenumber(),
+        e.getIdentification(), e.getSocialInsuranceNo(), null, sales, null);
+    copy.addNewDailyTimeKeeping(new DailyTimeKeeping(copy, normal, "2018-01-16", 4));
+    assertEquals(12, sales.getTotalHoursOfWork());
+
+    copy.setPosition(se1);
+    assertEquals(Integer.valueOf(1), sales.getPositionCounts().get(se1));
+    assertEquals(null, sales.getPositionCounts().get(null));
+  }
+
+  @Test
+  public void aMoveToAnotherDepartmentMovesTheHours() {
+    Department sales = new Department("Sales");
+    Department support = new Department("Support");
+    Employee e = employeeWith(8);
+    e.setDepartment(sales);
+    assertEquals(8, sales.getTotalHoursOfWork());
+    assertEquals(Integer.valueOf(1), sales.getEmployeesCount());
+
+    e.setDepartment(support);
+    e.addNewDailyTimeKeeping(new DailyTimeKeeping(e, normal, "2018-01-16", 4));
+    assertEquals(0, sales.getTotalHoursOfWork());
+    assertEquals(Integer.valueOf(0), sales.getEmployeesCount());
+    assertEquals(12, support.getTotalHoursOfWork());
+    assertEquals(Integer.valueOf(1), support.getEmployeesCount());
+
+    e.setDepartment(null);
+    assertEquals(0, support.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void typesOfWorkAreEqualByIdOnly() {
+    TypeOfWork other = new TypeOfWork("normal");
+    assertEquals(normal, normal);
+    assertNotEquals(normal, other);
+    assertEquals(normal, new TypeOfWork(normal.getId(), "renamed"));
+  }
+}
@@ -0,0 +1,56 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+
+/**
+ * Tests of how {@link EmployeeIdentityMap} follows the employees of the object manager.
+ *
+ * @author agent
+ */
+public class EmployeeIdentityMapTest {
+  private static DOMBasic dom;
+
+  private static final EmployeeIdentityMap identities = EmployeeIdentityMap.getInstance();
+
+  @BeforeClass
+  public static void listen() throws Exception {
+    dom = TestModel.dom();
+    identities.listenTo(dom);
+  }
+
+  private static Employee copyOf(Employee e) {
+    return new Employee(e.getId(), e.getName(), e.getDob(), e.getEmail(), e.getPhonenumber(),
+        e.getIdentification(), e.getSocialInsuranceNo(), null, null, null);
+  }
+
+  @Test
+  public void creatingAnEmployeeDoesNotMakeItCanonical() {
+    Employee e = new Employee("Pham Van E", "1991-04-05", "e@example.com", "0944", "ID5", "SI5");
+    assertNull(identities.get(e.getId()));
+    assertSame(e, identities.canonical(e));
+    assertSame(e, identities.canonical(copyOf(e)));
+  }
+
+  @Test
+  public void theObjectPoolIsTheSourceOfTruth() throws Exception {
+    Employee first = new Employee("Hoang Van F", "1992-05-06", "f@example.com", "0955", "ID6", "SI6");
+    assertSame(first, identities.canonical(first));
+
+    // the object that is added to the pool replaces the one that was canonical before
+    Employee pooled = copyOf(first);
+    Oid oid = dom.addObject(pooled, false);
+    assertSame(pooled, identities.get(first.getId()));
+    assertSame(pooled, identities.canonical(first));
+
+    dom.deleteObject(pooled, oid, Employee.class);
+    assertNull(identities.get(first.getId()));
+  }
+}
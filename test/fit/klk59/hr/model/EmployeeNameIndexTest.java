@@ -0,0 +1,89 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+import klk59.hr.model.util.EmployeeIds;
+
+/**
+ * Tests of how {@link EmployeeNameIndex} follows the employees of the object manager.
+ *
+ * @author agent
+ */
+public class EmployeeNameIndexTest {
+  private static DOMBasic dom;
+
+  private static final EmployeeNameIndex index = EmployeeNameIndex.getInstance();
+
+  @BeforeClass
+  public static void listen() throws Exception {
+    dom = TestModel.dom();
+    index.listenTo(dom);
+  }
+
+  @Test
+  public void indexesTheEmployeesOfTheObjectManagerOnly() throws Exception {
+    new Employee("Vuong Thi Lan", "1992-04-05", "l@example.com", "0933", "ID4", "SI4");
+    assertTrue(index.search("Vuong Thi Lan").isEmpty());
+
+    Employee added = new Employee("Vuong Van Minh", "1993-05-06", "m@example.com", "0944", "ID5", "SI5");
+    Oid oid = dom.addObject(added);
+    assertEquals(1, index.search("Vuong Van Minh").size());
+
+    dom.deleteObject(added, oid, Employee.class);
+    assertTrue(index.search("Vuong Van Minh").isEmpty());
+  }
+
+  @Test
+  public void isWarmOnlyAfterAFullLoad() throws Exception {
+    dom.addObject(new Employee("Vuong Van Nam", "1994-06-07", "n@example.com", "0955", "ID6", "SI6"));
+    index.listenTo(dom);
+
+    index.load(dom);
+    assertTrue(index.isWarm(dom));
+    assertEquals(dom.retrieveObjectCount(Employee.class), index.size());
+    assertEquals(1, index.search("Vuong Van Nam").size());
+    assertFalse(index.isWarm(null));
+  }
+
+  @Test
+  public void aReloadedEmployeeReplacesTheIndexedOne() {
+    String id = EmployeeIds.format(900_001);
+    Employee loaded = new Employee(id, "Vuong Thi Oanh", "1995-07-08", "o@example.com", "0966", "ID7", "SI7",
+        null, null, null);
+    Employee reloaded = new Employee(id, "Vuong Thi Oanh", "1995-07-08", "o@example.com", "0966", "ID7", "SI7",
+        null, null, null);
+    index.add(loaded);
+    index.add(reloaded);
+
+    List<Employee> found = index.search("Vuong Thi Oanh");
+    assertEquals(1, found.size());
+    assertSame(reloaded, found.get(0));
+
+    // the replaced object is no longer re-indexed when it is renamed
+    loaded.setName("Vuong Thi Phuong");
+    assertTrue(index.search("Vuong Thi Phuong").isEmpty());
+    index.remove(reloaded);
+  }
+
+  @Test
+  public void theFirstSearchLoadsTheIndex() throws Exception {
+    dom.addObject(new Employee("Vuong Van Quang", "1996-08-09", "q@example.com", "0977", "ID8", "SI8"));
+    index.clear();
+    assertFalse(index.isWarm(dom));
+
+    assertEquals(1, index.search(dom, "Vuong Van Quang").size());
+    assertTrue(index.isWarm(dom));
+    assertEquals(dom.retrieveObjectCount(Employee.class), index.size());
+  }
+}
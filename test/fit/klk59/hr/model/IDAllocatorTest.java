@@ -0,0 +1,133 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Stress tests of {@link IDAllocator}: concurrent callers of {@link IDAllocator#nextID(Class)} and
+ * {@link IDAllocator#reserve(Class, int)} must never be given the same id.
+ *
+ * @author agent
+ */
+public class IDAllocatorTest {
+  private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+  private static final int IDS_PER_THREAD = 200_000;
+
+  // private classes, so that the counters are not shared with the other tests
+  private static class Single { }
+
+  private static class Blocks { }
+
+  private static class Mixed { }
+
+  @Test
+  public void nextIDHasNoDuplicates() throws Exception {
+    int base = IDAllocator.current(Single.class);
+    List<int[]> ids = run(() -> {
+      int[] taken = new int[IDS_PER_THREAD];
+      for (int i = 0; i < taken.length; i++)
+        taken[i] = IDAllocator.nextID(Single.class);
+      return taken;
+    }, "nextID");
+
+    assertUnique(ids, base);
+    assertEquals(base + THREADS * IDS_PER_THREAD, IDAllocator.current(Single.class));
+  }
+
+  @Test
+  public void reservedBlocksHaveNoDuplicates() throws Exception {
+    int base = IDAllocator.current(Blocks.class);
+    List<int[]> ids = run(() -> {
+      int[] taken = new int[IDS_PER_THREAD];
+      IDAllocator.Block block = null;
+      for (int i = 0; i < taken.length; i++) {
+        if (block == null || !block.hasNext())
+          block = IDAllocator.reserve(Blocks.class, 64);
+        taken[i] = block.next();
+      }
+      return taken;
+    }, "reserve(64)");
+
+    assertUnique(ids, base);
+  }
+
+  @Test
+  public void updateDuringAllocationNeverGoesBack() throws Exception {
+    int base = IDAllocator.current(Mixed.class);
+    List<int[]> ids = run(() -> {
+      int[] taken = new int[IDS_PER_THREAD];
+      for (int i = 0; i < taken.length; i++) {
+        taken[i] = IDAllocator.nextID(Mixed.class);
+        // a record read from the data source with a lower id must not move the counter back
+        if (i % 1000 == 0)
+          IDAllocator.update(Mixed.class, taken[i] - 500);
+      }
+      return taken;
+    }, "nextID+update");
+
+    assertUnique(ids, base);
+  }
+
+  @Test
+  public void updateAdvancesTheCounter() {
+    class Seeded { }
+    IDAllocator.synchronise(Seeded.class, null, 41);
+    assertEquals(42, IDAllocator.nextID(Seeded.class));
+    assertEquals(42, IDAllocator.update(Seeded.class, 7));
+  }
+
+  /**
+   * @effects
+   *  run <tt>task</tt> in {@link #THREADS} threads at the same time, print the allocation rate
+   *  and return the ids taken by each thread
+   */
+  private static List<int[]> run(Callable<int[]> task, String label) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Callable<int[]>> tasks = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++)
+        tasks.add(task);
+
+      long start = System.nanoTime();
+      List<Future<int[]>> futures = pool.invokeAll(tasks);
+      List<int[]> result = new ArrayList<>();
+      for (Future<int[]> f : futures)
+        result.add(f.get());
+      long nanos = System.nanoTime() - start;
+
+      long total = (long) THREADS * IDS_PER_THREAD;
+      System.out.printf("IDAllocator %s: %d threads, %d ids, %.1f M allocations/s%n", label, THREADS,
+          total, total * 1000.0 / nanos);
+      return result;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * @effects
+   *  assert that the ids in <tt>ids</tt> are all distinct and greater than <tt>base</tt>
+   */
+  private static void assertUnique(List<int[]> ids, int base) {
+    BitSet seen = new BitSet();
+    for (int[] taken : ids) {
+      for (int id : taken) {
+        assertTrue("id " + id + " not above " + base, id > base);
+        assertFalse("duplicate id " + id, seen.get(id - base));
+        seen.set(id - base);
+      }
+    }
+  }
+}
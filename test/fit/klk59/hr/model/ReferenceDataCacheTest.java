@@ -0,0 +1,169 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+
+/**
+ * Tests of the eviction, the statistics and the concurrent lookups of {@link ReferenceDataCache}, and of how
+ * the shared cache follows the reference objects of the object manager.
+ *
+ * @author agent
+ */
+public class ReferenceDataCacheTest {
+  private static DOMBasic dom;
+
+  private static final ReferenceDataCache cache = ReferenceDataCache.getInstance();
+
+  @BeforeClass
+  public static void listen() throws Exception {
+    dom = TestModel.dom();
+    cache.listenTo(dom);
+  }
+
+  @Test
+  public void theLeastRecentlyUsedObjectOfAClassIsEvictedAtCapacity() {
+    ReferenceDataCache small = new ReferenceDataCache(3);
+    TypeOfWork[] types = new TypeOfWork[5];
+    for (int i = 1; i <= 4; i++) {
+      types[i] = new TypeOfWork(i, "type " + i);
+      if (i == 4)
+        assertSame(types[1], small.getIfPresent(TypeOfWork.class, 1));
+      small.put(TypeOfWork.class, i, types[i]);
+    }
+
+    // 1 was used after 2 was added
+    assertEquals(1, small.getEvictions());
+    assertNull(small.getIfPresent(TypeOfWork.class, 2));
+    assertSame(types[1], small.getIfPresent(TypeOfWork.class, 1));
+    assertSame(types[3], small.getIfPresent(TypeOfWork.class, 3));
+    assertSame(types[4], small.getIfPresent(TypeOfWork.class, 4));
+
+    // each class has its own segment
+    for (int i = 1; i <= 3; i++)
+      small.put(City.class, i, new City(i, "city " + i));
+    assertEquals(1, small.getEvictions());
+    assertSame(types[4], small.getIfPresent(TypeOfWork.class, 4));
+    assertNotNull(small.getIfPresent(City.class, 1));
+  }
+
+  @Test
+  public void hitsMissesAndEvictionsAreCounted() throws Exception {
+    ReferenceDataCache counted = new ReferenceDataCache(2);
+    City city = new City("Can Tho");
+    dom.addObject(city);
+
+    // a miss is resolved from the object pool and then hits
+    assertSame(city, counted.get(City.class, city.getId(), dom));
+    assertEquals(0, counted.getHits());
+    assertEquals(1, counted.getMisses());
+    assertSame(city, counted.get(City.class, city.getId(), dom));
+    assertSame(city, counted.getIfPresent(City.class, city.getId()));
+    assertEquals(2, counted.getHits());
+    assertEquals(1, counted.getMisses());
+    assertEquals(2.0 / 3, counted.getHitRate(), 1e-9);
+
+    // an object that is in the data source only is read from it
+    for (Iterator<Map.Entry<Oid, Object>> pool = dom.getObjectIterator(City.class); pool.hasNext(); ) {
+      if (pool.next().getValue() == city)
+        pool.remove();
+    }
+    counted.invalidate(City.class, city.getId());
+    City read = counted.get(City.class, city.getId(), dom);
+    assertEquals(city.getId(), read.getId());
+    assertEquals("Can Tho", read.getName());
+    assertEquals(2, counted.getMisses());
+
+    // an object that does not exist is not cached
+    assertNull(counted.get(City.class, Integer.MAX_VALUE, dom));
+    assertNull(counted.get(City.class, Integer.MAX_VALUE, dom));
+    assertEquals(4, counted.getMisses());
+
+    counted.put(City.class, -1, new City(-1, "a"));
+    counted.put(City.class, -2, new City(-2, "b"));
+    assertEquals(1, counted.getEvictions());
+    assertEquals(2, counted.getHits());
+  }
+
+  @Test
+  public void concurrentLookupsGetTheCachedObjectsAndAreAllCounted() throws Exception {
+    final int threads = 4, lookups = 150 * 128, capacity = 64;
+    ReferenceDataCache shared = new ReferenceDataCache(capacity);
+    JobQualification[] positions = new JobQualification[capacity];
+    for (int i = 0; i < capacity; i++) {
+      positions[i] = new JobQualification(i, "SE1");
+      shared.put(JobQualification.class, i, positions[i]);
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        results.add(pool.submit(() -> {
+          start.await();
+          int found = 0;
+          // each 128 lookups go over the ids 0..127 once, of which the first half are cached
+          for (int i = 0; i < lookups; i++) {
+            int id = (i * 31 + thread) % (capacity * 2);
+            JobQualification p = shared.getIfPresent(JobQualification.class, id);
+            if (p != null) {
+              assertSame(positions[id], p);
+              found++;
+            }
+            // objects of another class are added and evicted meanwhile
+            shared.put(TypeOfWork.class, thread * lookups + i, positions[0]);
+          }
+          return found;
+        }));
+      }
+      start.countDown();
+
+      long found = 0;
+      for (Future<Integer> r : results)
+        found += r.get();
+
+      assertEquals(found, shared.getHits());
+      assertEquals(threads * lookups - found, shared.getMisses());
+      assertEquals(threads * lookups / 2, found);
+      // every object of the other class but the last capacity ones was evicted
+      assertEquals(threads * lookups - capacity, shared.getEvictions());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void followsTheObjectsOfTheObjectManager() throws Exception {
+    City city = new City("Hue");
+    assertNull(cache.getIfPresent(City.class, city.getId()));
+
+    Oid oid = dom.addObject(city);
+    assertSame(city, cache.getIfPresent(City.class, city.getId()));
+
+    // the cache holds the object itself
+    city.setName("Da Nang");
+    assertSame(city, cache.get(City.class, city.getId(), dom));
+
+    dom.deleteObject(city, oid, City.class);
+    assertNull(cache.getIfPresent(City.class, city.getId()));
+  }
+}
@@ -0,0 +1,70 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+
+/**
+ * Tests of loading the {@link SalaryGrades} from an SQL query.
+ *
+ * @author agent
+ */
+public class SalaryGradesTest {
+  private Map<String, Integer> original;
+
+  private Connection conn;
+
+  @Before
+  public void createTable() throws Exception {
+    original = new HashMap<>(SalaryGrades.getGrades());
+
+    conn = DriverManager.getConnection("jdbc:derby:memory:grades;create=true");
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("CREATE TABLE grade (level VARCHAR(10), salary INT)");
+      stmt.executeUpdate("INSERT INTO grade VALUES ('SE1', 21000000), ('SE2', 26000000)");
+    }
+  }
+
+  @After
+  public void dropTable() throws Exception {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("DROP TABLE grade");
+    }
+    conn.close();
+    SalaryGrades.load(original);
+  }
+
+  @Test
+  public void loadsTheGradesOfTheQuery() throws Exception {
+    SalaryGrades.load(conn, "SELECT level, salary FROM grade");
+    assertEquals(21000000, SalaryGrades.salaryOf("SE1"));
+    assertEquals(26000000, SalaryGrades.salaryOf("SE2"));
+  }
+
+  @Test
+  public void rejectsNullSalaries() throws Exception {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("INSERT INTO grade VALUES ('SE3', NULL)");
+    }
+    int version = SalaryGrades.getVersion();
+
+    try {
+      SalaryGrades.load(conn, "SELECT level, salary FROM grade");
+      fail("a NULL salary was loaded");
+    } catch (ConstraintViolationException e) {
+      // expected
+    }
+    assertEquals(version, SalaryGrades.getVersion());
+  }
+}
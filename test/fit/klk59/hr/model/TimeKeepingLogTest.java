@@ -0,0 +1,237 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * Tests of how an unloaded {@link TimeKeepingLog} reads the records of its employee, from a loader of
+ * records in memory and from the data source of {@link TestModel} (through
+ * {@link DataSourceTimeKeepingLoader}), and of the removal of archived records.
+ *
+ * @author agent
+ */
+public class TimeKeepingLogTest {
+  private final Employee employee = new Employee("Bui Van H", "1989-10-11", "h@example.com", "0977",
+      "ID8", "SI8");
+
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  /** the records "in the data source": one of 8 hours on each day of January 2018 */
+  private final List<DailyTimeKeeping> stored = new ArrayList<>();
+
+  private final int jan1 = WorkDates.parse("2018-01-01");
+
+  @Before
+  public void store() {
+    for (int day = jan1; day < jan1 + 31; day++)
+      stored.add(new DailyTimeKeeping(2_000_000 + day - jan1, employee, normal, WorkDates.format(day), 8));
+  }
+
+  /**
+   * A loader of {@link #stored} that counts its calls.
+   */
+  private class CountingLoader implements TimeKeepingLog.Loader {
+    private final boolean ranges;
+    private int loads;
+
+    CountingLoader(boolean ranges) {
+      this.ranges = ranges;
+    }
+
+    @Override
+    public Collection<DailyTimeKeeping> load(Employee owner, Integer fromDay, Integer toDay) {
+      loads++;
+      List<DailyTimeKeeping> records = new ArrayList<>();
+      for (DailyTimeKeeping d : stored) {
+        if (fromDay == null || (d.getWorkDay() >= fromDay && d.getWorkDay() <= toDay))
+          records.add(d);
+      }
+      return records;
+    }
+
+    @Override
+    public boolean canLoadRange() {
+      return ranges;
+    }
+  }
+
+  /**
+   * A loader that reads the records from the data source (see {@link DataSourceTimeKeepingLoader}) and
+   * records the ranges that it is asked for (<tt>null</tt> for all the records).
+   */
+  private static class DataSourceLoader implements TimeKeepingLog.Loader {
+    private final List<String> loads = new ArrayList<>();
+
+    @Override
+    public Collection<DailyTimeKeeping> load(Employee owner, Integer fromDay, Integer toDay) {
+      loads.add((fromDay == null) ? null : WorkDates.format(fromDay) + "/" + WorkDates.format(toDay));
+      return DataSourceTimeKeepingLoader.getInstance().load(owner, fromDay, toDay);
+    }
+
+    @Override
+    public boolean canLoadRange() {
+      return DataSourceTimeKeepingLoader.getInstance().canLoadRange();
+    }
+  }
+
+  /**
+   * @effects
+   *  add a new employee to <tt>dom</tt> and a record of <tt>hours</tt> hours of the employee on each of
+   *  <tt>dates</tt> (which are only in the data source, not in the log of the employee), and return the employee
+   */
+  private static Employee storedEmployee(DOMBasic dom, int hours, String... dates) throws Exception {
+    TypeOfWork logged = new TypeOfWork("logged");
+    dom.addObject(logged);
+    Employee e = new Employee("Bui Thi K", "1990-11-12", "k@example.com", "0988", "ID9", "SI9");
+    dom.addObject(e);
+    for (String date : dates) {
+      dom.addObject(new DailyTimeKeeping(e, logged, date, hours));
+    }
+
+    return e;
+  }
+
+  private static String[] daysOf(String month, int fromDay, int toDay) {
+    String[] dates = new String[toDay - fromDay + 1];
+    for (int d = fromDay; d <= toDay; d++)
+      dates[d - fromDay] = String.format("%s-%02d", month, d);
+    return dates;
+  }
+
+  @Test
+  public void loadedRangesAreNotReadAgain() {
+    CountingLoader loader = new CountingLoader(true);
+    TimeKeepingLog log = new TimeKeepingLog(employee, loader);
+
+    assertEquals(7 * 8, log.getHoursOfWork(jan1, jan1 + 6));
+    assertEquals(7 * 8, log.getHoursOfWork(jan1 + 7, jan1 + 13));
+    assertEquals(2, loader.loads);
+
+    // within the (merged) ranges that have been read
+    assertEquals(14 * 8, log.getHoursOfWork(jan1, jan1 + 13));
+    assertEquals(8, log.getDay(jan1 + 10).get(0).getHourOfWork());
+    assertEquals(2, loader.loads);
+
+    assertEquals(21 * 8, log.getHoursOfWork(jan1 + 10, jan1 + 30));
+    assertEquals(3, loader.loads);
+    // each record is counted once
+    assertEquals(31 * 8, employee.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void aLoaderWithoutRangesLoadsAll() {
+    CountingLoader loader = new CountingLoader(false);
+    TimeKeepingLog log = new TimeKeepingLog(employee, loader);
+
+    assertEquals(7 * 8, log.getHoursOfWork(jan1, jan1 + 6));
+    assertEquals(1, loader.loads);
+    assertEquals(true, log.isLoaded());
+    assertEquals(31, log.size());
+    assertEquals(1, loader.loads);
+  }
+
+  @Test
+  public void rangesAreReadFromTheDataSource() throws Exception {
+    List<String> dates = new ArrayList<>(Arrays.asList(daysOf("2032-03", 1, 31)));
+    dates.add("2032-04-01");
+    Employee e = storedEmployee(TestModel.dom(), 8, dates.toArray(new String[0]));
+    assertTrue(DataSourceTimeKeepingLoader.getInstance().canLoadRange());
+
+    DataSourceLoader loader = new DataSourceLoader();
+    TimeKeepingLog log = new TimeKeepingLog(e, loader);
+    int mar1 = WorkDates.parse("2032-03-01");
+
+    assertEquals(7, log.getDays(mar1, mar1 + 6).size());
+    assertEquals(Arrays.asList("2032-03-01/2032-03-07"), loader.loads);
+    assertFalse(log.isLoaded());
+    assertEquals(7 * 8, e.getTotalHoursOfWork());
+
+    // repeated and overlapping ranges: only a range that has not all been read is read
+    assertEquals(7 * 8, log.getHoursOfWork(mar1, mar1 + 6));
+    assertEquals(1, log.getDay(mar1 + 2).size());
+    assertEquals(1, loader.loads.size());
+    assertEquals(6 * 8, log.getHoursOfWork(mar1 + 4, mar1 + 9));
+    assertEquals(Arrays.asList("2032-03-01/2032-03-07", "2032-03-05/2032-03-10"), loader.loads);
+    assertEquals(10 * 8, log.getHoursOfWork(mar1, mar1 + 9));
+    assertEquals(2, loader.loads.size());
+    // each record is counted once
+    assertEquals(10 * 8, e.getTotalHoursOfWork());
+
+    assertEquals(31 * 8, log.getHoursOfWork(mar1, mar1 + 30));
+    assertEquals(3, loader.loads.size());
+    assertEquals(31 * 8, e.getTotalHoursOfWork());
+
+    assertEquals(32, log.size());
+    assertEquals(null, loader.loads.get(3));
+    assertTrue(log.isLoaded());
+    assertEquals(32 * 8, e.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void allTheRecordsAreReadIfSomeDatesInTheDataSourceAreNotIso() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    Employee e = storedEmployee(dom, 8, daysOf("2033-03", 1, 5));
+
+    // a record as it was stored before the dates were stored in the ISO format
+    TypeOfWork dayFirstType = new TypeOfWork("day first");
+    dom.addObject(dayFirstType);
+    DailyTimeKeeping dayFirst = new DailyTimeKeeping(null, e, dayFirstType, "06.03.2033", 4);
+    Oid oid = dom.addObject(dayFirst);
+    DataSourceTimeKeepingLoader dataSource = DataSourceTimeKeepingLoader.getInstance();
+    try {
+      dataSource.recheckDates();
+      assertFalse(dataSource.canLoadRange());
+
+      DataSourceLoader loader = new DataSourceLoader();
+      TimeKeepingLog log = new TimeKeepingLog(e, loader);
+      int mar1 = WorkDates.parse("2033-03-01");
+      assertEquals(2 * 8, log.getHoursOfWork(mar1, mar1 + 1));
+      assertEquals(Collections.singletonList(null), loader.loads);
+      assertTrue(log.isLoaded());
+      assertEquals(6, log.size());
+      assertEquals(5 * 8 + 4, e.getTotalHoursOfWork());
+    } finally {
+      dom.deleteObject(dayFirst, oid, DailyTimeKeeping.class);
+      dataSource.recheckDates();
+    }
+    assertTrue(dataSource.canLoadRange());
+  }
+
+  @Test
+  public void archivedRecordsAreNotRemoved() {
+    employee.addNewDailyTimeKeeping(stored.subList(0, 10));
+    TimeSheetArchive.archive(Collections.singleton(employee), "2018-01-06");
+    TimeKeepingLog log = employee.getTimeKeepingLog();
+    assertEquals(10, log.size());
+
+    DailyTimeKeeping archived = log.get(0);
+    assertFalse(log.remove(archived));
+    // the link remover of the framework
+    employee.removeDailyTimeKeeping(archived);
+    assertEquals(10, log.size());
+
+    for (Iterator<DailyTimeKeeping> it = log.iterator(); it.hasNext(); ) {
+      it.next();
+      it.remove();
+    }
+    assertEquals(5, log.size());
+    assertEquals(5 * 8, employee.getTotalHoursOfWork());
+    assertEquals(jan1 + 4, log.get(4).getWorkDay());
+  }
+}
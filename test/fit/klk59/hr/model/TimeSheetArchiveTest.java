@@ -0,0 +1,118 @@
+package klk59.hr.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.ConstraintViolationException;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+
+/**
+ * Tests of how a {@link TimeSheetArchive} takes over the older records of the
+ * {@link TimeKeepingLog} of an employee.
+ *
+ * @author agent
+ */
+public class TimeSheetArchiveTest {
+  private final Employee employee = new Employee("Le Van C", "1988-07-09", "c@example.com", "0922",
+      "ID3", "SI3");
+
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  @Before
+  public void addRecords() {
+    employee.addNewDailyTimeKeeping(new DailyTimeKeeping(employee, normal, "2018-01-15", 8));
+    employee.addNewDailyTimeKeeping(new DailyTimeKeeping(employee, normal, "2018-03-12", 6));
+    employee.addNewDailyTimeKeeping(new DailyTimeKeeping(employee, normal, "2018-05-02", 4));
+  }
+
+  @Test
+  public void archivedRecordsAreReadOnly() {
+    TimeSheetArchive.archive(Collections.singleton(employee), "2018-02-01");
+
+    TimeKeepingLog log = employee.getTimeKeepingLog();
+    DailyTimeKeeping first = log.get(0);
+    assertTrue(first.isArchived());
+    assertEquals(first, log.get(0));
+    try {
+      first.setHourOfWork(2);
+      fail("an archived record was changed");
+    } catch (ConstraintViolationException e) {
+      // expected
+    }
+    assertEquals(8, log.get(0).getHourOfWork());
+    assertEquals(18, employee.getTotalHoursOfWork());
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void newRecordsCannotBeBackdated() {
+    TimeSheetArchive.archive(Collections.singleton(employee), "2018-02-01");
+    new DailyTimeKeeping(employee, normal, "2018-01-20", 8);
+  }
+
+  @Test
+  public void cutoffCanBeRolledForward() {
+    TimeSheetArchive.archive(Collections.singleton(employee), "2018-02-01");
+    TimeSheetArchive archive = TimeSheetArchive.archive(Collections.singleton(employee), "2018-04-01");
+
+    assertEquals(2, archive.size(employee));
+    assertEquals(3, employee.getTimeKeepingLog().size());
+    assertEquals(18, employee.getTotalHoursOfWork());
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void cutoffCannotBeMovedBack() {
+    TimeSheetArchive.archive(Collections.singleton(employee), "2018-04-01");
+    TimeSheetArchive.archive(Collections.singleton(employee), "2018-02-01");
+  }
+
+  @Test
+  public void hoursThatAreNotAShortAreNotArchived() {
+    employee.addDailyTimeKeeping(new DailyTimeKeeping(1_000_101, employee, normal, "2018-01-16", 40_000));
+    try {
+      TimeSheetArchive.archive(Collections.singleton(employee), "2018-02-01");
+      fail("40000 hours were archived");
+    } catch (ConstraintViolationException e) {
+      // expected
+    }
+    assertNull(employee.getTimeKeepingLog().getArchive());
+    assertEquals(40_018, employee.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void archivedRecordsLeaveTheObjectPool() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    Set<Integer> ids = new HashSet<>();
+    for (DailyTimeKeeping d : employee.getDailyTimeKeeping()) {
+      dom.addObject(d, false);
+      ids.add(d.getId());
+    }
+
+    TimeSheetArchive.archive(dom, Collections.singleton(employee), "2018-04-01");
+
+    Set<Integer> pooled = new HashSet<>();
+    Iterator<Map.Entry<Oid, Object>> pool = dom.getObjectIterator(DailyTimeKeeping.class);
+    while (pool.hasNext()) {
+      int id = ((DailyTimeKeeping) pool.next().getValue()).getId();
+      if (ids.contains(id))
+        pooled.add(id);
+    }
+    assertEquals(1, pooled.size());
+    assertTrue(employee.getTimeKeepingLog().isLive(employee.getTimeKeepingLog().get(2)));
+    assertFalse(pooled.contains(employee.getTimeKeepingLog().get(0).getId()));
+    assertEquals(18, employee.getTotalHoursOfWork());
+  }
+}
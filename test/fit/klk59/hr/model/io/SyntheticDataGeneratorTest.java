@@ -0,0 +1,210 @@
+package klk59.hr.model.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import domainapp.basics.exceptions.DataSourceException;
+import klk59.hr.TestModel;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.io.SyntheticDataGenerator.Sink;
+
+/**
+ * Tests that a {@link SyntheticDataGenerator} generates the same data from the same seed whatever its
+ * pool and chunk size, and of its sinks.
+ *
+ * @author agent
+ */
+public class SyntheticDataGeneratorTest {
+  private static final int EMPLOYEES = 300;
+
+  /** 2018-01-01 is a Monday: 10 working days */
+  private static final int DAYS = 14;
+
+  private static SyntheticDataGenerator generator(long seed) {
+    return new SyntheticDataGenerator(seed).setNumEmployees(EMPLOYEES).setNumDepartments(5).setNumCities(3)
+        .setPeriod("2018-01-01", DAYS);
+  }
+
+  @Test
+  public void theSameSeedGeneratesTheSameDataInAnyPoolAndChunks() throws Exception {
+    RecordingSink sequential = new RecordingSink(null);
+    generator(7).setPool(new ForkJoinPool(1)).setChunkSize(1024).generate(sequential);
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int chunkSize : new int[] {1, 7, 100, 300}) {
+        RecordingSink parallel = new RecordingSink(null);
+        generator(7).setPool(pool).setChunkSize(chunkSize).generate(parallel);
+        // the records of a chunk follow its employees
+        assertEquals("chunks of " + chunkSize, sequential.lines, parallel.lines);
+        assertEquals("chunks of " + chunkSize, sequential.recordLines, parallel.recordLines);
+        assertEquals((EMPLOYEES + chunkSize - 1) / chunkSize, parallel.chunks);
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(EMPLOYEES, sequential.lines.size() - sequential.referenceLines);
+    assertEquals(EMPLOYEES, sequential.recordLines.size());
+
+    RecordingSink other = new RecordingSink(null);
+    generator(8).generate(other);
+    assertNotEquals(sequential.lines, other.lines);
+    assertNotEquals(sequential.recordLines, other.recordLines);
+  }
+
+  @Test
+  public void theRecordsOfAnEmployeeFollowItWithIncreasingIds() throws Exception {
+    RecordingSink sink = new RecordingSink(null);
+    generator(7).setChunkSize(64).generate(sink);
+    assertTrue(sink.ended);
+
+    int lastId = Integer.MIN_VALUE;
+    for (DailyTimeKeeping d : sink.records) {
+      assertTrue(sink.passed.contains(d.getEmployee()));
+      assertTrue(d.getId() > lastId);
+      lastId = d.getId();
+    }
+  }
+
+  @Test
+  public void theModelSinkLinksTheObjects() throws Exception {
+    RecordingSink sink = new RecordingSink(SyntheticDataGenerator.toModel());
+    generator(7).generate(sink);
+
+    int employees = 0;
+    for (Department d : sink.departments) {
+      employees += d.getEmployeesCount();
+      int hours = 0;
+      for (Employee e : d.getEmployees()) {
+        assertSame(d, e.getDepartment());
+        hours += e.getTotalHoursOfWork();
+      }
+      assertEquals(hours, d.getTotalHoursOfWork());
+    }
+    assertEquals(EMPLOYEES, employees);
+
+    for (Employee e : sink.passed) {
+      assertTrue(e.getCity().getEmployees().contains(e));
+      assertTrue(e.getPosition().getEmployees().contains(e));
+      assertEquals(10, e.getTimeKeepingLog().size());
+    }
+  }
+
+  @Test
+  public void theDataSourceSinkWritesTheObjects() throws Exception {
+    RecordingSink sink = new RecordingSink(SyntheticDataGenerator.toDataSource(TestModel.dom()));
+    new SyntheticDataGenerator(9).setNumEmployees(20).setNumDepartments(2).setNumCities(1)
+        .setPeriod("2018-01-01", DAYS).generate(sink);
+
+    StringBuilder types = new StringBuilder(), departments = new StringBuilder();
+    for (TypeOfWork t : sink.types)
+      types.append(types.length() > 0 ? "," : "").append(t.getId());
+    for (Department d : sink.departments)
+      departments.append(departments.length() > 0 ? "," : "").append(d.getId());
+
+    try (Connection conn = TestModel.connect(); Statement stmt = conn.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery(
+          "select count(*) from hr.Employee where department_id in (" + departments + ")")) {
+        rs.next();
+        assertEquals(20, rs.getInt(1));
+      }
+      try (ResultSet rs = stmt.executeQuery(
+          "select count(*) from hr.DailyTimeKeeping where typeOfWork_id in (" + types + ")")) {
+        rs.next();
+        assertEquals(20 * 10, rs.getInt(1));
+      }
+    }
+  }
+
+  /**
+   * A {@link Sink} that passes the generated objects on to another sink (if any) and records them, and
+   * their values without their ids as lines of text: a line per reference object and employee, and a line
+   * of the records of each employee.
+   */
+  private static class RecordingSink implements Sink {
+    private final Sink target;
+
+    private final List<String> lines = new ArrayList<>();
+    private final List<String> recordLines = new ArrayList<>();
+    private int referenceLines;
+    private int chunks;
+    private boolean ended;
+
+    private List<Department> departments;
+    private List<TypeOfWork> types;
+    private final List<Employee> passed = new ArrayList<>();
+    private final List<DailyTimeKeeping> records = new ArrayList<>();
+
+    RecordingSink(Sink target) {
+      this.target = target;
+    }
+
+    @Override
+    public void referenceData(List<City> cities, List<Department> departments, List<JobQualification> positions,
+        List<TypeOfWork> typesOfWork) throws DataSourceException {
+      this.departments = departments;
+      this.types = typesOfWork;
+      for (City c : cities)
+        lines.add("city " + c.getName());
+      for (Department d : departments)
+        lines.add("department " + d.getName());
+      for (JobQualification p : positions)
+        lines.add("position " + p.getJobLevelName());
+      for (TypeOfWork t : typesOfWork)
+        lines.add("typeOfWork " + t.getName());
+      referenceLines = lines.size();
+      if (target != null)
+        target.referenceData(cities, departments, positions, typesOfWork);
+    }
+
+    @Override
+    public void employees(List<Employee> employees) throws DataSourceException {
+      chunks++;
+      for (Employee e : employees) {
+        passed.add(e);
+        lines.add(String.join("|", e.getName(), e.getDob(), e.getEmail(), e.getPhonenumber(), e.getIdentification(),
+            e.getSocialInsuranceNo(), e.getCity().getName(), e.getDepartment().getName(),
+            e.getPosition().getJobLevelName()));
+      }
+      if (target != null)
+        target.employees(employees);
+    }
+
+    @Override
+    public void dailyTimeKeeping(Employee e, List<DailyTimeKeeping> records) throws DataSourceException {
+      StringBuilder line = new StringBuilder(e.getEmail());
+      for (DailyTimeKeeping d : records) {
+        this.records.add(d);
+        line.append('|').append(d.getDateOfWork()).append(' ').append(d.getTypeOfWork().getName())
+            .append(' ').append(d.getHourOfWork());
+      }
+      recordLines.add(line.toString());
+      if (target != null)
+        target.dailyTimeKeeping(e, records);
+    }
+
+    @Override
+    public void end() throws DataSourceException {
+      ended = true;
+      if (target != null)
+        target.end();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package klk59.hr.model.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.DataSourceException;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.TimeKeepingLog;
+import klk59.hr.model.TimeSheetArchive;
+import klk59.hr.model.TypeOfWork;
+
+/**
+ * Tests of the validation and the writes of a {@link TimesheetImporter}.
+ *
+ * @author agent
+ */
+public class TimesheetImporterTest {
+  private Path file;
+
+  @Before
+  public void createFile() throws Exception {
+    file = Files.createTempFile("timesheet-", ".csv");
+  }
+
+  @After
+  public void deleteFile() throws Exception {
+    Files.deleteIfExists(file);
+  }
+
+  private void write(String... lines) throws Exception {
+    Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void invalidLinesAreRejectedBeforeTakingAnId() throws Exception {
+    Employee e = new Employee("Dang Van F", "1985-06-07", "f@example.com", "0955", "ID6", "SI6");
+    TypeOfWork normal = new TypeOfWork("normal");
+    e.addNewDailyTimeKeeping(new DailyTimeKeeping(e, normal, "2018-01-10", 8));
+    TimeSheetArchive.archive(Collections.singleton(e), "2018-02-01");
+
+    write("employeeId,typeOfWork,dateOfWork,hourOfWork",
+        e.getId() + ",normal,2018-02-05,8",
+        e.getId() + ",normal,2018-01-20,8",
+        e.getId() + ",normal,2018-02-06,30",
+        e.getId() + ",normal,2018-02-07,6");
+
+    TimesheetImporter importer = new TimesheetImporter(null);
+    importer.addEmployees(Collections.singleton(e));
+    importer.addTypesOfWork(Collections.singleton(normal));
+    TimesheetImporter.Stats stats = importer.importFile(file);
+
+    assertEquals(2, stats.getRows());
+    assertEquals(2, stats.getRejected());
+
+    TimeKeepingLog log = e.getTimeKeepingLog();
+    assertEquals(3, log.size());
+    assertEquals(8 + 8 + 6, e.getTotalHoursOfWork());
+    assertEquals(log.get(1).getId() + 1, log.get(2).getId());
+  }
+
+  @Test
+  public void recordsAreWrittenToTheDataSource() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    Employee e = new Employee("Dang Thi G", "1986-08-09", "g@example.com", "0966", "ID7", "SI7");
+    dom.addObject(e);
+    TypeOfWork imported = new TypeOfWork("imported");
+    dom.addObject(imported);
+
+    write(e.getId() + ",imported,2018-03-01,7",
+        e.getId() + ",imported,2018-03-02,7",
+        e.getId() + ",imported,2018-03-03,7");
+
+    try (Connection conn = TestModel.connect()) {
+      TimesheetImporter importer = new TimesheetImporter(dom);
+      importer.setBatchSize(2);
+      importer.setBatchConnection(conn);
+      importer.addEmployees(Collections.singleton(e));
+      importer.addTypesOfWork(Collections.singleton(imported));
+      TimesheetImporter.Stats stats = importer.importFile(file);
+
+      assertEquals(3, stats.getRows());
+      assertEquals(2, stats.getBatches());
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select count(*) from hr.DailyTimeKeeping where typeOfWork_id = "
+              + imported.getId())) {
+        rs.next();
+        assertEquals(3, rs.getInt(1));
+      }
+    }
+    assertEquals(21, e.getTotalHoursOfWork());
+  }
+
+  @Test
+  public void aBatchThatFailsToBeWrittenIsNotAddedToTheModel() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    Department audit = new Department("Audit");
+    dom.addObject(audit);
+    Employee e = new Employee("Dang Van H", "1987-09-10", "h@example.com", "0977", "ID8", "SI8");
+    e.setDepartment(audit);
+    audit.addNewEmployee(e);
+    dom.addObject(e);
+    TypeOfWork failed = new TypeOfWork("failed");
+    dom.addObject(failed);
+
+    write(e.getId() + ",failed,2018-04-01,5",
+        e.getId() + ",failed,2018-04-02,5",
+        e.getId() + ",failed,2018-04-03,5");
+
+    try (Connection conn = TestModel.connect()) {
+      TimesheetImporter importer = new TimesheetImporter(dom);
+      importer.setBatchSize(2);
+      // the second batch fails
+      importer.setBatchConnection(failingAfter(conn, 1));
+      importer.addEmployees(Collections.singleton(e));
+      importer.addTypesOfWork(Collections.singleton(failed));
+      try {
+        importer.importFile(file);
+        fail("the second batch is written");
+      } catch (DataSourceException ex) {
+        // the error of the batch, not that of closing the store (which has nothing left to write)
+        assertEquals(0, ex.getSuppressed().length);
+      }
+
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select count(*) from hr.DailyTimeKeeping where typeOfWork_id = "
+              + failed.getId())) {
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+      }
+    }
+
+    // only the first batch is in memory
+    assertEquals(2, e.getTimeKeepingLog().size());
+    assertEquals(10, e.getTotalHoursOfWork());
+    assertEquals(10, audit.getTotalHoursOfWork());
+    assertEquals(10, failed.getTotalHoursOfWork());
+    int pooled = 0;
+    Iterator<Map.Entry<Oid, Object>> pool = dom.getObjectIterator(DailyTimeKeeping.class);
+    while (pool.hasNext()) {
+      if (((DailyTimeKeeping) pool.next().getValue()).getEmployee() == e)
+        pooled++;
+    }
+    assertEquals(2, pooled);
+  }
+
+  /**
+   * @effects return a connection that delegates to <tt>conn</tt> but fails to prepare a statement
+   *  after it has prepared <tt>n</tt>
+   */
+  private static Connection failingAfter(Connection conn, int n) {
+    AtomicInteger prepared = new AtomicInteger();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("prepareStatement") && prepared.getAndIncrement() >= n)
+            throw new SQLException("write failed");
+          try {
+            return method.invoke(conn, args);
+          } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+          }
+        });
+  }
+}
@@ -0,0 +1,262 @@
+package klk59.hr.model.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.exceptions.DataSourceException;
+import klk59.hr.TestModel;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.TypeOfWork;
+
+/**
+ * Tests of the batch inserts, the coalescing, the write thresholds, the durability and the retries of a
+ * {@link WriteBehindStore}.
+ *
+ * @author agent
+ */
+public class WriteBehindStoreTest {
+  private DOMBasic dom;
+
+  private Connection conn;
+
+  @Before
+  public void connect() throws Exception {
+    dom = TestModel.dom();
+    conn = TestModel.connect();
+  }
+
+  @After
+  public void close() throws SQLException {
+    conn.close();
+  }
+
+  /** the names of the threads that prepared a statement of {@link #recording(Connection, int)} */
+  private final List<String> writers = new CopyOnWriteArrayList<>();
+
+  private int count(String sql) throws SQLException {
+    try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  @Test
+  public void newObjectsAreInsertedInBatches() throws Exception {
+    Employee e = new Employee("Vo Van E", "1991-04-05", "e@example.com", "0944", "ID5", "SI5");
+    dom.addObject(e);
+
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT);
+    store.setBatchConnection(conn);
+    try {
+      TypeOfWork[] types = new TypeOfWork[3];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = new TypeOfWork("batched " + i);
+        store.create(types[i]);
+      }
+      for (int i = 0; i < types.length; i++)
+        store.create(new DailyTimeKeeping(e, types[i], "2018-02-0" + (i + 1), 8));
+      store.commit();
+    } finally {
+      store.close();
+    }
+
+    assertEquals(6, store.getWritten());
+    assertEquals(0, store.getPending());
+    assertEquals(3, count("select count(*) from hr.TypeOfWork where name like 'batched %'"));
+    assertEquals(3, count("select count(*) from hr.DailyTimeKeeping where employee_id = '" + e.getId()
+        + "' and hourOfWork = 8"));
+  }
+
+  @Test
+  public void changesOfAnObjectAreWrittenOnce() throws Exception {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT);
+    store.setBatchConnection(conn);
+    TypeOfWork created = new TypeOfWork("coalesced new 0");
+    TypeOfWork stored = new TypeOfWork("coalesced stored 0");
+    dom.addObject(stored);
+    try {
+      store.create(created);
+      for (int i = 1; i <= 3; i++) {
+        created.setName("coalesced new " + i);
+        store.update(created);
+        stored.setName("coalesced stored " + i);
+        store.update(stored);
+      }
+      assertEquals(2, store.getPending());
+      store.commit();
+    } finally {
+      store.close();
+    }
+
+    assertEquals(7, store.getRecorded());
+    assertEquals(2, store.getWritten());
+    // inserted and updated with their latest state
+    assertEquals(1, count("select count(*) from hr.TypeOfWork where name like 'coalesced new %'"));
+    assertEquals(1, count("select count(*) from hr.TypeOfWork where name = 'coalesced new 3'"));
+    assertEquals(1, count("select count(*) from hr.TypeOfWork where name = 'coalesced stored 3'"));
+  }
+
+  @Test
+  public void theRecordedObjectsAreWrittenWhenThereAreMaxPending() throws Exception {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT, 3, 3_600_000);
+    store.setBatchConnection(recording(conn, 0));
+    try {
+      store.create(new TypeOfWork("counted 1"));
+      store.create(new TypeOfWork("counted 2"));
+      assertEquals(2, store.getPending());
+      assertEquals(0, count("select count(*) from hr.TypeOfWork where name like 'counted %'"));
+
+      // written by this thread
+      store.create(new TypeOfWork("counted 3"));
+      assertEquals(0, store.getPending());
+      assertEquals(3, count("select count(*) from hr.TypeOfWork where name like 'counted %'"));
+      assertEquals(Thread.currentThread().getName(), writers.get(0));
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void theRecordedObjectsAreWrittenAfterMaxDelay() throws Exception {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT, 1000, 50);
+    store.setBatchConnection(recording(conn, 0));
+    try {
+      store.create(new TypeOfWork("delayed"));
+      assertTrue(awaitWritten(store, 1));
+      assertEquals(1, count("select count(*) from hr.TypeOfWork where name = 'delayed'"));
+      assertEquals("WriteBehindStore-writer", writers.get(0));
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void aCommitWritesOnItsThreadOnlyIfDurabilityIsCommit() throws Exception {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT, 1000, 3_600_000);
+    store.setBatchConnection(recording(conn, 0));
+    try {
+      store.create(new TypeOfWork("committed"));
+      store.commit();
+      assertEquals(0, store.getPending());
+      assertEquals(1, count("select count(*) from hr.TypeOfWork where name = 'committed'"));
+      assertEquals(Thread.currentThread().getName(), writers.get(0));
+    } finally {
+      store.close();
+    }
+
+    writers.clear();
+    store = new WriteBehindStore(dom, WriteBehindStore.Durability.LAZY, 1000, 3_600_000);
+    store.setBatchConnection(recording(conn, 0));
+    try {
+      store.create(new TypeOfWork("lazily committed"));
+      store.commit();
+      assertTrue(awaitWritten(store, 1));
+      assertEquals(1, count("select count(*) from hr.TypeOfWork where name = 'lazily committed'"));
+      assertEquals("WriteBehindStore-writer", writers.get(0));
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void aBatchThatFailsIsRequeuedAndRetried() throws Exception {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.COMMIT, 1000, 3_600_000);
+    store.setBatchConnection(recording(conn, 1));
+    try {
+      store.create(new TypeOfWork("retried 1"));
+      store.create(new TypeOfWork("retried 2"));
+      try {
+        store.commit();
+        fail("the first batch is written");
+      } catch (DataSourceException e) {
+        // expected
+      }
+      assertEquals(2, store.getPending());
+      assertEquals(0, store.getWritten());
+      assertEquals(0, count("select count(*) from hr.TypeOfWork where name like 'retried %'"));
+
+      store.create(new TypeOfWork("retried 3"));
+      store.commit();
+      assertEquals(0, store.getPending());
+      assertEquals(3, store.getWritten());
+      assertEquals(3, count("select count(*) from hr.TypeOfWork where name like 'retried %'"));
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void theErrorOfABackgroundWriteIsThrownByTheNextCommit() throws Exception {
+    WriteBehindStore store = new WriteBehindStore(dom, WriteBehindStore.Durability.LAZY, 1000, 3_600_000);
+    store.setBatchConnection(recording(conn, 1));
+    try {
+      store.create(new TypeOfWork("lazily retried"));
+      store.commit();
+      // the background write fails and is retried after maxDelay
+      for (int i = 0; i < 500 && writers.isEmpty(); i++)
+        Thread.sleep(10);
+      Thread.sleep(50);
+      assertEquals(1, store.getPending());
+      try {
+        store.commit();
+        fail("the background write succeeded");
+      } catch (DataSourceException e) {
+        // expected
+      }
+
+      store.commit();
+      assertTrue(awaitWritten(store, 1));
+      assertEquals(1, count("select count(*) from hr.TypeOfWork where name = 'lazily retried'"));
+    } finally {
+      store.close();
+    }
+  }
+
+  /**
+   * @effects wait (up to 5 seconds) until <tt>store</tt> has written <tt>n</tt> objects; return true if it has
+   */
+  private static boolean awaitWritten(WriteBehindStore store, int n) throws InterruptedException {
+    for (int i = 0; i < 500 && store.getWritten() < n; i++)
+      Thread.sleep(10);
+    return store.getWritten() >= n;
+  }
+
+  /**
+   * @effects
+   *  return a connection that delegates to <tt>conn</tt>, adds the name of the thread that prepares a
+   *  statement to {@link #writers} and fails to prepare the first <tt>failures</tt> statements
+   */
+  private Connection recording(Connection conn, int failures) {
+    AtomicInteger prepared = new AtomicInteger();
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("prepareStatement")) {
+            writers.add(Thread.currentThread().getName());
+            if (prepared.getAndIncrement() < failures)
+              throw new SQLException("write failed");
+          }
+          try {
+            return method.invoke(conn, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+  }
+}
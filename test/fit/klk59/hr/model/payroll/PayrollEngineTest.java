@@ -0,0 +1,158 @@
+package klk59.hr.model.payroll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.SalaryGrades;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.util.WorkDates;
+
+/**
+ * Tests of the payslips of {@link PayrollEngine}, against pay computed by hand.
+ *
+ * <p>The employees are in the level <tt>SE1</tt>, whose basic salary is read from {@link SalaryGrades}
+ * (20,000,000 by default), so that a change of the grades by another test does not break these.
+ *
+ * @author agent
+ */
+public class PayrollEngineTest {
+  private static final String FROM = "2018-01-01", TO = "2018-01-31";
+
+  private final JobQualification se1 = new JobQualification("SE1");
+
+  private final TypeOfWork normal = new TypeOfWork("normal");
+
+  private final TypeOfWork overtime = new TypeOfWork("overtime");
+
+  private final PayrollEngine engine = new PayrollEngine();
+
+  private Employee employee(JobQualification position) {
+    return new Employee("Dinh Van P", "1990-01-01", "p@example.com", "0900", "ID", "SI", null, null, position);
+  }
+
+  private static void work(Employee e, TypeOfWork t, String date, int hours) {
+    e.addNewDailyTimeKeeping(new DailyTimeKeeping(e, t, date, hours));
+  }
+
+  @Test
+  public void hoursArePaidAtTheBasicSalaryPerStandardHourTimesTheirRate() {
+    int salary = se1.getSalaryBasic();
+    Employee e = employee(se1);
+    work(e, normal, "2018-01-02", 8);
+    work(e, normal, "2018-01-03", 8);
+    work(e, overtime, "2018-01-03", 2);
+    work(e, normal, "2018-02-01", 8); // not in the period
+
+    engine.setStandardHours(160);
+    engine.setRateMultiplier("overtime", 1.5);
+    Payslip p = engine.run(Arrays.asList(e), FROM, TO).get(0);
+
+    // 8 + 8 + 2 * 1.5 = 19 paid hours of salary / 160
+    assertSame(e, p.getEmployee());
+    assertEquals(salary, p.getSalaryBasic());
+    assertEquals(18, p.getHoursOfWork());
+    assertEquals(19.0, p.getPaidHours(), 0.0);
+    assertEquals(Math.round(salary * 19.0 / 160), p.getGrossPay());
+    assertEquals(FROM, p.getFromDate());
+    assertEquals(TO, p.getToDate());
+  }
+
+  @Test
+  public void theStandardHoursArePaidTheBasicSalary() {
+    Employee e = employee(se1);
+    for (int d = 1; d <= 22; d++)
+      work(e, normal, String.format("2018-01-%02d", d), 8);
+
+    Payslip p = engine.run(Arrays.asList(e), FROM, TO).get(0);
+    assertEquals(PayrollEngine.DEFAULT_STANDARD_HOURS, p.getHoursOfWork());
+    assertEquals(se1.getSalaryBasic(), p.getGrossPay());
+  }
+
+  @Test
+  public void grossPayIsRoundedToTheNearestUnit() {
+    SalaryGrades.put("PAY-TEST", 1000);
+    JobQualification level = new JobQualification("PAY-TEST");
+    Employee e = employee(level);
+    work(e, normal, "2018-01-02", 1);
+    work(e, overtime, "2018-01-02", 1);
+
+    engine.setStandardHours(3);
+    engine.setRateMultiplier("overtime", 0.5);
+    // 1000 * 1.5 / 3 = 500; 1000 * 1 / 3 = 333.33
+    assertEquals(500, engine.run(Arrays.asList(e), FROM, TO).get(0).getGrossPay());
+    engine.setRateMultiplier("overtime", 0);
+    assertEquals(333, engine.run(Arrays.asList(e), FROM, TO).get(0).getGrossPay());
+  }
+
+  @Test
+  public void anEmployeeWithoutAPositionIsPaidNothingForTheHours() {
+    Employee e = employee(null);
+    work(e, normal, "2018-01-02", 8);
+
+    Payslip p = engine.run(Arrays.asList(e), FROM, TO).get(0);
+    assertEquals(0, p.getSalaryBasic());
+    assertEquals(8, p.getHoursOfWork());
+    assertEquals(0, p.getGrossPay());
+  }
+
+  @Test
+  public void anEmployeeWithoutRecordsIsPaidNothing() {
+    Payslip p = engine.run(Arrays.asList(employee(se1)), FROM, TO).get(0);
+    assertEquals(se1.getSalaryBasic(), p.getSalaryBasic());
+    assertEquals(0, p.getHoursOfWork());
+    assertEquals(0.0, p.getPaidHours(), 0.0);
+    assertEquals(0, p.getGrossPay());
+  }
+
+  @Test
+  public void aSplitRunGivesThePayslipsOfTheEmployeesInOrder() {
+    int salary = se1.getSalaryBasic();
+    List<Employee> employees = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      Employee e = employee(i % 7 == 0 ? null : se1);
+      if (i % 5 != 0)
+        work(e, (i % 2 == 0) ? normal : overtime, "2018-01-15", i % 9);
+      employees.add(e);
+    }
+
+    // more than one task of each of the threads
+    PayrollEngine split = new PayrollEngine(new ForkJoinPool(4));
+    split.setRateMultiplier("overtime", 2);
+    List<Payslip> payslips = split.run(employees, FROM, TO);
+
+    assertEquals(employees.size(), payslips.size());
+    for (int i = 0; i < employees.size(); i++) {
+      int hours = (i % 5 != 0) ? i % 9 : 0;
+      int paidHours = (i % 2 == 0) ? hours : 2 * hours;
+      long grossPay = (i % 7 == 0) ? 0 : Math.round((double) salary * paidHours / 176);
+
+      Payslip p = payslips.get(i);
+      assertSame(employees.get(i), p.getEmployee());
+      assertEquals(hours, p.getHoursOfWork());
+      assertEquals(grossPay, p.getGrossPay());
+      assertEquals(grossPay,
+          split.pay(employees.get(i), WorkDates.parse(FROM), WorkDates.parse(TO)).getGrossPay());
+    }
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void standardHoursMustBePositive() {
+    engine.setStandardHours(0);
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void rateMultipliersMustNotBeNegative() {
+    engine.setRateMultiplier("overtime", -1);
+  }
+}
@@ -0,0 +1,175 @@
+package klk59.hr.model.reports;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import klk59.hr.TestModel;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+
+/**
+ * Tests that the headcount and the job levels of a {@link DepartmentSummary} agree when the employees
+ * of the department are not (all) loaded, and that they follow an employee that moves to another department.
+ *
+ * @author agent
+ */
+public class DepartmentDashboardReportTest {
+  private static Department audit;
+
+  private static Employee loaded;
+
+  @BeforeClass
+  public static void addEmployees() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    JobQualification auditor = new JobQualification("Auditor");
+    dom.addObject(auditor);
+    audit = new Department("Audit");
+    dom.addObject(audit);
+
+    String[] names = {"Mai Van P", "Mai Thi Q", "Mai Van R"};
+    for (int i = 0; i < names.length; i++) {
+      Employee e = new Employee(names[i], "1985-01-02", "m@example.com", "0999", "ID1" + i, "SI1" + i);
+      e.setDepartment(audit);
+      if (i < 2)
+        e.setPosition(auditor);
+      audit.addNewEmployee(e);
+      dom.addObject(e);
+      loaded = e;
+    }
+  }
+
+  @Test
+  public void positionsOfUnloadedEmployeesAreCounted() {
+    // the department as it is read from the data source: its link count is set before its links are loaded
+    Department read = new Department(audit.getId(), audit.getName());
+    read.setEmployeesCount(3);
+    read.addEmployee(loaded);
+
+    DepartmentSummary s = new DepartmentSummary(read);
+    assertEquals(3, s.getHeadcount());
+    assertEquals(3, (int) read.getEmployeesCount());
+
+    Map<String, Integer> levels = s.getJobLevels();
+    assertEquals(2, (int) levels.get("Auditor"));
+    assertEquals(1, (int) levels.get(DepartmentSummary.NO_POSITION));
+    assertEquals("-: 1, Auditor: 2", s.getEmployeesByJobLevel());
+  }
+
+  @Test
+  public void totalsAddUpTheDepartments() {
+    DepartmentDashboardReport report = new DepartmentDashboardReport();
+    report.update(Collections.singleton(audit));
+
+    assertEquals(1, report.getNumDepartments());
+    assertEquals(3, report.getHeadcount());
+    assertEquals(report, report.getDepartments().get(0).getReport());
+  }
+
+  private static DepartmentSummary summary(DepartmentDashboardReport report, Department d) {
+    for (DepartmentSummary s : report.getDepartments()) {
+      if (s.getDepartment() == d)
+        return s;
+    }
+    throw new AssertionError(d + " has no summary");
+  }
+
+  private static Employee employee(DOMBasic dom, String name, Department d, JobQualification position)
+      throws Exception {
+    Employee e = new Employee(name, "1986-03-04", "t@example.com", "0911", "ID2" + name.length(), "SI2");
+    e.setPosition(position);
+    e.setDepartment(d);
+    dom.addObject(e);
+    return e;
+  }
+
+  @Test
+  public void aMoveUpdatesTheSummariesOfBothDepartments() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    JobQualification se1 = new JobQualification("SE1");
+    dom.addObject(se1);
+    Department tax = new Department("Tax"), legal = new Department("Legal");
+    dom.addObject(tax);
+    dom.addObject(legal);
+    Employee moved = employee(dom, "Vo Van S", tax, se1);
+    employee(dom, "Vo Thi T", tax, null);
+
+    DepartmentDashboardReport report = new DepartmentDashboardReport();
+    report.update(Arrays.asList(tax, legal));
+    assertEquals(2, summary(report, tax).getHeadcount());
+    assertEquals(se1.getSalaryBasic(), summary(report, tax).getSalaryCost());
+    assertEquals(0, summary(report, legal).getHeadcount());
+
+    moved.setDepartment(legal);
+    report.update(Arrays.asList(tax, legal));
+    assertEquals(1, summary(report, tax).getHeadcount());
+    assertEquals("-: 1", summary(report, tax).getEmployeesByJobLevel());
+    assertEquals(0, summary(report, tax).getSalaryCost());
+    assertEquals(1, summary(report, legal).getHeadcount());
+    assertEquals("SE1: 1", summary(report, legal).getEmployeesByJobLevel());
+    assertEquals(se1.getSalaryBasic(), summary(report, legal).getSalaryCost());
+    assertEquals(2, report.getHeadcount());
+    assertEquals(se1.getSalaryBasic(), report.getSalaryCost());
+  }
+
+  @Test
+  public void aMoveOfAnUnloadedEmployeeUpdatesTheCountsOfTheDataSource() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    JobQualification se1 = new JobQualification("SE1");
+    dom.addObject(se1);
+    Department tax = new Department("Tax"), legal = new Department("Legal");
+    dom.addObject(tax);
+    dom.addObject(legal);
+    Employee moved = employee(dom, "Vo Van U", tax, se1);
+    employee(dom, "Vo Thi V", tax, null);
+
+    // the departments as they are read from the data source: their links are counted but not loaded
+    Department readTax = new Department(tax.getId(), tax.getName());
+    readTax.setEmployeesCount(2);
+    Department readLegal = new Department(legal.getId(), legal.getName());
+    readLegal.setEmployeesCount(0);
+    Employee readMoved = new Employee(moved.getId(), moved.getName(), moved.getDob(), moved.getEmail(),
+        moved.getPhonenumber(), moved.getIdentification(), moved.getSocialInsuranceNo(), null, readTax, se1);
+
+    readMoved.setDepartment(readLegal);
+    DepartmentDashboardReport report = new DepartmentDashboardReport();
+    report.update(Arrays.asList(readTax, readLegal));
+    assertEquals(1, (int) readTax.getEmployeesCount());
+    assertEquals(1, summary(report, readTax).getHeadcount());
+    assertEquals("-: 1", summary(report, readTax).getEmployeesByJobLevel());
+    assertEquals(1, summary(report, readLegal).getHeadcount());
+    assertEquals("SE1: 1", summary(report, readLegal).getEmployeesByJobLevel());
+  }
+
+  @Test
+  public void theCountsOfUnloadedDepartmentsAreReadTogether() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    JobQualification se1 = new JobQualification("SE1");
+    dom.addObject(se1);
+    Department north = new Department("North"), south = new Department("South");
+    dom.addObject(north);
+    dom.addObject(south);
+    employee(dom, "Ly Van W", north, se1);
+    employee(dom, "Ly Thi X", south, se1);
+    employee(dom, "Ly Van Y", south, null);
+
+    Department readNorth = new Department(north.getId(), north.getName());
+    readNorth.setEmployeesCount(1);
+    Department readSouth = new Department(south.getId(), south.getName());
+    readSouth.setEmployeesCount(2);
+
+    Department.countPositions(Arrays.asList(readNorth, readSouth));
+    // both are read, so that no change of the data source is seen by the summaries
+    dom.addObject(new Employee("Ly Thi Z", "1986-03-04", "z@example.com", "0911", "ID3", "SI3", null, north, se1));
+    assertEquals(Collections.singletonMap(se1, 1), readNorth.getPositionCounts());
+    assertEquals(2, new DepartmentSummary(readSouth).getHeadcount());
+    assertEquals(se1.getSalaryBasic(), readSouth.getSalaryCost());
+  }
+}
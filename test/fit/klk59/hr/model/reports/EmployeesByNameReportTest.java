@@ -0,0 +1,151 @@
+package klk59.hr.model.reports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.util.events.ChangeEvent;
+import domainapp.basics.util.events.ChangeEventSource;
+import klk59.hr.TestModel;
+import klk59.hr.model.Employee;
+
+/**
+ * Tests of the data source queries of {@link EmployeesByNameReport}, run directly or in the background.
+ *
+ * <p>The names contain a LIKE wildcard, so that the reports query the data source rather than the
+ * in-memory name index.
+ *
+ * @author agent
+ */
+public class EmployeesByNameReportTest {
+  @BeforeClass
+  public static void addEmployees() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    for (String name : new String[] {"Quach Van An", "Quach Thi Binh", "Quach Van Cuong"}) {
+      dom.addObject(new Employee(name, "1990-01-01", "q@example.com", "0900", "ID", "SI"));
+    }
+  }
+
+  @Test
+  public void successiveReportsBindTheirOwnNames() throws Exception {
+    assertEquals(2, new EmployeesByNameReport("Quach Van%").getNumEmployees());
+    assertEquals(1, new EmployeesByNameReport("Quach Thi%").getNumEmployees());
+    assertEquals(3, new EmployeesByNameReport("Quach%").getNumEmployees());
+  }
+
+  @Test
+  public void rerunWithANewNameRebindsTheQuery() throws Exception {
+    EmployeesByNameReport report = new EmployeesByNameReport("Quach Van%");
+    report.setName("Quach T_i%");
+    assertEquals(1, report.getNumEmployees());
+    assertEquals("Quach Thi Binh", report.getEmployees().iterator().next().getName());
+  }
+
+  @Test
+  public void pagedReportsCountInTheDataSourceAndLoadOnePageAtATime() throws Exception {
+    EmployeesByNameReport report = new EmployeesByNameReport("Quach%", 2);
+    assertEquals(3, report.getNumEmployees());
+    assertEquals(2, report.getNumPages());
+    assertEquals(1, report.getPage());
+    assertEquals(2, report.getEmployees().size());
+
+    report.setPage(2);
+    assertEquals(1, report.getEmployees().size());
+
+    report.setPageSize(0);
+    assertEquals(1, report.getNumPages());
+    assertEquals(3, report.getEmployees().size());
+  }
+
+  @Test
+  public void quotesInNamesAreEscaped() throws Exception {
+    EmployeesByNameReport report = new EmployeesByNameReport("O'Quach%", 2);
+    assertEquals(0, report.getNumEmployees());
+    assertEquals(1, report.getPage());
+  }
+
+  @Test
+  public void narrowingToNoMatchesResetsTheOutputAsTheDataSourceDoes() throws Exception {
+    EmployeesByNameReport narrowed = new EmployeesByNameReport("Quach");
+    narrowed.setName("Quach Zzz");
+    EmployeesByNameReport queried = new EmployeesByNameReport("Quach Zzz%");
+
+    for (EmployeesByNameReport report : new EmployeesByNameReport[] {narrowed, queried}) {
+      assertNull(report.getEmployees());
+      assertEquals(0, report.getNumEmployees());
+      assertEquals(0, report.getNumPages());
+    }
+  }
+
+  @Test
+  public void asynchronousChangesAreDebouncedAndDeliveredOnce() throws Exception {
+    EmployeesByNameReport report = new EmployeesByNameReport("Quach%", 0, true);
+    List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+    CountDownLatch delivered = new CountDownLatch(1);
+    report.setResultListener(e -> {
+      events.add(e);
+      delivered.countDown();
+    });
+
+    report.setName("Quach V%");
+    report.setName("Quach Van A%");
+    report.setName("Quach T%");
+    // the output is that of the last query until the new one has run
+    assertTrue(report.isQueryPending());
+    assertEquals(3, report.getNumEmployees());
+
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    Thread.sleep(2 * EmployeesByNameReport.QUERY_DELAY_MILLIS);
+    assertEquals(1, events.size());
+    assertSame(report, ((ChangeEventSource) events.get(0).getSource()).get(0));
+    assertFalse(report.isQueryPending());
+    assertNull(report.getQueryError());
+    assertEquals(1, report.getNumEmployees());
+    assertEquals("Quach Thi Binh", report.getEmployees().iterator().next().getName());
+  }
+
+  @Test
+  public void aDirectQueryCancelsThePendingOne() throws Exception {
+    EmployeesByNameReport report = new EmployeesByNameReport("Quach%", 0, true);
+    List<ChangeEvent> events = new CopyOnWriteArrayList<>();
+    report.setResultListener(events::add);
+
+    report.setName("Quach T%");
+    assertTrue(report.isQueryPending());
+
+    report.setAsync(false);
+    report.setName("Quach Van%");
+    assertFalse(report.isQueryPending());
+    assertEquals(2, report.getNumEmployees());
+
+    Thread.sleep(3 * EmployeesByNameReport.QUERY_DELAY_MILLIS);
+    assertTrue(events.isEmpty());
+    assertEquals(2, report.getNumEmployees());
+  }
+
+  @Test
+  public void aChangeOfPageSizeSupersedesThePendingQuery() throws Exception {
+    EmployeesByNameReport report = new EmployeesByNameReport("Quach%", 0, true);
+    CountDownLatch delivered = new CountDownLatch(1);
+    report.setResultListener(e -> delivered.countDown());
+
+    report.setName("Quach Van%");
+    report.setPageSize(1);
+
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    assertEquals(2, report.getNumEmployees());
+    assertEquals(2, report.getNumPages());
+    assertEquals(1, report.getEmployees().size());
+  }
+}
@@ -0,0 +1,102 @@
+package klk59.hr.model.reports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import klk59.hr.TestModel;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.TimeKeepingLog;
+import klk59.hr.model.TypeOfWork;
+import klk59.hr.model.reports.MonthlyTimesheetReport.Aggregation;
+
+/**
+ * Tests that the two ways of computing a {@link MonthlyTimesheetReport} give the same output.
+ *
+ * <p>The records are in a month of their own, so that the records of the other tests are not counted.
+ *
+ * @author agent
+ */
+public class MonthlyTimesheetReportTest {
+  private static final String MONTH = "2031-05";
+
+  private static Department accounts;
+
+  private static Employee inAccounts;
+
+  @BeforeClass
+  public static void addRecords() throws Exception {
+    DOMBasic dom = TestModel.dom();
+    TypeOfWork normal = new TypeOfWork("normal");
+    TypeOfWork overtime = new TypeOfWork("overtime");
+    dom.addObject(normal);
+    dom.addObject(overtime);
+    accounts = new Department("Accounts");
+    dom.addObject(accounts);
+
+    inAccounts = new Employee("Ha Van K", "1991-04-05", "k@example.com", "0977", "ID8", "SI8");
+    inAccounts.setDepartment(accounts);
+    accounts.addNewEmployee(inAccounts);
+    dom.addObject(inAccounts);
+    Employee other = new Employee("Ha Thi L", "1992-05-06", "l@example.com", "0988", "ID9", "SI9");
+    dom.addObject(other);
+
+    add(dom, inAccounts, normal, "2031-05-02", 8);
+    add(dom, inAccounts, overtime, "2031-05-02", 2);
+    add(dom, inAccounts, normal, "2031-05-31", 8);
+    add(dom, inAccounts, normal, "2031-06-01", 8);
+    add(dom, other, normal, "2031-04-30", 4);
+    add(dom, other, normal, "2031-05-15", 6);
+
+    // otherwise the reports of DATA_SOURCE are computed in memory too
+    assertTrue(TimeKeepingLog.canSelectDaysInDataSource());
+  }
+
+  private static void add(DOMBasic dom, Employee e, TypeOfWork t, String date, int hours) throws Exception {
+    DailyTimeKeeping d = new DailyTimeKeeping(e, t, date, hours);
+    e.addNewDailyTimeKeeping(d);
+    dom.addObject(d);
+  }
+
+  @Test
+  public void bothAggregationsSumTheRecordsOfTheMonth() throws Exception {
+    for (Aggregation a : Aggregation.values()) {
+      MonthlyTimesheetReport report = new MonthlyTimesheetReport(MONTH, null, a);
+      assertEquals(a.name(), 2, report.getNumEmployees());
+      assertEquals(a.name(), 24, report.getTotalHours());
+    }
+  }
+
+  @Test
+  public void bothAggregationsSelectTheEmployeesOfTheDepartment() throws Exception {
+    for (Aggregation a : Aggregation.values()) {
+      MonthlyTimesheetReport report = new MonthlyTimesheetReport(MONTH, accounts, a);
+      List<TimesheetSummary> summaries = report.getSummaries();
+      assertEquals(a.name(), 1, summaries.size());
+
+      TimesheetSummary s = summaries.get(0);
+      assertSame(inAccounts, s.getEmployee());
+      assertSame(report, s.getReport());
+      assertEquals("normal: 16, overtime: 2", s.getHoursOfWork());
+      assertEquals(18, s.getTotalHours());
+    }
+  }
+
+  @Test
+  public void changingTheAggregationRecomputesTheReport() throws Exception {
+    MonthlyTimesheetReport report = new MonthlyTimesheetReport(MONTH);
+    assertEquals(Aggregation.IN_MEMORY, report.getAggregation());
+
+    report.setAggregation(Aggregation.DATA_SOURCE);
+    assertEquals(Aggregation.DATA_SOURCE, report.getAggregation());
+    assertEquals(24, report.getTotalHours());
+  }
+}
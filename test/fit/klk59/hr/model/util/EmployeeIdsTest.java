@@ -0,0 +1,36 @@
+package klk59.hr.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+
+/**
+ * Tests of the parsing and the formatting of employee ids.
+ *
+ * @author agent
+ */
+public class EmployeeIdsTest {
+  @Test
+  public void idsAreFormattedAndParsedBack() {
+    assertEquals("TSDV12", EmployeeIds.format(12));
+    assertEquals(12, EmployeeIds.parse("TSDV12"));
+    assertEquals(Integer.MAX_VALUE, EmployeeIds.parse(EmployeeIds.format(Integer.MAX_VALUE)));
+  }
+
+  @Test
+  public void everyIdFitsTheMaxLength() {
+    assertEquals(EmployeeIds.PREFIX.length() + String.valueOf(Integer.MAX_VALUE).length(),
+        EmployeeIds.MAX_LENGTH);
+    assertTrue(EmployeeIds.isValid("TSDV" + Integer.MAX_VALUE));
+    assertFalse(EmployeeIds.isValid("TSDV" + ((long) Integer.MAX_VALUE + 1) + "0"));
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void otherPrefixesAreRejected() {
+    EmployeeIds.parse("SDV12");
+  }
+}
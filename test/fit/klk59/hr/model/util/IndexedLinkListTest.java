@@ -0,0 +1,74 @@
+package klk59.hr.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import klk59.hr.model.City;
+import klk59.hr.model.Employee;
+
+/**
+ * Tests of the link count that {@link IndexedLinkList} keeps for the owners of the links.
+ *
+ * @author agent
+ */
+public class IndexedLinkListTest {
+  @Test
+  public void newLinksAreCounted() {
+    IndexedLinkList<String> l = new IndexedLinkList<>();
+    assertTrue(l.add("a"));
+    assertTrue(l.add("b"));
+    assertFalse(l.add("a"));
+    assertEquals(2, l.getLinkCount());
+
+    assertTrue(l.remove("a"));
+    assertFalse(l.remove("a"));
+    assertEquals(1, l.getLinkCount());
+  }
+
+  @Test
+  public void loadedLinksAreNotCountedTwice() {
+    IndexedLinkList<String> l = new IndexedLinkList<>();
+    // the data source reports 3 links before they are loaded
+    l.setLinkCount(3);
+    assertEquals(3, l.getLinkCount());
+    assertEquals(0, l.size());
+
+    assertTrue(l.addLoaded("a"));
+    assertTrue(l.addAllLoaded(Arrays.asList("b", "c", "b")));
+    assertEquals(3, l.getLinkCount());
+    assertEquals(3, l.size());
+
+    // a new link and a removed one
+    l.add("d");
+    l.remove("b");
+    assertEquals(3, l.getLinkCount());
+  }
+
+  @Test
+  public void linkCountIsNotLowerThanSize() {
+    IndexedLinkList<String> l = new IndexedLinkList<>(Arrays.asList("a", "b"));
+    l.setLinkCount(1);
+    assertEquals(2, l.getLinkCount());
+  }
+
+  @Test
+  public void cityCountsItsEmployees() {
+    City c = new City("Hue");
+    Employee a = new Employee("A", "1990-01-01", "a@example.com", "1", "1", "1");
+    Employee b = new Employee("B", "1990-01-01", "b@example.com", "2", "2", "2");
+
+    c.setEmployeesCount(2);
+    c.addEmployee(a);
+    assertEquals(2, (int) c.getEmployeesCount());
+    c.addNewEmployee(b);
+    c.addNewEmployee(b);
+    assertEquals(3, (int) c.getEmployeesCount());
+    c.removeEmployee(a);
+    assertEquals(2, (int) c.getEmployeesCount());
+  }
+}
@@ -0,0 +1,54 @@
+package klk59.hr.model.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import domainapp.basics.exceptions.ConstraintViolationException;
+
+/**
+ * Tests of the strict and the lenient parsing of work dates.
+ *
+ * @author agent
+ */
+public class WorkDatesTest {
+  private static final int MARCH_12 = (int) LocalDate.of(2018, 3, 12).toEpochDay();
+
+  @Test
+  public void parseAcceptsTheInputFormats() {
+    assertEquals(MARCH_12, WorkDates.parse("2018-03-12"));
+    assertEquals(MARCH_12, WorkDates.parse("12/3/2018"));
+    assertEquals(MARCH_12, WorkDates.parse(" 12-03-2018 "));
+    assertEquals("2018-03-12", WorkDates.format(MARCH_12));
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void parseRejectsOtherFormats() {
+    WorkDates.parse("12.03.2018");
+  }
+
+  @Test(expected = ConstraintViolationException.class)
+  public void parseRejectsInvalidDates() {
+    WorkDates.parse("2018-02-30");
+  }
+
+  @Test
+  public void parseLenientAcceptsLegacyFormats() {
+    String[] legacy = {"2018-03-12", "12/3/2018", "2018-3-12", "2018/03/12", "2018.3.12", "20180312",
+        "12.03.2018", "12/3/18", "12-03-18", "12 Mar 2018", "12-MAR-2018", "12 March 2018",
+        "Mar 12, 2018", "March 12, 2018", "2018-03-12 08:30", "2018-03-12T08:30:00.000", "12/3/2018 17:00"};
+    for (String d : legacy)
+      assertEquals(d, MARCH_12, WorkDates.parseLenient(d));
+  }
+
+  @Test
+  public void parseLenientReturnsNoDayForNonDates() {
+    assertEquals(WorkDates.NO_DAY, WorkDates.parseLenient(null));
+    assertEquals(WorkDates.NO_DAY, WorkDates.parseLenient(""));
+    assertEquals(WorkDates.NO_DAY, WorkDates.parseLenient("last Monday"));
+    assertEquals(WorkDates.NO_DAY, WorkDates.parseLenient("31/2/2018"));
+    assertEquals(null, WorkDates.format(WorkDates.NO_DAY));
+  }
+}
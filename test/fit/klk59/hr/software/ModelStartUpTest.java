@@ -0,0 +1,71 @@
+package klk59.hr.software;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import domainapp.basics.core.dodm.DODMBasic;
+import domainapp.basics.core.dodm.dom.DOMBasic;
+import domainapp.basics.model.Oid;
+import klk59.hr.TestModel;
+import klk59.hr.model.City;
+import klk59.hr.model.DailyTimeKeeping;
+import klk59.hr.model.Department;
+import klk59.hr.model.Employee;
+import klk59.hr.model.JobQualification;
+import klk59.hr.model.ReferenceDataCache;
+import klk59.hr.model.TypeOfWork;
+
+/**
+ * Tests of the phases of {@link ModelStartUp}.
+ *
+ * @author agent
+ */
+public class ModelStartUpTest {
+  private static final Class<?>[] MODEL = {
+      Employee.class, City.class, Department.class, JobQualification.class, TypeOfWork.class,
+      DailyTimeKeeping.class
+  };
+
+  private static int level(List<List<Class<?>>> levels, Class<?> c) {
+    for (int i = 0; i < levels.size(); i++) {
+      if (levels.get(i).contains(c))
+        return i;
+    }
+    throw new AssertionError(c + " has no level");
+  }
+
+  @Test
+  public void classesArePreparedAfterTheirDependencies() {
+    List<List<Class<?>>> levels = new ModelStartUp(MODEL).getLevels();
+    assertTrue(level(levels, City.class) < level(levels, Employee.class));
+    assertTrue(level(levels, Department.class) < level(levels, Employee.class));
+    assertTrue(level(levels, Employee.class) < level(levels, DailyTimeKeeping.class));
+    assertTrue(level(levels, TypeOfWork.class) < level(levels, DailyTimeKeeping.class));
+  }
+
+  @Test
+  public void startTimesEachPhaseAndRegistersTheServices() throws Exception {
+    DODMBasic dodm = TestModel.get();
+    ModelStartUp startUp = new ModelStartUp(MODEL);
+    startUp.start(dodm);
+
+    assertEquals(Arrays.asList("prepare", "register", "services"),
+        Arrays.asList(startUp.getTimings().keySet().toArray()));
+
+    // the cache follows the object manager
+    DOMBasic dom = dodm.getDom();
+    City city = new City("Vinh");
+    Oid oid = dom.addObject(city);
+    try {
+      assertSame(city, ReferenceDataCache.getInstance().getIfPresent(City.class, city.getId()));
+    } finally {
+      dom.deleteObject(city, oid, City.class);
+    }
+  }
+}